@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark;
+
+import fr.paris.lutece.portal.service.init.LuteceInitException;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.pool.service.PluginConnectionService;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Minimal Lutece context of the benchmarks : the paths and properties of the exploded webapp (built by mvn lutece:exploded), and a plugin whose
+ * DAOs run against an embedded H2 database instead of the connection pools of the webapp
+ */
+public final class BenchmarkContext
+{
+    private static final String PROPERTY_WEBAPP = "benchmark.webapp";
+    private static final String DEFAULT_WEBAPP = "target/lutece";
+    private static final String PATH_CONF = "/WEB-INF/conf/";
+    private static final String PATH_TEMPLATES = "/WEB-INF/templates/";
+    private static final String PLUGIN_NAME = "notificationstore-broadcast";
+    private static final String H2_URL = "jdbc:h2:mem:notificationstore_broadcast;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String SQL_CREATE_SUBSCRIPTION = "CREATE TABLE IF NOT EXISTS notificationstore_broadcast_subscription ( "
+            + "id_subscription int AUTO_INCREMENT, demand_type_id int default '0' NOT NULL, mail varchar(255) default '' NOT NULL, "
+            + "frequency int default '0' NOT NULL, date_update bigint default '0' NOT NULL, PRIMARY KEY (id_subscription) )";
+    private static final String SQL_CREATE_SUBSCRIPTION_INDEX = "CREATE INDEX IF NOT EXISTS idx_notificationstore_broadcast_subscription_type "
+            + "ON notificationstore_broadcast_subscription (demand_type_id, frequency)";
+
+    private static boolean _bInit;
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private BenchmarkContext( )
+    {
+    }
+
+    /**
+     * Initialize the paths, the properties and the templates of the webapp, once per JVM
+     */
+    public static synchronized void init( )
+    {
+        if ( _bInit )
+        {
+            return;
+        }
+
+        AppPathService.init( new File( System.getProperty( PROPERTY_WEBAPP, DEFAULT_WEBAPP ) ).getAbsolutePath( ) );
+        try
+        {
+            AppPropertiesService.init( PATH_CONF );
+        }
+        catch( LuteceInitException e )
+        {
+            throw new IllegalStateException( "Unable to load the webapp properties : run mvn lutece:exploded before the benchmarks", e );
+        }
+        // the mails are rendered by the template service of the webapp
+        AppTemplateService.init( PATH_TEMPLATES );
+        _bInit = true;
+    }
+
+    /**
+     * Create a plugin whose DAOs use the embedded H2 database, with the tables of the module
+     * 
+     * @return the plugin
+     * @throws SQLException
+     *             if the tables can not be created
+     */
+    public static Plugin createH2Plugin( ) throws SQLException
+    {
+        H2ConnectionService connectionService = new H2ConnectionService( DriverManager.getConnection( H2_URL ) );
+
+        try ( Statement statement = connectionService.getConnection( ).createStatement( ) )
+        {
+            statement.execute( SQL_CREATE_SUBSCRIPTION );
+            statement.execute( SQL_CREATE_SUBSCRIPTION_INDEX );
+        }
+
+        Plugin plugin = new Plugin( )
+        {
+            @Override
+            public void init( )
+            {
+                // nothing to initialize
+            }
+        };
+        plugin.setName( PLUGIN_NAME );
+        plugin.setConnectionService( connectionService );
+
+        return plugin;
+    }
+
+    /**
+     * Connection service sharing a single connection to the embedded database : the benchmarks measure the DAOs, not the pool
+     */
+    private static final class H2ConnectionService extends PluginConnectionService
+    {
+        private final Connection _connection;
+
+        /**
+         * Constructor
+         * 
+         * @param connection
+         *            the connection to the embedded database
+         */
+        H2ConnectionService( Connection connection )
+        {
+            _connection = connection;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public Connection getConnection( )
+        {
+            try
+            {
+                if ( _connection.isClosed( ) )
+                {
+                    throw new AppException( "The connection to the embedded database is closed" );
+                }
+            }
+            catch( SQLException e )
+            {
+                throw new AppException( "Unable to check the connection to the embedded database", e );
+            }
+
+            return _connection;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void freeConnection( Connection connection )
+        {
+            // the connection is kept open for the next DAO call
+        }
+    }
+}
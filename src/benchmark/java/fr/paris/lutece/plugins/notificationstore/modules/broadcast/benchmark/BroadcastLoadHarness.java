@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.SubscriptionHome;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.service.BroadcastMailSenderService;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.service.BroadcastMetrics;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.service.NotificationAlertBroadcastService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Load harness of the broadcast : fills the subscription table with synthetic subscriptions, replaces the demand service by a provider of
+ * synthetic FAILED events and the mail sender by a capturing one, then runs a broadcast and drains the mail queue, reporting run time, throughput
+ * and heap use.
+ * <p>
+ * The Lutece context is the one of the unit tests (the exploded webapp and its database, e.g. an H2 pool declared in its db.properties). Run with
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark.BroadcastLoadHarness
+ * -Dbenchmark.args="subscriptions=100000 demandTypes=500 events=2000000"
+ * </p>
+ */
+public class BroadcastLoadHarness extends LuteceTestCase
+{
+    private static final String DEMAND_SERVICE_BEAN_NAME = "notificationstore.demandService";
+    private static final String SENDER_BEAN_NAME = "notificationstore-broadcast.broadcastMailSender";
+    private static final String PLUGIN_NAME = "notificationstore-broadcast";
+    private static final String [ ] TABLES = {
+            "notificationstore_broadcast_subscription", "notificationstore_broadcast_watermark", "notificationstore_broadcast_mail",
+            "notificationstore_broadcast_mail_body", "notificationstore_broadcast_sent_event", "notificationstore_broadcast_lease"
+    };
+    private static final String NO_MAIL_TO_SEND = "no mail to send.";
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final long HEAP_SAMPLING_PERIOD = 50L;
+    private static final int MAX_FREQUENCY = 168;
+
+    private static final String ARG_SUBSCRIPTIONS = "subscriptions";
+    private static final String ARG_DEMAND_TYPES = "demandTypes";
+    private static final String ARG_EVENTS = "events";
+
+    private final MemoryMXBean _memory = ManagementFactory.getMemoryMXBean( );
+    private final AtomicLong _lPeakHeap = new AtomicLong( );
+
+    /**
+     * Run the harness
+     * 
+     * @param args
+     *            the data sizes, as name=value pairs : subscriptions (100000), demandTypes (500) and events (1000000, the total number of
+     *            FAILED events of the demand types)
+     * @throws Exception
+     *             if the Lutece context can not be initialized
+     */
+    public static void main( String [ ] args ) throws Exception
+    {
+        Map<String, Integer> mapArgs = parseArgs( args );
+        BroadcastLoadHarness harness = new BroadcastLoadHarness( );
+
+        harness.setUp( );
+        try
+        {
+            harness.run( mapArgs.getOrDefault( ARG_SUBSCRIPTIONS, 100000 ), mapArgs.getOrDefault( ARG_DEMAND_TYPES, 500 ),
+                    mapArgs.getOrDefault( ARG_EVENTS, 1000000 ) );
+        }
+        finally
+        {
+            harness.tearDown( );
+        }
+        System.exit( 0 );
+    }
+
+    /**
+     * Fill the data, run a broadcast and send the queued mails
+     * 
+     * @param nbSubscriptions
+     *            the number of subscriptions
+     * @param nbDemandTypes
+     *            the number of demand types
+     * @param nbEvents
+     *            the total number of events
+     */
+    private void run( int nbSubscriptions, int nbDemandTypes, int nbEvents )
+    {
+        long lNow = System.currentTimeMillis( );
+        CapturingBroadcastMailSender sender = new CapturingBroadcastMailSender( );
+        registerBean( SENDER_BEAN_NAME, sender );
+        registerBean( DEMAND_SERVICE_BEAN_NAME, StubDemandServiceProvider.create( Math.max( 1, nbEvents / nbDemandTypes ), lNow
+                - TimeUnit.HOURS.toMillis( MAX_FREQUENCY ), lNow ) );
+
+        long lStart = System.nanoTime( );
+        clearTables( );
+        List<Subscription> listSubscriptions = SyntheticData.subscriptions( nbSubscriptions, nbDemandTypes );
+        for ( int nFrom = 0; nFrom < listSubscriptions.size( ); nFrom += INSERT_BATCH_SIZE )
+        {
+            SubscriptionHome.createAll( listSubscriptions.subList( nFrom, Math.min( nFrom + INSERT_BATCH_SIZE, listSubscriptions.size( ) ) ) );
+        }
+        report( "Subscriptions inserted", nbSubscriptions, BroadcastMetrics.elapsedSince( lStart ), "subscription(s)" );
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor( );
+        sampler.scheduleAtFixedRate( ( ) -> _lPeakHeap.accumulateAndGet( _memory.getHeapMemoryUsage( ).getUsed( ), Math::max ), 0,
+                HEAP_SAMPLING_PERIOD, TimeUnit.MILLISECONDS );
+
+        try
+        {
+            System.gc( );
+            long lBaseHeap = _memory.getHeapMemoryUsage( ).getUsed( );
+            _lPeakHeap.set( lBaseHeap );
+
+            lStart = System.nanoTime( );
+            String strLogs = NotificationAlertBroadcastService.broadcast( Locale.FRENCH );
+            long lBroadcastTime = BroadcastMetrics.elapsedSince( lStart );
+            BroadcastMetrics.RunMetrics run = BroadcastMetrics.getLastRun( );
+            System.out.println( "Broadcast : " + strLogs );
+            report( "Events broadcast", run.getNbEvents( ), lBroadcastTime, "event(s)" );
+            report( "Mails queued", run.getNbMailsQueued( ), lBroadcastTime, "mail(s)" );
+            System.out.println( String.format( "Broadcast heap : %d MB before, %d MB peak", toMegaBytes( lBaseHeap ), toMegaBytes( _lPeakHeap.get( ) ) ) );
+
+            lStart = System.nanoTime( );
+            while ( !NO_MAIL_TO_SEND.equals( BroadcastMailSenderService.sendQueuedMails( ) ) )
+            {
+                // drain the queue
+            }
+            long lSendTime = BroadcastMetrics.elapsedSince( lStart );
+            report( "Mails sent", sender.getNbMails( ), lSendTime, "mail(s)" );
+            System.out.println( String.format( "Mails sent : %d recipient(s), %d MB of body", sender.getNbRecipients( ),
+                    toMegaBytes( sender.getNbBodyChars( ) * 2 ) ) );
+            System.out.println( String.format( "Total heap peak : %d MB", toMegaBytes( _lPeakHeap.get( ) ) ) );
+        }
+        finally
+        {
+            sampler.shutdownNow( );
+        }
+    }
+
+    /**
+     * Replace a bean of the Spring context by an instance of the harness
+     * 
+     * @param strName
+     *            the bean name
+     * @param bean
+     *            the bean
+     */
+    private static void registerBean( String strName, Object bean )
+    {
+        DefaultListableBeanFactory beanFactory = (DefaultListableBeanFactory) ( (ConfigurableApplicationContext) SpringContextService.getContext( ) )
+                .getBeanFactory( );
+        if ( beanFactory.containsSingleton( strName ) )
+        {
+            beanFactory.destroySingleton( strName );
+        }
+        beanFactory.registerSingleton( strName, bean );
+    }
+
+    /**
+     * Empty the tables of the module
+     */
+    private static void clearTables( )
+    {
+        Plugin plugin = PluginService.getPlugin( PLUGIN_NAME );
+        for ( String strTable : TABLES )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( "DELETE FROM " + strTable, plugin ) )
+            {
+                daoUtil.executeUpdate( );
+            }
+        }
+    }
+
+    /**
+     * Print a count, its duration and its throughput
+     * 
+     * @param strLabel
+     *            the label
+     * @param lCount
+     *            the count
+     * @param lDuration
+     *            the duration in milliseconds
+     * @param strUnit
+     *            the unit of the count
+     */
+    private static void report( String strLabel, long lCount, long lDuration, String strUnit )
+    {
+        System.out.println( String.format( "%s : %d %s in %d ms (%.1f/s)", strLabel, lCount, strUnit, lDuration,
+                ( lDuration == 0 ) ? 0.0 : lCount * 1000.0 / lDuration ) );
+    }
+
+    /**
+     * Convert a number of bytes in megabytes
+     * 
+     * @param lBytes
+     *            the bytes
+     * @return the megabytes
+     */
+    private static long toMegaBytes( long lBytes )
+    {
+        return lBytes / ( 1024L * 1024L );
+    }
+
+    /**
+     * Parse the name=value arguments, which may be given as a single space separated argument
+     * 
+     * @param args
+     *            the arguments
+     * @return the values by name
+     */
+    private static Map<String, Integer> parseArgs( String [ ] args )
+    {
+        Map<String, Integer> mapArgs = new HashMap<>( );
+        for ( String strArgs : args )
+        {
+            for ( String strArg : strArgs.trim( ).split( "\\s+" ) )
+            {
+                String [ ] pair = strArg.split( "=", 2 );
+                if ( pair.length == 2 )
+                {
+                    mapArgs.put( pair [0], Integer.parseInt( pair [1] ) );
+                }
+            }
+        }
+
+        return mapArgs;
+    }
+}
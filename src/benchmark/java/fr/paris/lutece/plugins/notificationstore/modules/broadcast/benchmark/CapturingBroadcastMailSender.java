@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastMail;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.service.IBroadcastMailSender;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mail sender of the load harness, standing for the MailService : the mails are counted instead of being sent
+ */
+public class CapturingBroadcastMailSender implements IBroadcastMailSender
+{
+    private final LongAdder _nbMails = new LongAdder( );
+    private final LongAdder _nbRecipients = new LongAdder( );
+    private final LongAdder _nbBodyChars = new LongAdder( );
+    private volatile BroadcastMail _lastMail;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void send( BroadcastMail mail )
+    {
+        _nbMails.increment( );
+        _nbRecipients.add( mail.getRecipients( ).split( "," ).length );
+        _nbBodyChars.add( mail.getBody( ).length( ) );
+        _lastMail = mail;
+    }
+
+    /**
+     * Returns the number of captured mails
+     * 
+     * @return the number of mails
+     */
+    public long getNbMails( )
+    {
+        return _nbMails.sum( );
+    }
+
+    /**
+     * Returns the number of recipients of the captured mails
+     * 
+     * @return the number of recipients
+     */
+    public long getNbRecipients( )
+    {
+        return _nbRecipients.sum( );
+    }
+
+    /**
+     * Returns the total length of the bodies of the captured mails
+     * 
+     * @return the number of characters
+     */
+    public long getNbBodyChars( )
+    {
+        return _nbBodyChars.sum( );
+    }
+
+    /**
+     * Returns the last captured mail
+     * 
+     * @return the mail, or null if no mail has been sent
+     */
+    public BroadcastMail getLastMail( )
+    {
+        return _lastMail;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandServiceProvider;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory IDemandServiceProvider returning synthetic FAILED events, so that the broadcast can be measured without the notificationstore
+ * database. Only the event search used by the broadcast is implemented : the provider is a dynamic proxy, which does not depend on the other methods
+ * of the interface.
+ */
+public final class StubDemandServiceProvider
+{
+    private static final String METHOD_FIND_EVENTS = "findEventsByDateAndDemandTypeIdAndStatus";
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private StubDemandServiceProvider( )
+    {
+    }
+
+    /**
+     * Create a provider returning, for each demand type, the events of a fixed list which are in the searched period. The events of a demand type
+     * are generated on the first search, over the given period.
+     * 
+     * @param nbEvents
+     *            the number of events of each demand type
+     * @param lStart
+     *            the start of the period of the generated events
+     * @param lEnd
+     *            the end of the period of the generated events
+     * @return the provider
+     */
+    public static IDemandServiceProvider create( int nbEvents, long lStart, long lEnd )
+    {
+        Map<Integer, List<NotificationEvent>> mapEvents = new ConcurrentHashMap<>( );
+
+        return (IDemandServiceProvider) Proxy.newProxyInstance( StubDemandServiceProvider.class.getClassLoader( ), new Class<?> [ ] {
+                IDemandServiceProvider.class
+        }, ( proxy, method, args ) -> {
+            switch( method.getName( ) )
+            {
+                case METHOD_FIND_EVENTS:
+                    List<NotificationEvent> listAllEvent = mapEvents.computeIfAbsent( Integer.parseInt( (String) args [2] ),
+                            nDemandTypeId -> SyntheticData.events( nbEvents, nDemandTypeId, lStart, lEnd ) );
+                    return findEvents( listAllEvent, (Long) args [0], (Long) args [1] );
+                case "hashCode":
+                    return System.identityHashCode( proxy );
+                case "equals":
+                    return proxy == args [0];
+                case "toString":
+                    return StubDemandServiceProvider.class.getSimpleName( );
+                default:
+                    throw new UnsupportedOperationException( method.getName( ) );
+            }
+        } );
+    }
+
+    /**
+     * Keep the events of a period, as the database query would
+     * 
+     * @param listAllEvent
+     *            the events of the demand type
+     * @param lStart
+     *            the start of the period
+     * @param lEnd
+     *            the end of the period
+     * @return the events of the period
+     */
+    private static List<NotificationEvent> findEvents( List<NotificationEvent> listAllEvent, long lStart, long lEnd )
+    {
+        List<NotificationEvent> listEvent = new ArrayList<>( );
+        for ( NotificationEvent notificationEvent : listAllEvent )
+        {
+            long lEventDate = notificationEvent.getEvent( ).getEventDate( );
+            if ( lEventDate >= lStart && lEventDate <= lEnd )
+            {
+                listEvent.add( notificationEvent );
+            }
+        }
+
+        return listEvent;
+    }
+}
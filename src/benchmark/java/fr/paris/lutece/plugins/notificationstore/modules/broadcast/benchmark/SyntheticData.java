@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Event;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of synthetic subscriptions and events. The generation is seeded, so that successive runs measure the same data.
+ */
+public final class SyntheticData
+{
+    private static final long SEED = 42L;
+    private static final int [ ] FREQUENCIES = {
+            1, 24, 168
+    };
+    private static final String [ ] EVENT_TYPES = {
+            "MAIL", "SMS", "BACKOFFICE", "MYDASHBOARD", "BROADCAST"
+    };
+    private static final String STATUS_FAILED = "FAILED";
+    private static final String MESSAGE = "Unable to deliver the notification : connection refused by the remote service after 3 attempts, the last "
+            + "response being 503 Service Unavailable. ";
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SyntheticData( )
+    {
+    }
+
+    /**
+     * Generate subscriptions spread over demand types and frequencies
+     * 
+     * @param nbSubscriptions
+     *            the number of subscriptions
+     * @param nbDemandTypes
+     *            the number of demand types
+     * @return the subscriptions, with ids starting at 1
+     */
+    public static List<Subscription> subscriptions( int nbSubscriptions, int nbDemandTypes )
+    {
+        Random random = new Random( SEED );
+        List<Subscription> listSubscriptions = new ArrayList<>( nbSubscriptions );
+
+        for ( int i = 0; i < nbSubscriptions; i++ )
+        {
+            Subscription subscription = new Subscription( );
+            subscription.setId( i + 1 );
+            subscription.setDemandTypeId( 1 + random.nextInt( nbDemandTypes ) );
+            subscription.setFrequency( FREQUENCIES [random.nextInt( FREQUENCIES.length )] );
+            subscription.setMail( recipient( random.nextInt( nbSubscriptions ) ) );
+            listSubscriptions.add( subscription );
+        }
+
+        return listSubscriptions;
+    }
+
+    /**
+     * Generate recipients
+     * 
+     * @param nbRecipients
+     *            the number of recipients
+     * @return the mail addresses
+     */
+    public static List<String> recipients( int nbRecipients )
+    {
+        List<String> listRecipients = new ArrayList<>( nbRecipients );
+        for ( int i = 0; i < nbRecipients; i++ )
+        {
+            listRecipients.add( recipient( i ) );
+        }
+
+        return listRecipients;
+    }
+
+    /**
+     * Generate FAILED events of a demand type, spread over a period
+     * 
+     * @param nbEvents
+     *            the number of events
+     * @param nDemandTypeId
+     *            the demand type id
+     * @param lStart
+     *            the start of the period
+     * @param lEnd
+     *            the end of the period
+     * @return the events
+     */
+    public static List<NotificationEvent> events( int nbEvents, int nDemandTypeId, long lStart, long lEnd )
+    {
+        Random random = new Random( SEED + nDemandTypeId );
+        List<NotificationEvent> listEvent = new ArrayList<>( nbEvents );
+        long lPeriod = Math.max( 1, lEnd - lStart );
+
+        for ( int i = 0; i < nbEvents; i++ )
+        {
+            long lDate = lStart + 1 + ( random.nextLong( ) & Long.MAX_VALUE ) % lPeriod;
+
+            Event event = new Event( );
+            event.setEventDate( lDate );
+            event.setType( EVENT_TYPES [random.nextInt( EVENT_TYPES.length )] );
+            event.setStatus( STATUS_FAILED );
+            event.setMessage( MESSAGE + "Reference " + random.nextInt( 1000000 ) );
+
+            Demand demand = new Demand( );
+            demand.setId( String.valueOf( 100000 + random.nextInt( 900000 ) ) );
+            demand.setTypeId( String.valueOf( nDemandTypeId ) );
+
+            NotificationEvent notificationEvent = new NotificationEvent( );
+            notificationEvent.setEvent( event );
+            notificationEvent.setDemand( demand );
+            notificationEvent.setNotificationDate( lDate );
+            listEvent.add( notificationEvent );
+        }
+
+        return listEvent;
+    }
+
+    /**
+     * Build the mail address of a recipient
+     * 
+     * @param nIndex
+     *            the index of the recipient
+     * @return the mail address
+     */
+    private static String recipient( int nIndex )
+    {
+        return "agent" + nIndex + "@paris.fr";
+    }
+}
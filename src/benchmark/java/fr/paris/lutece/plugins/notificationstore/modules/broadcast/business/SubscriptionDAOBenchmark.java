@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark.BenchmarkContext;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark.SyntheticData;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of the mapping of the subscription list by SubscriptionDAO, against an embedded H2 database
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class SubscriptionDAOBenchmark
+{
+    private static final String SQL_DELETE = "DELETE FROM notificationstore_broadcast_subscription";
+    private static final String SQL_INSERT = "INSERT INTO notificationstore_broadcast_subscription ( demand_type_id, mail, frequency ) VALUES ( ?, ?, ? )";
+    private static final int NB_DEMAND_TYPES = 100;
+
+    @Param( {
+            "1000", "100000"
+    } )
+    private int _nbSubscriptions;
+
+    private final SubscriptionDAO _dao = new SubscriptionDAO( );
+    private final SubscriptionFilter _filterAll = new SubscriptionFilter( );
+    private final SubscriptionFilter _filterDemandType = new SubscriptionFilter( );
+    private Plugin _plugin;
+
+    /**
+     * Fill the subscription table
+     * 
+     * @throws SQLException
+     *             if the table can not be filled
+     */
+    @Setup
+    public void setUp( ) throws SQLException
+    {
+        BenchmarkContext.init( );
+        _plugin = BenchmarkContext.createH2Plugin( );
+        _filterDemandType.setDemandTypeId( 1 );
+
+        Connection connection = _plugin.getConnectionService( ).getConnection( );
+        try ( Statement statement = connection.createStatement( ) )
+        {
+            statement.execute( SQL_DELETE );
+        }
+
+        List<Subscription> listSubscriptions = SyntheticData.subscriptions( _nbSubscriptions, NB_DEMAND_TYPES );
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_INSERT ) )
+        {
+            for ( Subscription subscription : listSubscriptions )
+            {
+                statement.setInt( 1, subscription.getDemandTypeId( ) );
+                statement.setString( 2, subscription.getMail( ) );
+                statement.setInt( 3, subscription.getFrequency( ) );
+                statement.addBatch( );
+            }
+            statement.executeBatch( );
+        }
+    }
+
+    /**
+     * Load the whole list, as the broadcast does when the subscription cache is disabled
+     * 
+     * @return the subscriptions
+     */
+    @Benchmark
+    public List<Subscription> selectAll( )
+    {
+        return _dao.selectSubscriptionsList( _plugin );
+    }
+
+    /**
+     * Stream the whole list to a consumer, as the streamed REST export does
+     * 
+     * @param blackhole
+     *            the consumer of the subscriptions
+     */
+    @Benchmark
+    public void streamAll( Blackhole blackhole )
+    {
+        _dao.selectSubscriptionsList( _filterAll, 0, 0, blackhole::consume, _plugin );
+    }
+
+    /**
+     * Load the subscriptions of a demand type, through the index
+     * 
+     * @return the subscriptions
+     */
+    @Benchmark
+    public List<Subscription> selectByDemandType( )
+    {
+        return _dao.selectSubscriptionsList( _filterDemandType, _plugin );
+    }
+}
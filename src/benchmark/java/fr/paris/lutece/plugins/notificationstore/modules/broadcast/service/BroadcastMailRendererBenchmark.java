@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark.BenchmarkContext;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark.SyntheticData;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the rendering of the alert mail (mail.html) through the template service, with the events of large incidents
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class BroadcastMailRendererBenchmark
+{
+    private static final String TEMPLATE_MAIL = "/admin/plugins/notificationstore/modules/broadcast/mail.html";
+    private static final long PERIOD = TimeUnit.HOURS.toMillis( 24 );
+
+    @Param( {
+            "10", "1000", "10000"
+    } )
+    private int _nbEvents;
+
+    private BroadcastMailRenderer _renderer;
+    private BroadcastEventCollector _collector;
+
+    /**
+     * Load the template and generate the events, all detailed and grouped
+     */
+    @Setup
+    public void setUp( )
+    {
+        BenchmarkContext.init( );
+        _renderer = new BroadcastMailRenderer( TEMPLATE_MAIL );
+        long lEnd = System.currentTimeMillis( );
+        _collector = new BroadcastEventCollector( 0, 0 );
+        _collector.acceptAll( SyntheticData.events( _nbEvents, 1, lEnd - PERIOD, lEnd ) );
+    }
+
+    /**
+     * Render the alert mail of a feed
+     * 
+     * @return the HTML content
+     */
+    @Benchmark
+    public String render( )
+    {
+        return _renderer.render( _collector, Locale.FRENCH );
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandServiceProvider;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark.BenchmarkContext;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark.StubDemandServiceProvider;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.benchmark.SyntheticData;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastMail;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the broadcast of a feed, without the databases : event search through a stub demand service provider, rendering, and building of the
+ * mails of the recipients
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class BroadcastPipelineBenchmark
+{
+    private static final String TEMPLATE_MAIL = "/admin/plugins/notificationstore/modules/broadcast/mail.html";
+    private static final String STATUS_FAILED = "FAILED";
+    private static final String SUBJECT = "GRU ESB notifications alerts - demand type : 1";
+    private static final String DEMAND_TYPE_ID = "1";
+    private static final int FREQUENCY = 24;
+    private static final long PERIOD = TimeUnit.HOURS.toMillis( FREQUENCY );
+
+    @Param( {
+            "100", "5000"
+    } )
+    private int _nbEvents;
+
+    @Param( {
+            "10", "1000"
+    } )
+    private int _nbRecipients;
+
+    private IDemandServiceProvider _storageService;
+    private BroadcastMailRenderer _renderer;
+    private List<String> _listRecipients;
+    private String _strBody;
+    private long _lStart;
+    private long _lEnd;
+
+    /**
+     * Create the stub provider, the renderer and the recipients
+     */
+    @Setup
+    public void setUp( )
+    {
+        BenchmarkContext.init( );
+        _lEnd = System.currentTimeMillis( );
+        _lStart = _lEnd - PERIOD;
+        _storageService = StubDemandServiceProvider.create( _nbEvents, _lStart, _lEnd );
+        _renderer = new BroadcastMailRenderer( TEMPLATE_MAIL );
+        _listRecipients = SyntheticData.recipients( _nbRecipients );
+        _strBody = _renderer.render( collect( ), Locale.FRENCH );
+    }
+
+    /**
+     * Broadcast a feed : search and grouping of the events, rendering, and mails of the recipients
+     * 
+     * @return the mails
+     */
+    @Benchmark
+    public List<BroadcastMail> broadcastFeed( )
+    {
+        String strBody = _renderer.render( collect( ), Locale.FRENCH );
+
+        return NotificationAlertBroadcastService.buildMails( 1, FREQUENCY, SUBJECT, strBody, _listRecipients );
+    }
+
+    /**
+     * Search the events of the feed, and group them all in detail
+     * 
+     * @return the collector of the events
+     */
+    private BroadcastEventCollector collect( )
+    {
+        List<NotificationEvent> listEvent = _storageService.findEventsByDateAndDemandTypeIdAndStatus( _lStart, _lEnd, DEMAND_TYPE_ID, STATUS_FAILED );
+        BroadcastEventCollector collector = new BroadcastEventCollector( 0, 0 );
+        collector.acceptAll( listEvent );
+
+        return collector;
+    }
+
+    /**
+     * Build the mails of the recipients from a rendered body (chunking and joining of the recipients)
+     * 
+     * @return the mails
+     */
+    @Benchmark
+    public List<BroadcastMail> buildMails( )
+    {
+        return NotificationAlertBroadcastService.buildMails( 1, FREQUENCY, SUBJECT, _strBody, _listRecipients );
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable broadcast feed : the subscribers of a demand type for a given frequency. The feed is identified by a key packing the demand type id and
+ * the frequency in a long.
+ */
+public final class BroadcastFeed
+{
+    private final int _nDemandTypeId;
+    private final int _nFrequency;
+    private final int [ ] _arraySubscriptionIds;
+    private final String [ ] _arrayRecipients;
+
+    /**
+     * Constructor
+     * 
+     * @param nDemandTypeId
+     *            the demand type id
+     * @param nFrequency
+     *            the frequency (in hours)
+     * @param arraySubscriptionIds
+     *            the ids of the subscriptions
+     * @param arrayRecipients
+     *            the mails of the subscriptions, in the same order as the ids
+     */
+    BroadcastFeed( int nDemandTypeId, int nFrequency, int [ ] arraySubscriptionIds, String [ ] arrayRecipients )
+    {
+        _nDemandTypeId = nDemandTypeId;
+        _nFrequency = nFrequency;
+        _arraySubscriptionIds = arraySubscriptionIds;
+        _arrayRecipients = arrayRecipients;
+    }
+
+    /**
+     * Get the key of a feed
+     * 
+     * @param nDemandTypeId
+     *            the demand type id
+     * @param nFrequency
+     *            the frequency
+     * @return the key
+     */
+    public static long getKey( int nDemandTypeId, int nFrequency )
+    {
+        return ( (long) nDemandTypeId << 32 ) | ( nFrequency & 0xFFFFFFFFL );
+    }
+
+    /**
+     * Returns the key of the feed
+     * 
+     * @return the key
+     */
+    public long getKey( )
+    {
+        return getKey( _nDemandTypeId, _nFrequency );
+    }
+
+    /**
+     * Returns the DemandTypeId
+     * 
+     * @return The DemandTypeId
+     */
+    public int getDemandTypeId( )
+    {
+        return _nDemandTypeId;
+    }
+
+    /**
+     * Returns the Frequency (in hours)
+     * 
+     * @return The Frequency
+     */
+    public int getFrequency( )
+    {
+        return _nFrequency;
+    }
+
+    /**
+     * Returns the mails of the subscribers. The array must not be modified.
+     * 
+     * @return the recipients
+     */
+    public String [ ] getRecipients( )
+    {
+        return _arrayRecipients;
+    }
+
+    /**
+     * Returns a copy of the feed with an additional subscription
+     * 
+     * @param nSubscriptionId
+     *            the subscription id
+     * @param strMail
+     *            the subscription mail
+     * @return the new feed
+     */
+    BroadcastFeed withSubscription( int nSubscriptionId, String strMail )
+    {
+        int nLength = _arraySubscriptionIds.length;
+        int [ ] arraySubscriptionIds = Arrays.copyOf( _arraySubscriptionIds, nLength + 1 );
+        String [ ] arrayRecipients = Arrays.copyOf( _arrayRecipients, nLength + 1 );
+        arraySubscriptionIds [nLength] = nSubscriptionId;
+        arrayRecipients [nLength] = strMail;
+
+        return new BroadcastFeed( _nDemandTypeId, _nFrequency, arraySubscriptionIds, arrayRecipients );
+    }
+
+    /**
+     * Returns a copy of the feed with additional subscriptions, the arrays being copied once
+     * 
+     * @param listSubscriptions
+     *            the subscriptions of the feed
+     * @return the new feed
+     */
+    BroadcastFeed withSubscriptions( List<Subscription> listSubscriptions )
+    {
+        int nLength = _arraySubscriptionIds.length;
+        int [ ] arraySubscriptionIds = Arrays.copyOf( _arraySubscriptionIds, nLength + listSubscriptions.size( ) );
+        String [ ] arrayRecipients = Arrays.copyOf( _arrayRecipients, nLength + listSubscriptions.size( ) );
+
+        for ( Subscription subscription : listSubscriptions )
+        {
+            arraySubscriptionIds [nLength] = subscription.getId( );
+            arrayRecipients [nLength] = subscription.getMail( );
+            nLength++;
+        }
+
+        return new BroadcastFeed( _nDemandTypeId, _nFrequency, arraySubscriptionIds, arrayRecipients );
+    }
+
+    /**
+     * Returns a copy of the feed without a subscription
+     * 
+     * @param nSubscriptionId
+     *            the subscription id
+     * @return the new feed, or null if the feed has no more subscription
+     */
+    BroadcastFeed withoutSubscription( int nSubscriptionId )
+    {
+        return withoutSubscriptions( Collections.singleton( nSubscriptionId ) );
+    }
+
+    /**
+     * Returns a copy of the feed without some subscriptions, the arrays being copied once
+     * 
+     * @param setSubscriptionIds
+     *            the subscription ids
+     * @return the new feed, or null if the feed has no more subscription
+     */
+    BroadcastFeed withoutSubscriptions( Set<Integer> setSubscriptionIds )
+    {
+        int nLength = _arraySubscriptionIds.length;
+        int [ ] arraySubscriptionIds = new int [ nLength];
+        String [ ] arrayRecipients = new String [ nLength];
+        int nNewLength = 0;
+
+        for ( int i = 0; i < nLength; i++ )
+        {
+            if ( !setSubscriptionIds.contains( _arraySubscriptionIds [i] ) )
+            {
+                arraySubscriptionIds [nNewLength] = _arraySubscriptionIds [i];
+                arrayRecipients [nNewLength] = _arrayRecipients [i];
+                nNewLength++;
+            }
+        }
+
+        if ( nNewLength == 0 )
+        {
+            return null;
+        }
+
+        return new BroadcastFeed( _nDemandTypeId, _nFrequency, Arrays.copyOf( arraySubscriptionIds, nNewLength ), Arrays.copyOf( arrayRecipients, nNewLength ) );
+    }
+}
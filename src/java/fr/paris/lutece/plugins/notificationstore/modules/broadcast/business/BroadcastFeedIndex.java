@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the broadcast feeds, by feed key. The index is built once from the subscription list, then maintained incrementally when subscriptions
+ * are created, updated or removed. The feeds are immutable, so the reads do not need any lock.
+ */
+public final class BroadcastFeedIndex
+{
+    private final Map<Long, BroadcastFeed> _mapFeeds = new ConcurrentHashMap<>( );
+    private final Map<Integer, Long> _mapSubscriptionFeedKeys = new HashMap<>( );
+
+    /**
+     * Build the index of a subscription list
+     * 
+     * @param listSubscriptions
+     *            the subscriptions
+     */
+    public BroadcastFeedIndex( Collection<Subscription> listSubscriptions )
+    {
+        addAll( listSubscriptions );
+    }
+
+    /**
+     * Returns all the feeds
+     * 
+     * @return the feeds
+     */
+    public Collection<BroadcastFeed> getFeeds( )
+    {
+        return Collections.unmodifiableCollection( _mapFeeds.values( ) );
+    }
+
+    /**
+     * Returns a feed
+     * 
+     * @param lKey
+     *            the feed key
+     * @return the feed, or null if there is no subscription for this demand type and frequency
+     */
+    public BroadcastFeed getFeed( long lKey )
+    {
+        return _mapFeeds.get( lKey );
+    }
+
+    /**
+     * Returns true if there is no feed
+     * 
+     * @return true if the index is empty
+     */
+    public boolean isEmpty( )
+    {
+        return _mapFeeds.isEmpty( );
+    }
+
+    /**
+     * Add a subscription to its feed. A subscription already indexed is moved to its new feed.
+     * 
+     * @param subscription
+     *            the subscription
+     */
+    synchronized void add( Subscription subscription )
+    {
+        remove( subscription.getId( ) );
+
+        long lKey = BroadcastFeed.getKey( subscription.getDemandTypeId( ), subscription.getFrequency( ) );
+        BroadcastFeed feed = _mapFeeds.get( lKey );
+
+        if ( feed == null )
+        {
+            feed = new BroadcastFeed( subscription.getDemandTypeId( ), subscription.getFrequency( ), new int [ ] {
+                    subscription.getId( )
+            }, new String [ ] {
+                    subscription.getMail( )
+            } );
+        }
+        else
+        {
+            feed = feed.withSubscription( subscription.getId( ), subscription.getMail( ) );
+        }
+
+        _mapFeeds.put( lKey, feed );
+        _mapSubscriptionFeedKeys.put( subscription.getId( ), lKey );
+    }
+
+    /**
+     * Add subscriptions to their feeds. The subscriptions are grouped by feed so that each feed is copied once, whatever the number of subscriptions
+     * added to it. The subscriptions already indexed are moved to their new feed.
+     * 
+     * @param collectionSubscriptions
+     *            the subscriptions
+     */
+    synchronized void addAll( Collection<Subscription> collectionSubscriptions )
+    {
+        // the last version of a subscription listed twice wins
+        Map<Integer, Subscription> mapSubscriptions = new LinkedHashMap<>( );
+        for ( Subscription subscription : collectionSubscriptions )
+        {
+            mapSubscriptions.put( subscription.getId( ), subscription );
+        }
+
+        removeAll( mapSubscriptions.keySet( ) );
+
+        Map<Long, List<Subscription>> mapSubscriptionsByFeed = new HashMap<>( );
+        for ( Subscription subscription : mapSubscriptions.values( ) )
+        {
+            long lKey = BroadcastFeed.getKey( subscription.getDemandTypeId( ), subscription.getFrequency( ) );
+            mapSubscriptionsByFeed.computeIfAbsent( lKey, k -> new ArrayList<>( ) ).add( subscription );
+            _mapSubscriptionFeedKeys.put( subscription.getId( ), lKey );
+        }
+
+        for ( Map.Entry<Long, List<Subscription>> entry : mapSubscriptionsByFeed.entrySet( ) )
+        {
+            BroadcastFeed feed = _mapFeeds.get( entry.getKey( ) );
+
+            if ( feed == null )
+            {
+                Subscription first = entry.getValue( ).get( 0 );
+                feed = new BroadcastFeed( first.getDemandTypeId( ), first.getFrequency( ), new int [ 0 ], new String [ 0 ] );
+            }
+
+            _mapFeeds.put( entry.getKey( ), feed.withSubscriptions( entry.getValue( ) ) );
+        }
+    }
+
+    /**
+     * Move a subscription to its new feed
+     * 
+     * @param subscription
+     *            the subscription
+     */
+    synchronized void update( Subscription subscription )
+    {
+        add( subscription );
+    }
+
+    /**
+     * Remove a subscription from its feed
+     * 
+     * @param nSubscriptionId
+     *            the subscription id
+     */
+    synchronized void remove( int nSubscriptionId )
+    {
+        Long lKey = _mapSubscriptionFeedKeys.remove( nSubscriptionId );
+
+        if ( lKey != null )
+        {
+            BroadcastFeed feed = _mapFeeds.get( lKey ).withoutSubscription( nSubscriptionId );
+
+            if ( feed == null )
+            {
+                _mapFeeds.remove( lKey );
+            }
+            else
+            {
+                _mapFeeds.put( lKey, feed );
+            }
+        }
+    }
+
+    /**
+     * Remove subscriptions from their feeds, each feed being copied once
+     * 
+     * @param collectionSubscriptionIds
+     *            the subscription ids
+     */
+    synchronized void removeAll( Collection<Integer> collectionSubscriptionIds )
+    {
+        Map<Long, Set<Integer>> mapSubscriptionIdsByFeed = new HashMap<>( );
+        for ( Integer nSubscriptionId : collectionSubscriptionIds )
+        {
+            Long lKey = _mapSubscriptionFeedKeys.remove( nSubscriptionId );
+
+            if ( lKey != null )
+            {
+                mapSubscriptionIdsByFeed.computeIfAbsent( lKey, k -> new HashSet<>( ) ).add( nSubscriptionId );
+            }
+        }
+
+        for ( Map.Entry<Long, Set<Integer>> entry : mapSubscriptionIdsByFeed.entrySet( ) )
+        {
+            BroadcastFeed feed = _mapFeeds.get( entry.getKey( ) ).withoutSubscriptions( entry.getValue( ) );
+
+            if ( feed == null )
+            {
+                _mapFeeds.remove( entry.getKey( ) );
+            }
+            else
+            {
+                _mapFeeds.put( entry.getKey( ), feed );
+            }
+        }
+    }
+}
\ No newline at end of file
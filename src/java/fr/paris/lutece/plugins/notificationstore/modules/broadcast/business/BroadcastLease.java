@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import java.io.Serializable;
+
+/**
+ * This is the business class for the object BroadcastLease : the node of the cluster which broadcasts the feeds of a demand type, until the expiry
+ * of its lease
+ */
+public class BroadcastLease implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    // Variables declarations
+    private int _nDemandTypeId;
+
+    private String _strNodeId;
+
+    private long _lExpiryDate;
+
+    /**
+     * Returns the DemandTypeId
+     * 
+     * @return The DemandTypeId
+     */
+    public int getDemandTypeId( )
+    {
+        return _nDemandTypeId;
+    }
+
+    /**
+     * Sets the DemandTypeId
+     * 
+     * @param nDemandTypeId
+     *            The DemandTypeId
+     */
+    public void setDemandTypeId( int nDemandTypeId )
+    {
+        _nDemandTypeId = nDemandTypeId;
+    }
+
+    /**
+     * Returns the id of the node holding the lease
+     * 
+     * @return The NodeId
+     */
+    public String getNodeId( )
+    {
+        return _strNodeId;
+    }
+
+    /**
+     * Sets the id of the node holding the lease
+     * 
+     * @param strNodeId
+     *            The NodeId
+     */
+    public void setNodeId( String strNodeId )
+    {
+        _strNodeId = strNodeId;
+    }
+
+    /**
+     * Returns the date (in ms) after which the lease can be claimed by another node
+     * 
+     * @return The ExpiryDate
+     */
+    public long getExpiryDate( )
+    {
+        return _lExpiryDate;
+    }
+
+    /**
+     * Sets the date (in ms) after which the lease can be claimed by another node
+     * 
+     * @param lExpiryDate
+     *            The ExpiryDate
+     */
+    public void setExpiryDate( long lExpiryDate )
+    {
+        _lExpiryDate = lExpiryDate;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for BroadcastLease objects
+ */
+public final class BroadcastLeaseDAO implements IBroadcastLeaseDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT = "SELECT demand_type_id, node_id, expiry_date FROM notificationstore_broadcast_lease WHERE demand_type_id = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_broadcast_lease ( demand_type_id, node_id, expiry_date ) VALUES ( ?, ?, ? ) ";
+    private static final String SQL_QUERY_UPDATE_IF_AVAILABLE = "UPDATE notificationstore_broadcast_lease SET node_id = ?, expiry_date = ? WHERE demand_type_id = ? AND ( node_id = ? OR expiry_date < ? )";
+    private static final String SQL_QUERY_RELEASE = "UPDATE notificationstore_broadcast_lease SET expiry_date = 0 WHERE demand_type_id = ? AND node_id = ?";
+    private static final String SQL_QUERY_SELECTALL = "SELECT demand_type_id, node_id, expiry_date FROM notificationstore_broadcast_lease";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( BroadcastLease lease, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, lease.getDemandTypeId( ) );
+            daoUtil.setString( nIndex++, lease.getNodeId( ) );
+            daoUtil.setLong( nIndex, lease.getExpiryDate( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void storeIfAvailable( BroadcastLease lease, long lDate, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_IF_AVAILABLE, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, lease.getNodeId( ) );
+            daoUtil.setLong( nIndex++, lease.getExpiryDate( ) );
+            daoUtil.setInt( nIndex++, lease.getDemandTypeId( ) );
+            daoUtil.setString( nIndex++, lease.getNodeId( ) );
+            daoUtil.setLong( nIndex, lDate );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void release( int nDemandTypeId, String strNodeId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE, plugin ) )
+        {
+            daoUtil.setInt( 1, nDemandTypeId );
+            daoUtil.setString( 2, strNodeId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public BroadcastLease load( int nDemandTypeId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setInt( 1, nDemandTypeId );
+            daoUtil.executeQuery( );
+            BroadcastLease lease = null;
+
+            if ( daoUtil.next( ) )
+            {
+                lease = dataToObject( daoUtil );
+            }
+
+            return lease;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<BroadcastLease> selectLeasesList( Plugin plugin )
+    {
+        List<BroadcastLease> leaseList = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECTALL, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                leaseList.add( dataToObject( daoUtil ) );
+            }
+
+            return leaseList;
+        }
+    }
+
+    /**
+     * Build a lease from the current row
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @return the lease
+     */
+    private BroadcastLease dataToObject( DAOUtil daoUtil )
+    {
+        BroadcastLease lease = new BroadcastLease( );
+        int nIndex = 1;
+
+        lease.setDemandTypeId( daoUtil.getInt( nIndex++ ) );
+        lease.setNodeId( daoUtil.getString( nIndex++ ) );
+        lease.setExpiryDate( daoUtil.getLong( nIndex ) );
+
+        return lease;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
+
+import java.util.List;
+
+/**
+ * This class provides instances management methods (claim, release, ...) for BroadcastLease objects
+ */
+public final class BroadcastLeaseHome
+{
+    // Static variable pointed at the DAO instance
+    private static IBroadcastLeaseDAO _dao = SpringContextService.getBean( "notificationstore-broadcast.broadcastLeaseDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "notificationstore-broadcast" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private BroadcastLeaseHome( )
+    {
+    }
+
+    /**
+     * Claim the lease of a demand type for a node : the lease is granted if it is free, expired, or already held by the node. The row is written by a
+     * single conditional statement, then read back, so that only one node can win a concurrent claim
+     * 
+     * @param nDemandTypeId
+     *            The demand type id
+     * @param strNodeId
+     *            The node id
+     * @param lNow
+     *            The current date
+     * @param lExpiryDate
+     *            The expiry date of the claimed lease
+     * @return true if the node holds the lease until the expiry date
+     */
+    public static boolean claim( int nDemandTypeId, String strNodeId, long lNow, long lExpiryDate )
+    {
+        BroadcastLease lease = new BroadcastLease( );
+        lease.setDemandTypeId( nDemandTypeId );
+        lease.setNodeId( strNodeId );
+        lease.setExpiryDate( lExpiryDate );
+
+        if ( _dao.load( nDemandTypeId, _plugin ) == null )
+        {
+            try
+            {
+                _dao.insert( lease, _plugin );
+                return true;
+            }
+            catch( AppException e )
+            {
+                // the row has just been created by another node
+            }
+        }
+
+        _dao.storeIfAvailable( lease, lNow, _plugin );
+
+        BroadcastLease leaseStored = _dao.load( nDemandTypeId, _plugin );
+        return leaseStored != null && strNodeId.equals( leaseStored.getNodeId( ) ) && leaseStored.getExpiryDate( ) == lExpiryDate;
+    }
+
+    /**
+     * Release the lease of a demand type, if it is held by the node
+     * 
+     * @param nDemandTypeId
+     *            The demand type id
+     * @param strNodeId
+     *            The node id
+     */
+    public static void release( int nDemandTypeId, String strNodeId )
+    {
+        _dao.release( nDemandTypeId, strNodeId, _plugin );
+    }
+
+    /**
+     * Returns the lease of a demand type
+     * 
+     * @param nDemandTypeId
+     *            The demand type id
+     * @return an instance of BroadcastLease, or null if the demand type has never been claimed
+     */
+    public static BroadcastLease findByPrimaryKey( int nDemandTypeId )
+    {
+        return _dao.load( nDemandTypeId, _plugin );
+    }
+
+    /**
+     * Load the data of all the lease objects and returns them as a list
+     * 
+     * @return the list which contains the data of all the lease objects
+     */
+    public static List<BroadcastLease> getLeasesList( )
+    {
+        return _dao.selectLeasesList( _plugin );
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import java.io.Serializable;
+
+/**
+ * This is the business class for the object BroadcastMail : a rendered alert mail waiting in the outbound queue
+ */
+public class BroadcastMail implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** The mail is waiting to be sent, possibly after failed attempts */
+    public static final int STATUS_PENDING = 0;
+    /** The mail is being sent; it is sent again if it is still in this status after the sending timeout */
+    public static final int STATUS_SENDING = 1;
+    /** All the sending attempts failed : the mail is kept for investigation */
+    public static final int STATUS_DEAD = 2;
+    /** The mail has been sent : it is never sent again, and is removed from the queue by the next run of the sender */
+    public static final int STATUS_SENT = 3;
+
+    // Variables declarations
+    private int _nId;
+
+    private int _nDemandTypeId;
+
+    private int _nFrequency;
+
+    private String _strRecipients;
+
+    private int _nIdBody;
+
+    private String _strSubject;
+
+    private String _strBody;
+
+    private int _nStatus;
+
+    private int _nNbAttempts;
+
+    private long _lNextAttemptDate;
+
+    private long _lCreationDate;
+
+    private String _strLastError;
+
+    /**
+     * Returns the Id
+     * 
+     * @return The Id
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    /**
+     * Sets the Id
+     * 
+     * @param nId
+     *            The Id
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * Returns the DemandTypeId
+     * 
+     * @return The demand type id of the feed
+     */
+    public int getDemandTypeId( )
+    {
+        return _nDemandTypeId;
+    }
+
+    /**
+     * Sets the DemandTypeId
+     * 
+     * @param nDemandTypeId
+     *            The demand type id of the feed
+     */
+    public void setDemandTypeId( int nDemandTypeId )
+    {
+        _nDemandTypeId = nDemandTypeId;
+    }
+
+    /**
+     * Returns the Frequency
+     * 
+     * @return The frequency of the feed (in hours)
+     */
+    public int getFrequency( )
+    {
+        return _nFrequency;
+    }
+
+    /**
+     * Sets the Frequency
+     * 
+     * @param nFrequency
+     *            The frequency of the feed (in hours)
+     */
+    public void setFrequency( int nFrequency )
+    {
+        _nFrequency = nFrequency;
+    }
+
+    /**
+     * Returns the Recipients
+     * 
+     * @return The comma separated mails of the recipients
+     */
+    public String getRecipients( )
+    {
+        return _strRecipients;
+    }
+
+    /**
+     * Sets the Recipients
+     * 
+     * @param strRecipients
+     *            The comma separated mails of the recipients
+     */
+    public void setRecipients( String strRecipients )
+    {
+        _strRecipients = strRecipients;
+    }
+
+    /**
+     * Returns the IdBody
+     * 
+     * @return The id of the subject and body, shared by the mails of the chunks of an alert
+     */
+    public int getIdBody( )
+    {
+        return _nIdBody;
+    }
+
+    /**
+     * Sets the IdBody
+     * 
+     * @param nIdBody
+     *            The id of the subject and body, shared by the mails of the chunks of an alert
+     */
+    public void setIdBody( int nIdBody )
+    {
+        _nIdBody = nIdBody;
+    }
+
+    /**
+     * Returns the Subject
+     * 
+     * @return The subject
+     */
+    public String getSubject( )
+    {
+        return _strSubject;
+    }
+
+    /**
+     * Sets the Subject
+     * 
+     * @param strSubject
+     *            The subject
+     */
+    public void setSubject( String strSubject )
+    {
+        _strSubject = strSubject;
+    }
+
+    /**
+     * Returns the Body
+     * 
+     * @return The HTML body
+     */
+    public String getBody( )
+    {
+        return _strBody;
+    }
+
+    /**
+     * Sets the Body
+     * 
+     * @param strBody
+     *            The HTML body
+     */
+    public void setBody( String strBody )
+    {
+        _strBody = strBody;
+    }
+
+    /**
+     * Returns the Status
+     * 
+     * @return The status (pending, sending or dead)
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Sets the Status
+     * 
+     * @param nStatus
+     *            The status (pending, sending or dead)
+     */
+    public void setStatus( int nStatus )
+    {
+        _nStatus = nStatus;
+    }
+
+    /**
+     * Returns the NbAttempts
+     * 
+     * @return The number of failed sending attempts
+     */
+    public int getNbAttempts( )
+    {
+        return _nNbAttempts;
+    }
+
+    /**
+     * Sets the NbAttempts
+     * 
+     * @param nNbAttempts
+     *            The number of failed sending attempts
+     */
+    public void setNbAttempts( int nNbAttempts )
+    {
+        _nNbAttempts = nNbAttempts;
+    }
+
+    /**
+     * Returns the NextAttemptDate
+     * 
+     * @return The date of the next sending attempt
+     */
+    public long getNextAttemptDate( )
+    {
+        return _lNextAttemptDate;
+    }
+
+    /**
+     * Sets the NextAttemptDate
+     * 
+     * @param lNextAttemptDate
+     *            The date of the next sending attempt
+     */
+    public void setNextAttemptDate( long lNextAttemptDate )
+    {
+        _lNextAttemptDate = lNextAttemptDate;
+    }
+
+    /**
+     * Returns the CreationDate
+     * 
+     * @return The date the mail was queued
+     */
+    public long getCreationDate( )
+    {
+        return _lCreationDate;
+    }
+
+    /**
+     * Sets the CreationDate
+     * 
+     * @param lCreationDate
+     *            The date the mail was queued
+     */
+    public void setCreationDate( long lCreationDate )
+    {
+        _lCreationDate = lCreationDate;
+    }
+
+    /**
+     * Returns the LastError
+     * 
+     * @return The error of the last sending attempt
+     */
+    public String getLastError( )
+    {
+        return _strLastError;
+    }
+
+    /**
+     * Sets the LastError
+     * 
+     * @param strLastError
+     *            The error of the last sending attempt
+     */
+    public void setLastError( String strLastError )
+    {
+        _strLastError = strLastError;
+    }
+}
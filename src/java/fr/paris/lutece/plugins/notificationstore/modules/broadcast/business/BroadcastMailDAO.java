@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for BroadcastMail objects
+ */
+public final class BroadcastMailDAO implements IBroadcastMailDAO
+{
+    // Constants
+    private static final String SQL_COLUMNS = "m.id_mail, m.demand_type_id, m.frequency, m.recipients, m.id_body, b.subject, b.body, m.status, m.nb_attempts, m.next_attempt_date, m.creation_date, m.last_error";
+    private static final String SQL_FROM = " FROM notificationstore_broadcast_mail m INNER JOIN notificationstore_broadcast_mail_body b ON b.id_body = m.id_body";
+    private static final String SQL_QUERY_SELECT = "SELECT " + SQL_COLUMNS + SQL_FROM + " WHERE m.id_mail = ?";
+    private static final String SQL_QUERY_INSERT_BODY = "INSERT INTO notificationstore_broadcast_mail_body ( subject, body ) VALUES ( ?, ? ) ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_broadcast_mail ( demand_type_id, frequency, recipients, id_body, status, nb_attempts, next_attempt_date, creation_date, last_error ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT_ID_BODY = "SELECT id_body FROM notificationstore_broadcast_mail WHERE id_mail = ?";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_broadcast_mail WHERE id_mail = ? ";
+    private static final String SQL_QUERY_DELETE_UNUSED_BODY = "DELETE FROM notificationstore_broadcast_mail_body WHERE id_body = ? AND NOT EXISTS ( SELECT id_mail FROM notificationstore_broadcast_mail WHERE id_body = ? )";
+    private static final String SQL_QUERY_DELETE_BODIES_BY_STATUS = "DELETE FROM notificationstore_broadcast_mail_body WHERE id_body IN ( SELECT id_body FROM notificationstore_broadcast_mail WHERE status = ? ) AND id_body NOT IN ( SELECT id_body FROM notificationstore_broadcast_mail WHERE status <> ? )";
+    private static final String SQL_QUERY_DELETE_BY_STATUS = "DELETE FROM notificationstore_broadcast_mail WHERE status = ? ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE notificationstore_broadcast_mail SET status = ?, nb_attempts = ?, next_attempt_date = ?, last_error = ? WHERE id_mail = ?";
+    private static final String SQL_QUERY_CLAIM = "UPDATE notificationstore_broadcast_mail SET status = ?, next_attempt_date = ? WHERE id_mail = ? AND status = ? AND next_attempt_date = ?";
+    private static final String SQL_QUERY_SELECT_DUE = "SELECT " + SQL_COLUMNS + SQL_FROM
+            + " WHERE m.status IN ( ?, ? ) AND m.next_attempt_date <= ? ORDER BY m.next_attempt_date LIMIT ?";
+    private static final String SQL_QUERY_COUNT_BY_STATUS = "SELECT COUNT(*) FROM notificationstore_broadcast_mail WHERE status = ?";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertBody( BroadcastMail mail, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_BODY, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            daoUtil.setString( 1, mail.getSubject( ) );
+            daoUtil.setString( 2, mail.getBody( ) );
+
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                mail.setIdBody( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( BroadcastMail mail, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, mail.getDemandTypeId( ) );
+            daoUtil.setInt( nIndex++, mail.getFrequency( ) );
+            daoUtil.setString( nIndex++, mail.getRecipients( ) );
+            daoUtil.setInt( nIndex++, mail.getIdBody( ) );
+            daoUtil.setInt( nIndex++, mail.getStatus( ) );
+            daoUtil.setInt( nIndex++, mail.getNbAttempts( ) );
+            daoUtil.setLong( nIndex++, mail.getNextAttemptDate( ) );
+            daoUtil.setLong( nIndex++, mail.getCreationDate( ) );
+            daoUtil.setString( nIndex, mail.getLastError( ) );
+
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                mail.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public BroadcastMail load( int nKey, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setInt( 1, nKey );
+            daoUtil.executeQuery( );
+            BroadcastMail mail = null;
+
+            if ( daoUtil.next( ) )
+            {
+                mail = dataToObject( daoUtil );
+            }
+
+            return mail;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void delete( int nKey, Plugin plugin )
+    {
+        int nIdBody = 0;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ID_BODY, plugin ) )
+        {
+            daoUtil.setInt( 1, nKey );
+            daoUtil.executeQuery( );
+
+            if ( daoUtil.next( ) )
+            {
+                nIdBody = daoUtil.getInt( 1 );
+            }
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nKey );
+            daoUtil.executeUpdate( );
+        }
+
+        // the body is shared by the chunks of the alert : it is removed with the last one
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_UNUSED_BODY, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdBody );
+            daoUtil.setInt( 2, nIdBody );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void deleteByStatus( int nStatus, Plugin plugin )
+    {
+        // the bodies are removed first : a body is removed once all the records referencing it have the status
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BODIES_BY_STATUS, plugin ) )
+        {
+            daoUtil.setInt( 1, nStatus );
+            daoUtil.setInt( 2, nStatus );
+            daoUtil.executeUpdate( );
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_STATUS, plugin ) )
+        {
+            daoUtil.setInt( 1, nStatus );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void store( BroadcastMail mail, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        {
+            int nIndex = 1;
+
+            daoUtil.setInt( nIndex++, mail.getStatus( ) );
+            daoUtil.setInt( nIndex++, mail.getNbAttempts( ) );
+            daoUtil.setLong( nIndex++, mail.getNextAttemptDate( ) );
+            daoUtil.setString( nIndex++, mail.getLastError( ) );
+            daoUtil.setInt( nIndex, mail.getId( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean claim( BroadcastMail mail, int nStatus, long lNextAttemptDate, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_CLAIM, plugin ) )
+        {
+            int nIndex = 1;
+
+            daoUtil.setInt( nIndex++, nStatus );
+            daoUtil.setLong( nIndex++, lNextAttemptDate );
+            daoUtil.setInt( nIndex++, mail.getId( ) );
+            daoUtil.setInt( nIndex++, mail.getStatus( ) );
+            daoUtil.setLong( nIndex, mail.getNextAttemptDate( ) );
+
+            return daoUtil.executeUpdate( ) > 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<BroadcastMail> selectDueMailsList( long lDate, int nLimit, Plugin plugin )
+    {
+        List<BroadcastMail> mailList = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_DUE, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, BroadcastMail.STATUS_PENDING );
+            daoUtil.setInt( nIndex++, BroadcastMail.STATUS_SENDING );
+            daoUtil.setLong( nIndex++, lDate );
+            daoUtil.setInt( nIndex, nLimit );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                mailList.add( dataToObject( daoUtil ) );
+            }
+
+            return mailList;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countMails( int nStatus, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT_BY_STATUS, plugin ) )
+        {
+            daoUtil.setInt( 1, nStatus );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * Build a mail from the current row
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @return the mail
+     */
+    private BroadcastMail dataToObject( DAOUtil daoUtil )
+    {
+        BroadcastMail mail = new BroadcastMail( );
+        int nIndex = 1;
+
+        mail.setId( daoUtil.getInt( nIndex++ ) );
+        mail.setDemandTypeId( daoUtil.getInt( nIndex++ ) );
+        mail.setFrequency( daoUtil.getInt( nIndex++ ) );
+        mail.setRecipients( daoUtil.getString( nIndex++ ) );
+        mail.setIdBody( daoUtil.getInt( nIndex++ ) );
+        mail.setSubject( daoUtil.getString( nIndex++ ) );
+        mail.setBody( daoUtil.getString( nIndex++ ) );
+        mail.setStatus( daoUtil.getInt( nIndex++ ) );
+        mail.setNbAttempts( daoUtil.getInt( nIndex++ ) );
+        mail.setNextAttemptDate( daoUtil.getLong( nIndex++ ) );
+        mail.setCreationDate( daoUtil.getLong( nIndex++ ) );
+        mail.setLastError( daoUtil.getString( nIndex ) );
+
+        return mail;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.List;
+
+/**
+ * This class provides instances management methods (create, find, ...) for BroadcastMail objects
+ */
+public final class BroadcastMailHome
+{
+    // Static variable pointed at the DAO instance
+    private static IBroadcastMailDAO _dao = SpringContextService.getBean( "notificationstore-broadcast.broadcastMailDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "notificationstore-broadcast" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private BroadcastMailHome( )
+    {
+    }
+
+    /**
+     * Create an instance of the mail class : the mail is queued. Its subject and body are stored first, unless the mail already references a
+     * stored body.
+     * 
+     * @param mail
+     *            The instance of the BroadcastMail which contains the informations to store
+     * @return The instance of mail which has been created with its primary key.
+     */
+    public static BroadcastMail create( BroadcastMail mail )
+    {
+        if ( mail.getIdBody( ) == 0 )
+        {
+            _dao.insertBody( mail, _plugin );
+        }
+        _dao.insert( mail, _plugin );
+
+        return mail;
+    }
+
+    /**
+     * Create the mails of the chunks of alerts : the consecutive mails having the same subject and body reference the same stored body
+     * 
+     * @param listMails
+     *            the mails to queue
+     */
+    public static void createAll( List<BroadcastMail> listMails )
+    {
+        BroadcastMail previousMail = null;
+        for ( BroadcastMail mail : listMails )
+        {
+            if ( previousMail != null && previousMail.getBody( ).equals( mail.getBody( ) ) && previousMail.getSubject( ).equals( mail.getSubject( ) ) )
+            {
+                mail.setIdBody( previousMail.getIdBody( ) );
+            }
+            create( mail );
+            previousMail = mail;
+        }
+    }
+
+    /**
+     * Update the sending state of the mail which is specified in parameter
+     * 
+     * @param mail
+     *            The instance of the BroadcastMail which contains the data to store
+     * @return The instance of the mail which has been updated
+     */
+    public static BroadcastMail update( BroadcastMail mail )
+    {
+        _dao.store( mail, _plugin );
+
+        return mail;
+    }
+
+    /**
+     * Claim a mail for its sending : the mail is marked as being sent, unless another node has claimed or sent it since it has been loaded
+     * 
+     * @param mail
+     *            the mail, as loaded from the queue
+     * @param lNextAttemptDate
+     *            the date after which the mail is sent again if it is still being sent
+     * @return true if the mail is claimed by the caller, false otherwise
+     */
+    public static boolean claim( BroadcastMail mail, long lNextAttemptDate )
+    {
+        if ( !_dao.claim( mail, BroadcastMail.STATUS_SENDING, lNextAttemptDate, _plugin ) )
+        {
+            return false;
+        }
+
+        mail.setStatus( BroadcastMail.STATUS_SENDING );
+        mail.setNextAttemptDate( lNextAttemptDate );
+
+        return true;
+    }
+
+    /**
+     * Remove the mail whose identifier is specified in parameter
+     * 
+     * @param nKey
+     *            The mail Id
+     */
+    public static void remove( int nKey )
+    {
+        _dao.delete( nKey, _plugin );
+    }
+
+    /**
+     * Remove the mails which have been sent
+     */
+    public static void removeSentMails( )
+    {
+        _dao.deleteByStatus( BroadcastMail.STATUS_SENT, _plugin );
+    }
+
+    /**
+     * Returns an instance of a mail whose identifier is specified in parameter
+     * 
+     * @param nKey
+     *            The mail primary key
+     * @return an instance of BroadcastMail
+     */
+    public static BroadcastMail findByPrimaryKey( int nKey )
+    {
+        return _dao.load( nKey, _plugin );
+    }
+
+    /**
+     * Load the mails to send, oldest first
+     * 
+     * @param lDate
+     *            the current date
+     * @param nLimit
+     *            the maximum number of mails to load
+     * @return the list of the mails to send
+     */
+    public static List<BroadcastMail> getDueMailsList( long lDate, int nLimit )
+    {
+        return _dao.selectDueMailsList( lDate, nLimit, _plugin );
+    }
+
+    /**
+     * Count the mails with a status
+     * 
+     * @param nStatus
+     *            the status
+     * @return the number of mails with the status
+     */
+    public static int countMails( int nStatus )
+    {
+        return _dao.countMails( nStatus, _plugin );
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * This class provides Data Access methods for the events already broadcast
+ */
+public final class BroadcastSentEventDAO implements IBroadcastSentEventDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_broadcast_sent_event ( recipient_hash, event_hash, sent_date ) VALUES ( ?, ?, ? ) ";
+    private static final String SQL_QUERY_DELETE_BEFORE = "DELETE FROM notificationstore_broadcast_sent_event WHERE sent_date < ? ";
+    private static final String SQL_QUERY_SELECT_HASHES = "SELECT event_hash FROM notificationstore_broadcast_sent_event WHERE recipient_hash = ? AND event_hash IN ( ";
+    private static final String SQL_QUERY_SELECTALL = "SELECT recipient_hash, event_hash FROM notificationstore_broadcast_sent_event";
+    private static final int IN_CLAUSE_MAX_SIZE = 500;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertAll( long lRecipientHash, Collection<Long> collectionEventHashes, long lSentDate, Plugin plugin )
+    {
+        if ( collectionEventHashes.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            for ( Long lEventHash : collectionEventHashes )
+            {
+                int nIndex = 1;
+                daoUtil.setLong( nIndex++, lRecipientHash );
+                daoUtil.setLong( nIndex++, lEventHash );
+                daoUtil.setLong( nIndex, lSentDate );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void deleteBefore( long lDate, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BEFORE, plugin ) )
+        {
+            daoUtil.setLong( 1, lDate );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Set<Long> selectSentEventHashes( long lRecipientHash, Collection<Long> collectionEventHashes, Plugin plugin )
+    {
+        Set<Long> setSentHashes = new HashSet<>( );
+        List<Long> listHashes = new ArrayList<>( collectionEventHashes );
+
+        for ( int nFrom = 0; nFrom < listHashes.size( ); nFrom += IN_CLAUSE_MAX_SIZE )
+        {
+            List<Long> listChunk = listHashes.subList( nFrom, Math.min( nFrom + IN_CLAUSE_MAX_SIZE, listHashes.size( ) ) );
+
+            StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_HASHES );
+            for ( int i = 0; i < listChunk.size( ); i++ )
+            {
+                sbSql.append( ( i == 0 ) ? "?" : ", ?" );
+            }
+            sbSql.append( " )" );
+
+            try ( DAOUtil daoUtil = new DAOUtil( sbSql.toString( ), plugin ) )
+            {
+                int nIndex = 1;
+                daoUtil.setLong( nIndex++, lRecipientHash );
+                for ( Long lEventHash : listChunk )
+                {
+                    daoUtil.setLong( nIndex++, lEventHash );
+                }
+                daoUtil.executeQuery( );
+
+                while ( daoUtil.next( ) )
+                {
+                    setSentHashes.add( daoUtil.getLong( 1 ) );
+                }
+            }
+        }
+
+        return setSentHashes;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void selectSentEvents( BiConsumer<Long, Long> consumer, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECTALL, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                consumer.accept( daoUtil.getLong( 1 ), daoUtil.getLong( 2 ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * This class provides instances management methods for the events already broadcast to a recipient
+ */
+public final class BroadcastSentEventHome
+{
+    // Static variable pointed at the DAO instance
+    private static IBroadcastSentEventDAO _dao = SpringContextService.getBean( "notificationstore-broadcast.broadcastSentEventDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "notificationstore-broadcast" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private BroadcastSentEventHome( )
+    {
+    }
+
+    /**
+     * Record events as broadcast to a recipient
+     * 
+     * @param lRecipientHash
+     *            the hash of the recipient
+     * @param collectionEventHashes
+     *            the hashes of the events
+     * @param lSentDate
+     *            the date of the broadcast
+     */
+    public static void createAll( long lRecipientHash, Collection<Long> collectionEventHashes, long lSentDate )
+    {
+        _dao.insertAll( lRecipientHash, collectionEventHashes, lSentDate, _plugin );
+    }
+
+    /**
+     * Remove the records older than a date
+     * 
+     * @param lDate
+     *            the date
+     */
+    public static void removeBefore( long lDate )
+    {
+        _dao.deleteBefore( lDate, _plugin );
+    }
+
+    /**
+     * Select, among some events, the ones already broadcast to a recipient
+     * 
+     * @param lRecipientHash
+     *            the hash of the recipient
+     * @param collectionEventHashes
+     *            the hashes of the events
+     * @return the hashes of the events already broadcast to the recipient
+     */
+    public static Set<Long> findSentEventHashes( long lRecipientHash, Collection<Long> collectionEventHashes )
+    {
+        return _dao.selectSentEventHashes( lRecipientHash, collectionEventHashes, _plugin );
+    }
+
+    /**
+     * Pass all the records to a consumer as they are read
+     * 
+     * @param consumer
+     *            the consumer of the recipient hash and event hash of each record
+     */
+    public static void processSentEvents( BiConsumer<Long, Long> consumer )
+    {
+        _dao.selectSentEvents( consumer, _plugin );
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import java.io.Serializable;
+
+/**
+ * This is the business class for the object BroadcastTableVersion : a counter of the writes to a table, shared by the nodes of the cluster, which
+ * tells the clients of the table whether its content has changed
+ */
+public class BroadcastTableVersion implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    // Variables declarations
+    private String _strTableName;
+
+    private long _lVersion;
+
+    private long _lDateUpdate;
+
+    /**
+     * Returns the TableName
+     * 
+     * @return The TableName
+     */
+    public String getTableName( )
+    {
+        return _strTableName;
+    }
+
+    /**
+     * Sets the TableName
+     * 
+     * @param strTableName
+     *            The TableName
+     */
+    public void setTableName( String strTableName )
+    {
+        _strTableName = strTableName;
+    }
+
+    /**
+     * Returns the number of writes to the table
+     * 
+     * @return The Version
+     */
+    public long getVersion( )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * Sets the number of writes to the table
+     * 
+     * @param lVersion
+     *            The Version
+     */
+    public void setVersion( long lVersion )
+    {
+        _lVersion = lVersion;
+    }
+
+    /**
+     * Returns the date of the last write to the table
+     * 
+     * @return The DateUpdate
+     */
+    public long getDateUpdate( )
+    {
+        return _lDateUpdate;
+    }
+
+    /**
+     * Sets the date of the last write to the table
+     * 
+     * @param lDateUpdate
+     *            The DateUpdate
+     */
+    public void setDateUpdate( long lDateUpdate )
+    {
+        _lDateUpdate = lDateUpdate;
+    }
+}
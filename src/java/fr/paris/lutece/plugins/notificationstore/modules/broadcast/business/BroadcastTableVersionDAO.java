@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for BroadcastTableVersion objects
+ */
+public final class BroadcastTableVersionDAO implements IBroadcastTableVersionDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT = "SELECT table_name, version, date_update FROM notificationstore_broadcast_table_version WHERE table_name = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_broadcast_table_version ( table_name, version, date_update ) VALUES ( ?, ?, ? ) ";
+    private static final String SQL_QUERY_INCREMENT = "UPDATE notificationstore_broadcast_table_version SET version = version + 1, date_update = ? WHERE table_name = ?";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( BroadcastTableVersion tableVersion, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, tableVersion.getTableName( ) );
+            daoUtil.setLong( nIndex++, tableVersion.getVersion( ) );
+            daoUtil.setLong( nIndex, tableVersion.getDateUpdate( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void increment( String strTableName, long lDateUpdate, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT, plugin ) )
+        {
+            daoUtil.setLong( 1, lDateUpdate );
+            daoUtil.setString( 2, strTableName );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public BroadcastTableVersion load( String strTableName, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setString( 1, strTableName );
+            daoUtil.executeQuery( );
+            BroadcastTableVersion tableVersion = null;
+
+            if ( daoUtil.next( ) )
+            {
+                tableVersion = new BroadcastTableVersion( );
+                int nIndex = 1;
+
+                tableVersion.setTableName( daoUtil.getString( nIndex++ ) );
+                tableVersion.setVersion( daoUtil.getLong( nIndex++ ) );
+                tableVersion.setDateUpdate( daoUtil.getLong( nIndex ) );
+            }
+
+            return tableVersion;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * This class provides instances management methods (increment, find) for BroadcastTableVersion objects
+ */
+public final class BroadcastTableVersionHome
+{
+    // Static variable pointed at the DAO instance
+    private static IBroadcastTableVersionDAO _dao = SpringContextService.getBean( "notificationstore-broadcast.broadcastTableVersionDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "notificationstore-broadcast" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private BroadcastTableVersionHome( )
+    {
+    }
+
+    /**
+     * Record a write to a table, creating its version if it has never been written
+     * 
+     * @param strTableName
+     *            The table name
+     * @param lDateUpdate
+     *            The date of the write
+     */
+    public static void increment( String strTableName, long lDateUpdate )
+    {
+        if ( _dao.load( strTableName, _plugin ) == null )
+        {
+            BroadcastTableVersion tableVersion = new BroadcastTableVersion( );
+            tableVersion.setTableName( strTableName );
+            tableVersion.setVersion( 1 );
+            tableVersion.setDateUpdate( lDateUpdate );
+
+            try
+            {
+                _dao.insert( tableVersion, _plugin );
+                return;
+            }
+            catch( AppException e )
+            {
+                // the row has just been created by another node
+            }
+        }
+
+        _dao.increment( strTableName, lDateUpdate, _plugin );
+    }
+
+    /**
+     * Returns the version of a table
+     * 
+     * @param strTableName
+     *            The table name
+     * @return an instance of BroadcastTableVersion, with a version 0 if the table has never been written
+     */
+    public static BroadcastTableVersion findByPrimaryKey( String strTableName )
+    {
+        BroadcastTableVersion tableVersion = _dao.load( strTableName, _plugin );
+        if ( tableVersion == null )
+        {
+            tableVersion = new BroadcastTableVersion( );
+            tableVersion.setTableName( strTableName );
+        }
+
+        return tableVersion;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for BroadcastWatermark objects
+ */
+public final class BroadcastWatermarkDAO implements IBroadcastWatermarkDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT = "SELECT demand_type_id, frequency, last_broadcast_date FROM notificationstore_broadcast_watermark WHERE demand_type_id = ? AND frequency = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_broadcast_watermark ( demand_type_id, frequency, last_broadcast_date ) VALUES ( ?, ?, ? ) ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_broadcast_watermark WHERE demand_type_id = ? AND frequency = ? ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE notificationstore_broadcast_watermark SET last_broadcast_date = ? WHERE demand_type_id = ? AND frequency = ?";
+    private static final String SQL_QUERY_SELECTALL = "SELECT demand_type_id, frequency, last_broadcast_date FROM notificationstore_broadcast_watermark";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( BroadcastWatermark watermark, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, watermark.getDemandTypeId( ) );
+            daoUtil.setInt( nIndex++, watermark.getFrequency( ) );
+            daoUtil.setLong( nIndex, watermark.getLastBroadcastDate( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public BroadcastWatermark load( int nDemandTypeId, int nFrequency, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setInt( 1, nDemandTypeId );
+            daoUtil.setInt( 2, nFrequency );
+            daoUtil.executeQuery( );
+            BroadcastWatermark watermark = null;
+
+            if ( daoUtil.next( ) )
+            {
+                watermark = dataToObject( daoUtil );
+            }
+
+            return watermark;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void delete( int nDemandTypeId, int nFrequency, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nDemandTypeId );
+            daoUtil.setInt( 2, nFrequency );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void store( BroadcastWatermark watermark, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        {
+            int nIndex = 1;
+
+            daoUtil.setLong( nIndex++, watermark.getLastBroadcastDate( ) );
+            daoUtil.setInt( nIndex++, watermark.getDemandTypeId( ) );
+            daoUtil.setInt( nIndex, watermark.getFrequency( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<BroadcastWatermark> selectWatermarksList( Plugin plugin )
+    {
+        List<BroadcastWatermark> watermarkList = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECTALL, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                watermarkList.add( dataToObject( daoUtil ) );
+            }
+
+            return watermarkList;
+        }
+    }
+
+    /**
+     * Build a watermark from the current row
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @return the watermark
+     */
+    private BroadcastWatermark dataToObject( DAOUtil daoUtil )
+    {
+        BroadcastWatermark watermark = new BroadcastWatermark( );
+        int nIndex = 1;
+
+        watermark.setDemandTypeId( daoUtil.getInt( nIndex++ ) );
+        watermark.setFrequency( daoUtil.getInt( nIndex++ ) );
+        watermark.setLastBroadcastDate( daoUtil.getLong( nIndex ) );
+
+        return watermark;
+    }
+}
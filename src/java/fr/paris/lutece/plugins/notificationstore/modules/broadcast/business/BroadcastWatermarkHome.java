@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.List;
+
+/**
+ * This class provides instances management methods (create, find, ...) for BroadcastWatermark objects
+ */
+public final class BroadcastWatermarkHome
+{
+    // Static variable pointed at the DAO instance
+    private static IBroadcastWatermarkDAO _dao = SpringContextService.getBean( "notificationstore-broadcast.broadcastWatermarkDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "notificationstore-broadcast" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private BroadcastWatermarkHome( )
+    {
+    }
+
+    /**
+     * Create or update the watermark of a feed
+     * 
+     * @param watermark
+     *            The instance of the BroadcastWatermark which contains the informations to store
+     * @return The instance of watermark which has been saved
+     */
+    public static BroadcastWatermark save( BroadcastWatermark watermark )
+    {
+        if ( _dao.load( watermark.getDemandTypeId( ), watermark.getFrequency( ), _plugin ) == null )
+        {
+            _dao.insert( watermark, _plugin );
+        }
+        else
+        {
+            _dao.store( watermark, _plugin );
+        }
+
+        return watermark;
+    }
+
+    /**
+     * Remove the watermark of a feed
+     * 
+     * @param nDemandTypeId
+     *            The demand type id of the feed
+     * @param nFrequency
+     *            The frequency of the feed
+     */
+    public static void remove( int nDemandTypeId, int nFrequency )
+    {
+        _dao.delete( nDemandTypeId, nFrequency, _plugin );
+    }
+
+    /**
+     * Returns the watermark of a feed
+     * 
+     * @param nDemandTypeId
+     *            The demand type id of the feed
+     * @param nFrequency
+     *            The frequency of the feed
+     * @return an instance of BroadcastWatermark, or null if the feed has never been broadcast
+     */
+    public static BroadcastWatermark findByPrimaryKey( int nDemandTypeId, int nFrequency )
+    {
+        return _dao.load( nDemandTypeId, nFrequency, _plugin );
+    }
+
+    /**
+     * Load the data of all the watermark objects and returns them as a list
+     * 
+     * @return the list which contains the data of all the watermark objects
+     */
+    public static List<BroadcastWatermark> getWatermarksList( )
+    {
+        return _dao.selectWatermarksList( _plugin );
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import java.util.List;
+
+/**
+ * IBroadcastLeaseDAO Interface
+ */
+public interface IBroadcastLeaseDAO
+{
+    /**
+     * Insert a new record in the table.
+     * 
+     * @param lease
+     *            instance of the BroadcastLease object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( BroadcastLease lease, Plugin plugin );
+
+    /**
+     * Update the record in the table, if the lease is held by the same node or has expired at the given date
+     * 
+     * @param lease
+     *            the new lease
+     * @param lDate
+     *            the current date
+     * @param plugin
+     *            the Plugin
+     */
+    void storeIfAvailable( BroadcastLease lease, long lDate, Plugin plugin );
+
+    /**
+     * Make the lease of a demand type expired, if it is held by the given node
+     * 
+     * @param nDemandTypeId
+     *            The demand type id
+     * @param strNodeId
+     *            The node id
+     * @param plugin
+     *            the Plugin
+     */
+    void release( int nDemandTypeId, String strNodeId, Plugin plugin );
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Finders
+
+    /**
+     * Load the data from the table
+     * 
+     * @param nDemandTypeId
+     *            The demand type id
+     * @param plugin
+     *            the Plugin
+     * @return The instance of the lease
+     */
+    BroadcastLease load( int nDemandTypeId, Plugin plugin );
+
+    /**
+     * Load the data of all the lease objects and returns them as a list
+     * 
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the data of all the lease objects
+     */
+    List<BroadcastLease> selectLeasesList( Plugin plugin );
+}
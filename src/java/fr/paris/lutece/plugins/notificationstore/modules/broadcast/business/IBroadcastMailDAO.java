@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import java.util.List;
+
+/**
+ * IBroadcastMailDAO Interface
+ */
+public interface IBroadcastMailDAO
+{
+    /**
+     * Insert the subject and the body of a mail in the body table, and set their id to the mail
+     * 
+     * @param mail
+     *            the mail
+     * @param plugin
+     *            the Plugin
+     */
+    void insertBody( BroadcastMail mail, Plugin plugin );
+
+    /**
+     * Insert a new record in the table. The record references the subject and the body of the mail, already inserted.
+     * 
+     * @param mail
+     *            instance of the BroadcastMail object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( BroadcastMail mail, Plugin plugin );
+
+    /**
+     * Update the sending state (status, attempts, next attempt date, last error) of the record in the table
+     * 
+     * @param mail
+     *            the reference of the BroadcastMail
+     * @param plugin
+     *            the Plugin
+     */
+    void store( BroadcastMail mail, Plugin plugin );
+
+    /**
+     * Change the status and the next attempt date of the record, only if its status and next attempt date are still the ones of the mail
+     * 
+     * @param mail
+     *            the mail, as loaded from the table
+     * @param nStatus
+     *            the new status
+     * @param lNextAttemptDate
+     *            the new next attempt date
+     * @param plugin
+     *            the Plugin
+     * @return true if the record has been updated, false if it has been changed or removed in the meantime
+     */
+    boolean claim( BroadcastMail mail, int nStatus, long lNextAttemptDate, Plugin plugin );
+
+    /**
+     * Delete a record from the table, and its body once no other record references it
+     * 
+     * @param nKey
+     *            The identifier of the BroadcastMail to delete
+     * @param plugin
+     *            the Plugin
+     */
+    void delete( int nKey, Plugin plugin );
+
+    /**
+     * Delete the records with a status, and the bodies no other record references
+     * 
+     * @param nStatus
+     *            the status
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteByStatus( int nStatus, Plugin plugin );
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Finders
+
+    /**
+     * Load the data from the table
+     * 
+     * @param nKey
+     *            The identifier of the mail
+     * @param plugin
+     *            the Plugin
+     * @return The instance of the mail
+     */
+    BroadcastMail load( int nKey, Plugin plugin );
+
+    /**
+     * Load the mails to send : the pending mails and the mails whose sending timed out, whose next attempt date is passed, oldest first
+     * 
+     * @param lDate
+     *            the current date
+     * @param nLimit
+     *            the maximum number of mails to load
+     * @param plugin
+     *            the Plugin
+     * @return The list of the mails to send
+     */
+    List<BroadcastMail> selectDueMailsList( long lDate, int nLimit, Plugin plugin );
+
+    /**
+     * Count the mails with a status
+     * 
+     * @param nStatus
+     *            the status
+     * @param plugin
+     *            the Plugin
+     * @return the number of mails with the status
+     */
+    int countMails( int nStatus, Plugin plugin );
+}
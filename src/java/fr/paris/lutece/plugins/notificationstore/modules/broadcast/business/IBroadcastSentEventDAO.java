@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * IBroadcastSentEventDAO Interface : the events already broadcast to a recipient
+ */
+public interface IBroadcastSentEventDAO
+{
+    /**
+     * Insert records in the table with a single batch statement
+     * 
+     * @param lRecipientHash
+     *            the hash of the recipient
+     * @param collectionEventHashes
+     *            the hashes of the events broadcast to the recipient
+     * @param lSentDate
+     *            the date of the broadcast
+     * @param plugin
+     *            the Plugin
+     */
+    void insertAll( long lRecipientHash, Collection<Long> collectionEventHashes, long lSentDate, Plugin plugin );
+
+    /**
+     * Delete the records older than a date
+     * 
+     * @param lDate
+     *            the date
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteBefore( long lDate, Plugin plugin );
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Finders
+
+    /**
+     * Select, among some events, the ones already broadcast to a recipient
+     * 
+     * @param lRecipientHash
+     *            the hash of the recipient
+     * @param collectionEventHashes
+     *            the hashes of the events
+     * @param plugin
+     *            the Plugin
+     * @return the hashes of the events already broadcast to the recipient
+     */
+    Set<Long> selectSentEventHashes( long lRecipientHash, Collection<Long> collectionEventHashes, Plugin plugin );
+
+    /**
+     * Pass all the records to a consumer as they are read
+     * 
+     * @param consumer
+     *            the consumer of the recipient hash and event hash of each record
+     * @param plugin
+     *            the Plugin
+     */
+    void selectSentEvents( BiConsumer<Long, Long> consumer, Plugin plugin );
+}
@@ -37,6 +37,7 @@ package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.ReferenceList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * ISubscriptionDAO Interface
@@ -73,6 +74,36 @@ public interface ISubscriptionDAO
      */
     void delete( int nKey, Plugin plugin );
 
+    /**
+     * Insert new records in the table with a single batch statement. The generated ids are set in the subscriptions.
+     * 
+     * @param listSubscriptions
+     *            the Subscription objects to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insertAll( List<Subscription> listSubscriptions, Plugin plugin );
+
+    /**
+     * Update records in the table with a single batch statement
+     * 
+     * @param listSubscriptions
+     *            the Subscription objects to update
+     * @param plugin
+     *            the Plugin
+     */
+    void storeAll( List<Subscription> listSubscriptions, Plugin plugin );
+
+    /**
+     * Delete records from the table with a single batch statement
+     * 
+     * @param listKeys
+     *            The identifiers of the Subscriptions to delete
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteAll( List<Integer> listKeys, Plugin plugin );
+
     ///////////////////////////////////////////////////////////////////////////
     // Finders
 
@@ -96,6 +127,65 @@ public interface ISubscriptionDAO
      */
     List<Subscription> selectSubscriptionsList( Plugin plugin );
 
+    /**
+     * Load the data of the subscription objects matching a filter, the criteria being evaluated by the database
+     * 
+     * @param filter
+     *            the filter
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the data of the matching subscription objects
+     */
+    List<Subscription> selectSubscriptionsList( SubscriptionFilter filter, Plugin plugin );
+
+    /**
+     * Load the subscriptions matching a filter whose id is greater than a given id, ordered by id, and pass them one by one to a consumer while the
+     * result set is read
+     * 
+     * @param filter
+     *            the filter
+     * @param nAfterId
+     *            the id after which the subscriptions are loaded
+     * @param nLimit
+     *            the maximum number of subscriptions to load, or 0 for no limit
+     * @param consumer
+     *            the consumer of the subscriptions
+     * @param plugin
+     *            the Plugin
+     */
+    void selectSubscriptionsList( SubscriptionFilter filter, int nAfterId, int nLimit, Consumer<Subscription> consumer, Plugin plugin );
+
+    /**
+     * Load a page of the subscriptions matching a filter, sorted by the database
+     * 
+     * @param filter
+     *            the filter
+     * @param strSortedAttributeName
+     *            the attribute of the subscriptions to sort on (demandTypeId, mail or frequency), or null to sort by id
+     * @param bSortAsc
+     *            true for an ascending sort
+     * @param nOffset
+     *            the number of matching subscriptions to skip
+     * @param nLimit
+     *            the size of the page
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the data of the subscriptions of the page
+     */
+    List<Subscription> selectSubscriptionsList( SubscriptionFilter filter, String strSortedAttributeName, boolean bSortAsc, int nOffset, int nLimit,
+            Plugin plugin );
+
+    /**
+     * Count the subscriptions matching a filter
+     * 
+     * @param filter
+     *            the filter
+     * @param plugin
+     *            the Plugin
+     * @return the number of matching subscriptions
+     */
+    int countSubscriptions( SubscriptionFilter filter, Plugin plugin );
+
     /**
      * Load the id of all the subscription objects and returns them as a list
      * 
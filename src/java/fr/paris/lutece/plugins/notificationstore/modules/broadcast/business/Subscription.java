@@ -37,6 +37,8 @@ import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.NotEmpty;
 import java.io.Serializable;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * This is the business class for the object Subscription
  */
@@ -55,6 +57,8 @@ public class Subscription implements Serializable
 
     private int _nFrequency = 1;
 
+    private long _lDateUpdate;
+
     /**
      * Returns the Id
      * 
@@ -138,4 +142,27 @@ public class Subscription implements Serializable
     {
         _nFrequency = nFrequency;
     }
+
+    /**
+     * Returns the date of the last write of the subscription, which is also its version. It is not part of the JSON representation : the REST API
+     * exposes it through the ETag and Last-Modified headers only, and it is set by the writes.
+     * 
+     * @return The DateUpdate
+     */
+    @JsonIgnore
+    public long getDateUpdate( )
+    {
+        return _lDateUpdate;
+    }
+
+    /**
+     * Sets the date of the last write of the subscription
+     * 
+     * @param lDateUpdate
+     *            The DateUpdate
+     */
+    public void setDateUpdate( long lDateUpdate )
+    {
+        _lDateUpdate = lDateUpdate;
+    }
 }
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory copy of the subscription table, with an index by primary key, and index of the broadcast feeds. The table copy is invalidated by the
+ * writes of SubscriptionHome, while the feed index is updated incrementally. The writes of the other nodes invalidate both. Both expire after a time to live, so that the writes done by other nodes
+ * are eventually seen.
+ */
+public final class SubscriptionCache
+{
+    private final ISubscriptionDAO _dao;
+    private final Plugin _plugin;
+    private final long _lTimeToLive;
+    private final AtomicLong _lHitCount = new AtomicLong( );
+    private final AtomicLong _lMissCount = new AtomicLong( );
+    private final AtomicLong _lGeneration = new AtomicLong( );
+    private volatile Snapshot _snapshot;
+    private volatile BroadcastFeedIndex _feedIndex;
+    private volatile long _lFeedIndexLoadDate;
+
+    /**
+     * Constructor
+     * 
+     * @param dao
+     *            the subscription DAO
+     * @param plugin
+     *            the plugin
+     * @param nTimeToLive
+     *            the time to live of the cache, in seconds
+     */
+    SubscriptionCache( ISubscriptionDAO dao, Plugin plugin, int nTimeToLive )
+    {
+        _dao = dao;
+        _plugin = plugin;
+        _lTimeToLive = TimeUnit.SECONDS.toMillis( nTimeToLive );
+    }
+
+    /**
+     * Get the current content of the cache, loading it from the database if needed
+     * 
+     * @return the snapshot of the subscription table
+     */
+    Snapshot getSnapshot( )
+    {
+        Snapshot snapshot = _snapshot;
+
+        if ( snapshot != null && !snapshot.isExpired( _lTimeToLive ) )
+        {
+            _lHitCount.incrementAndGet( );
+            return snapshot;
+        }
+
+        synchronized( this )
+        {
+            snapshot = _snapshot;
+            if ( snapshot == null || snapshot.isExpired( _lTimeToLive ) )
+            {
+                // only the thread loading the table counts a miss, the threads waiting for it are served by its load
+                _lMissCount.incrementAndGet( );
+
+                // a write occurring while loading invalidates the loaded data
+                long lGeneration = _lGeneration.get( );
+                snapshot = new Snapshot( _dao.selectSubscriptionsList( _plugin ) );
+
+                if ( lGeneration == _lGeneration.get( ) )
+                {
+                    _snapshot = snapshot;
+                }
+            }
+
+            return snapshot;
+        }
+    }
+
+    /**
+     * Get the current index of the broadcast feeds, building it from the subscription table if needed
+     * 
+     * @return the feed index
+     */
+    BroadcastFeedIndex getFeedIndex( )
+    {
+        BroadcastFeedIndex feedIndex = _feedIndex;
+
+        if ( feedIndex != null && System.currentTimeMillis( ) - _lFeedIndexLoadDate <= _lTimeToLive )
+        {
+            _lHitCount.incrementAndGet( );
+            return feedIndex;
+        }
+
+        synchronized( this )
+        {
+            feedIndex = _feedIndex;
+            if ( feedIndex == null || System.currentTimeMillis( ) - _lFeedIndexLoadDate > _lTimeToLive )
+            {
+                // the writes are serialized with this build, so the index cannot miss one of them
+                Snapshot snapshot = getSnapshot( );
+                feedIndex = new BroadcastFeedIndex( snapshot.getSubscriptions( ) );
+                _feedIndex = feedIndex;
+                _lFeedIndexLoadDate = snapshot.getLoadDate( );
+            }
+
+            return feedIndex;
+        }
+    }
+
+    /**
+     * Update the cache after the creation of a subscription
+     * 
+     * @param subscription
+     *            the created subscription
+     */
+    synchronized void onCreate( Subscription subscription )
+    {
+        invalidate( );
+
+        if ( _feedIndex != null )
+        {
+            _feedIndex.add( copy( subscription ) );
+        }
+    }
+
+    /**
+     * Update the cache after the modification of a subscription
+     * 
+     * @param subscription
+     *            the modified subscription
+     */
+    synchronized void onUpdate( Subscription subscription )
+    {
+        invalidate( );
+
+        if ( _feedIndex != null )
+        {
+            _feedIndex.update( copy( subscription ) );
+        }
+    }
+
+    /**
+     * Update the cache after the removal of a subscription
+     * 
+     * @param nId
+     *            the id of the removed subscription
+     */
+    synchronized void onRemove( int nId )
+    {
+        invalidate( );
+
+        if ( _feedIndex != null )
+        {
+            _feedIndex.remove( nId );
+        }
+    }
+
+    /**
+     * Update the cache after the creation or the modification of several subscriptions, each feed of the index being rebuilt once
+     * 
+     * @param listSubscriptions
+     *            the created or modified subscriptions
+     */
+    synchronized void onWriteAll( List<Subscription> listSubscriptions )
+    {
+        invalidate( );
+
+        if ( _feedIndex != null )
+        {
+            List<Subscription> listCopies = new ArrayList<>( listSubscriptions.size( ) );
+            for ( Subscription subscription : listSubscriptions )
+            {
+                listCopies.add( copy( subscription ) );
+            }
+
+            _feedIndex.addAll( listCopies );
+        }
+    }
+
+    /**
+     * Update the cache after the removal of several subscriptions, each feed of the index being rebuilt once
+     * 
+     * @param listIds
+     *            the ids of the removed subscriptions
+     */
+    synchronized void onRemoveAll( List<Integer> listIds )
+    {
+        invalidate( );
+
+        if ( _feedIndex != null )
+        {
+            _feedIndex.removeAll( listIds );
+        }
+    }
+
+    /**
+     * Invalidate the table copy and the feed index after a write done by another node : the write is unknown, the index is rebuilt from the table
+     */
+    synchronized void onExternalWrite( )
+    {
+        invalidate( );
+        _feedIndex = null;
+    }
+
+    /**
+     * Invalidate the table copy after a write
+     */
+    private void invalidate( )
+    {
+        _lGeneration.incrementAndGet( );
+        _snapshot = null;
+    }
+
+    /**
+     * Returns the number of reads served by the cache
+     * 
+     * @return the hit count
+     */
+    public long getHitCount( )
+    {
+        return _lHitCount.get( );
+    }
+
+    /**
+     * Returns the number of reads which needed to load the table
+     * 
+     * @return the miss count
+     */
+    public long getMissCount( )
+    {
+        return _lMissCount.get( );
+    }
+
+    /**
+     * Copy a subscription, so that the cached instances cannot be modified by the callers
+     * 
+     * @param subscription
+     *            the subscription
+     * @return the copy
+     */
+    static Subscription copy( Subscription subscription )
+    {
+        Subscription copy = new Subscription( );
+        copy.setId( subscription.getId( ) );
+        copy.setDemandTypeId( subscription.getDemandTypeId( ) );
+        copy.setMail( subscription.getMail( ) );
+        copy.setFrequency( subscription.getFrequency( ) );
+        copy.setDateUpdate( subscription.getDateUpdate( ) );
+
+        return copy;
+    }
+
+    /**
+     * Immutable content of the subscription table
+     */
+    static final class Snapshot
+    {
+        private final long _lLoadDate = System.currentTimeMillis( );
+        private final List<Subscription> _listSubscriptions;
+        private final Map<Integer, Subscription> _mapSubscriptionsById = new HashMap<>( );
+
+        /**
+         * Constructor
+         * 
+         * @param listSubscriptions
+         *            all the subscriptions
+         */
+        Snapshot( List<Subscription> listSubscriptions )
+        {
+            _listSubscriptions = Collections.unmodifiableList( listSubscriptions );
+
+            for ( Subscription subscription : listSubscriptions )
+            {
+                _mapSubscriptionsById.put( subscription.getId( ), subscription );
+            }
+        }
+
+        long getLoadDate( )
+        {
+            return _lLoadDate;
+        }
+
+        boolean isExpired( long lTimeToLive )
+        {
+            return System.currentTimeMillis( ) - _lLoadDate > lTimeToLive;
+        }
+
+        List<Subscription> getSubscriptions( )
+        {
+            return _listSubscriptions;
+        }
+
+        Subscription getSubscription( int nId )
+        {
+            return _mapSubscriptionsById.get( nId );
+        }
+    }
+}
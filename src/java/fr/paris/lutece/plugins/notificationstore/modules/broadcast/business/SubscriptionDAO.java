@@ -40,7 +40,11 @@ import fr.paris.lutece.util.sql.DAOUtil;
 import java.sql.Statement;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * This class provides Data Access methods for Subscription objects
@@ -48,12 +52,40 @@ import java.util.List;
 public final class SubscriptionDAO implements ISubscriptionDAO
 {
     // Constants
-    private static final String SQL_QUERY_SELECT = "SELECT id_subscription, demand_type_id, mail, frequency FROM notificationstore_broadcast_subscription WHERE id_subscription = ?";
-    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_broadcast_subscription ( demand_type_id, mail, frequency ) VALUES ( ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT = "SELECT id_subscription, demand_type_id, mail, frequency, date_update FROM notificationstore_broadcast_subscription WHERE id_subscription = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_broadcast_subscription ( demand_type_id, mail, frequency, date_update ) VALUES ( ?, ?, ?, ? ) ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_broadcast_subscription WHERE id_subscription = ? ";
-    private static final String SQL_QUERY_UPDATE = "UPDATE notificationstore_broadcast_subscription SET id_subscription = ?, demand_type_id = ?, mail = ?, frequency = ? WHERE id_subscription = ?";
-    private static final String SQL_QUERY_SELECTALL = "SELECT id_subscription, demand_type_id, mail, frequency FROM notificationstore_broadcast_subscription";
+    private static final String SQL_QUERY_UPDATE = "UPDATE notificationstore_broadcast_subscription SET id_subscription = ?, demand_type_id = ?, mail = ?, frequency = ?, date_update = ? WHERE id_subscription = ?";
+    private static final String SQL_QUERY_SELECTALL = "SELECT id_subscription, demand_type_id, mail, frequency, date_update FROM notificationstore_broadcast_subscription";
     private static final String SQL_QUERY_SELECTALL_ID = "SELECT id_subscription FROM notificationstore_broadcast_subscription";
+    private static final String SQL_QUERY_COUNT = "SELECT COUNT( * ) FROM notificationstore_broadcast_subscription";
+    private static final String SQL_WHERE = " WHERE ";
+    private static final String SQL_AND = " AND ";
+    private static final String SQL_FILTER_AFTER = "id_subscription > ?";
+    private static final String SQL_FILTER_DEMAND_TYPE_ID = "demand_type_id = ?";
+    private static final String SQL_FILTER_DEMAND_TYPE_IN = "demand_type_id IN ( ";
+    private static final String SQL_FILTER_MAIL = "mail = ?";
+    private static final String SQL_FILTER_MAIL_SEARCH = "LOWER( mail ) LIKE ?";
+    private static final String SQL_FILTER_FREQUENCY = "frequency = ?";
+    private static final String SQL_ORDER_BY_ID = " ORDER BY id_subscription";
+    private static final String SQL_LIMIT = " LIMIT ?";
+    private static final String SQL_LIMIT_OFFSET = " LIMIT ? OFFSET ?";
+    private static final String SQL_ORDER_BY = " ORDER BY ";
+    private static final String SQL_ASC = " ASC";
+    private static final String SQL_DESC = " DESC";
+    private static final String SQL_THEN_BY_ID = ", id_subscription";
+    private static final String LIKE_WILDCARD = "%";
+    private static final String LIKE_ESCAPE = "\\";
+
+    // the sortable attributes of a subscription and their column : the column of a sort is never read from the request
+    private static final Map<String, String> MAP_SORT_COLUMNS = new HashMap<>( );
+
+    static
+    {
+        MAP_SORT_COLUMNS.put( "demandTypeId", "demand_type_id" );
+        MAP_SORT_COLUMNS.put( "mail", "mail" );
+        MAP_SORT_COLUMNS.put( "frequency", "frequency" );
+    }
 
     /**
      * {@inheritDoc }
@@ -67,6 +99,7 @@ public final class SubscriptionDAO implements ISubscriptionDAO
             daoUtil.setInt( nIndex++, subscription.getDemandTypeId( ) );
             daoUtil.setString( nIndex++, subscription.getMail( ) );
             daoUtil.setInt( nIndex++, subscription.getFrequency( ) );
+            daoUtil.setLong( nIndex, subscription.getDateUpdate( ) );
 
             daoUtil.executeUpdate( );
             if ( daoUtil.nextGeneratedKey( ) )
@@ -91,13 +124,7 @@ public final class SubscriptionDAO implements ISubscriptionDAO
 
             if ( daoUtil.next( ) )
             {
-                subscription = new Subscription( );
-                int nIndex = 1;
-
-                subscription.setId( daoUtil.getInt( nIndex++ ) );
-                subscription.setDemandTypeId( daoUtil.getInt( nIndex++ ) );
-                subscription.setMail( daoUtil.getString( nIndex++ ) );
-                subscription.setFrequency( daoUtil.getInt( nIndex ) );
+                subscription = readSubscription( daoUtil );
             }
 
             daoUtil.free( );
@@ -133,6 +160,7 @@ public final class SubscriptionDAO implements ISubscriptionDAO
             daoUtil.setInt( nIndex++, subscription.getDemandTypeId( ) );
             daoUtil.setString( nIndex++, subscription.getMail( ) );
             daoUtil.setInt( nIndex++, subscription.getFrequency( ) );
+            daoUtil.setLong( nIndex++, subscription.getDateUpdate( ) );
             daoUtil.setInt( nIndex, subscription.getId( ) );
 
             daoUtil.executeUpdate( );
@@ -140,6 +168,80 @@ public final class SubscriptionDAO implements ISubscriptionDAO
         }
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertAll( List<Subscription> listSubscriptions, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            for ( Subscription subscription : listSubscriptions )
+            {
+                int nIndex = 1;
+                daoUtil.setInt( nIndex++, subscription.getDemandTypeId( ) );
+                daoUtil.setString( nIndex++, subscription.getMail( ) );
+                daoUtil.setInt( nIndex++, subscription.getFrequency( ) );
+                daoUtil.setLong( nIndex, subscription.getDateUpdate( ) );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+
+            // the generated keys are returned in the order of the batch
+            for ( Subscription subscription : listSubscriptions )
+            {
+                if ( daoUtil.nextGeneratedKey( ) )
+                {
+                    subscription.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void storeAll( List<Subscription> listSubscriptions, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        {
+            for ( Subscription subscription : listSubscriptions )
+            {
+                int nIndex = 1;
+
+                daoUtil.setInt( nIndex++, subscription.getId( ) );
+                daoUtil.setInt( nIndex++, subscription.getDemandTypeId( ) );
+                daoUtil.setString( nIndex++, subscription.getMail( ) );
+                daoUtil.setInt( nIndex++, subscription.getFrequency( ) );
+                daoUtil.setLong( nIndex++, subscription.getDateUpdate( ) );
+                daoUtil.setInt( nIndex, subscription.getId( ) );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void deleteAll( List<Integer> listKeys, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            for ( Integer nKey : listKeys )
+            {
+                daoUtil.setInt( 1, nKey );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -153,15 +255,94 @@ public final class SubscriptionDAO implements ISubscriptionDAO
 
             while ( daoUtil.next( ) )
             {
-                Subscription subscription = new Subscription( );
-                int nIndex = 1;
+                subscriptionList.add( readSubscription( daoUtil ) );
+            }
+
+            daoUtil.free( );
+            return subscriptionList;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Subscription> selectSubscriptionsList( SubscriptionFilter filter, Plugin plugin )
+    {
+        List<Subscription> subscriptionList = new ArrayList<>( );
+        selectSubscriptionsList( filter, 0, 0, subscriptionList::add, plugin );
+
+        return subscriptionList;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void selectSubscriptionsList( SubscriptionFilter filter, int nAfterId, int nLimit, Consumer<Subscription> consumer, Plugin plugin )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECTALL );
+        sbSql.append( SQL_WHERE ).append( SQL_FILTER_AFTER );
+        appendCriteria( sbSql, filter, false );
+        sbSql.append( SQL_ORDER_BY_ID );
+        if ( nLimit > 0 )
+        {
+            sbSql.append( SQL_LIMIT );
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( sbSql.toString( ), plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nAfterId );
+            nIndex = setCriteria( daoUtil, nIndex, filter );
+            if ( nLimit > 0 )
+            {
+                daoUtil.setInt( nIndex, nLimit );
+            }
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                consumer.accept( readSubscription( daoUtil ) );
+            }
+
+            daoUtil.free( );
+        }
+    }
 
-                subscription.setId( daoUtil.getInt( nIndex++ ) );
-                subscription.setDemandTypeId( daoUtil.getInt( nIndex++ ) );
-                subscription.setMail( daoUtil.getString( nIndex++ ) );
-                subscription.setFrequency( daoUtil.getInt( nIndex ) );
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Subscription> selectSubscriptionsList( SubscriptionFilter filter, String strSortedAttributeName, boolean bSortAsc, int nOffset, int nLimit,
+            Plugin plugin )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECTALL );
+        appendCriteria( sbSql, filter, true );
 
-                subscriptionList.add( subscription );
+        String strSortColumn = ( strSortedAttributeName != null ) ? MAP_SORT_COLUMNS.get( strSortedAttributeName ) : null;
+        if ( strSortColumn != null )
+        {
+            // the id keeps the order of the pages stable between equal values
+            sbSql.append( SQL_ORDER_BY ).append( strSortColumn ).append( bSortAsc ? SQL_ASC : SQL_DESC ).append( SQL_THEN_BY_ID );
+        }
+        else
+        {
+            sbSql.append( SQL_ORDER_BY_ID ).append( bSortAsc ? SQL_ASC : SQL_DESC );
+        }
+        sbSql.append( SQL_LIMIT_OFFSET );
+
+        List<Subscription> subscriptionList = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( sbSql.toString( ), plugin ) )
+        {
+            int nIndex = setCriteria( daoUtil, 1, filter );
+            daoUtil.setInt( nIndex++, nLimit );
+            daoUtil.setInt( nIndex, nOffset );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                subscriptionList.add( readSubscription( daoUtil ) );
             }
 
             daoUtil.free( );
@@ -169,6 +350,146 @@ public final class SubscriptionDAO implements ISubscriptionDAO
         }
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countSubscriptions( SubscriptionFilter filter, Plugin plugin )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_COUNT );
+        appendCriteria( sbSql, filter, true );
+
+        try ( DAOUtil daoUtil = new DAOUtil( sbSql.toString( ), plugin ) )
+        {
+            setCriteria( daoUtil, 1, filter );
+            daoUtil.executeQuery( );
+
+            int nCount = 0;
+            if ( daoUtil.next( ) )
+            {
+                nCount = daoUtil.getInt( 1 );
+            }
+
+            daoUtil.free( );
+            return nCount;
+        }
+    }
+
+    /**
+     * Append the criteria of a filter to a query
+     * 
+     * @param sbSql
+     *            the query
+     * @param filter
+     *            the filter
+     * @param bFirst
+     *            true if the query has no WHERE clause yet
+     */
+    private static void appendCriteria( StringBuilder sbSql, SubscriptionFilter filter, boolean bFirst )
+    {
+        String strSeparator = bFirst ? SQL_WHERE : SQL_AND;
+
+        if ( filter.containsDemandTypeIds( ) )
+        {
+            sbSql.append( strSeparator );
+            strSeparator = SQL_AND;
+            if ( filter.getDemandTypeIds( ).size( ) == 1 )
+            {
+                sbSql.append( SQL_FILTER_DEMAND_TYPE_ID );
+            }
+            else
+            {
+                sbSql.append( SQL_FILTER_DEMAND_TYPE_IN );
+                for ( int i = 0; i < filter.getDemandTypeIds( ).size( ); i++ )
+                {
+                    sbSql.append( ( i == 0 ) ? "?" : ", ?" );
+                }
+                sbSql.append( " )" );
+            }
+        }
+        if ( filter.containsMail( ) )
+        {
+            sbSql.append( strSeparator ).append( SQL_FILTER_MAIL );
+            strSeparator = SQL_AND;
+        }
+        if ( filter.containsMailSearch( ) )
+        {
+            sbSql.append( strSeparator ).append( SQL_FILTER_MAIL_SEARCH );
+            strSeparator = SQL_AND;
+        }
+        if ( filter.containsFrequency( ) )
+        {
+            sbSql.append( strSeparator ).append( SQL_FILTER_FREQUENCY );
+        }
+    }
+
+    /**
+     * Set the parameters of the criteria of a filter
+     * 
+     * @param daoUtil
+     *            the statement
+     * @param nFirstIndex
+     *            the index of the first parameter of the criteria
+     * @param filter
+     *            the filter
+     * @return the index of the next parameter
+     */
+    private static int setCriteria( DAOUtil daoUtil, int nFirstIndex, SubscriptionFilter filter )
+    {
+        int nIndex = nFirstIndex;
+        for ( Integer nDemandTypeId : filter.getDemandTypeIds( ) )
+        {
+            daoUtil.setInt( nIndex++, nDemandTypeId );
+        }
+        if ( filter.containsMail( ) )
+        {
+            daoUtil.setString( nIndex++, filter.getMail( ) );
+        }
+        if ( filter.containsMailSearch( ) )
+        {
+            daoUtil.setString( nIndex++, LIKE_WILDCARD + escapeLike( filter.getMailSearch( ).toLowerCase( Locale.ROOT ) ) + LIKE_WILDCARD );
+        }
+        if ( filter.containsFrequency( ) )
+        {
+            daoUtil.setInt( nIndex++, filter.getFrequency( ) );
+        }
+
+        return nIndex;
+    }
+
+    /**
+     * Escape the wildcards of a LIKE pattern, so that a searched text is matched literally
+     * 
+     * @param strText
+     *            the text
+     * @return the escaped text
+     */
+    private static String escapeLike( String strText )
+    {
+        return strText.replace( LIKE_ESCAPE, LIKE_ESCAPE + LIKE_ESCAPE ).replace( "%", LIKE_ESCAPE + "%" ).replace( "_", LIKE_ESCAPE + "_" );
+    }
+
+    /**
+     * Read the subscription of the current row
+     * 
+     * @param daoUtil
+     *            the statement
+     * @return the subscription
+     */
+    private static Subscription readSubscription( DAOUtil daoUtil )
+    {
+        Subscription subscription = new Subscription( );
+        int nIndex = 1;
+
+        subscription.setId( daoUtil.getInt( nIndex++ ) );
+        subscription.setDemandTypeId( daoUtil.getInt( nIndex++ ) );
+        subscription.setMail( daoUtil.getString( nIndex++ ) );
+        subscription.setFrequency( daoUtil.getInt( nIndex++ ) );
+        subscription.setDateUpdate( daoUtil.getLong( nIndex ) );
+
+        return subscription;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Criteria of a subscription search. The criteria which are not set are ignored, and the criteria which are set are combined with AND.
+ */
+public class SubscriptionFilter
+{
+    private Set<Integer> _setDemandTypeIds = Collections.emptySet( );
+    private String _strMail;
+    private String _strMailSearch;
+    private int _nFrequency;
+
+    /**
+     * Returns the demand type ids
+     * 
+     * @return the demand type ids, empty if the demand type is not a criterion
+     */
+    public Set<Integer> getDemandTypeIds( )
+    {
+        return Collections.unmodifiableSet( _setDemandTypeIds );
+    }
+
+    /**
+     * Sets the demand type id
+     * 
+     * @param nDemandTypeId
+     *            the demand type id
+     */
+    public void setDemandTypeId( int nDemandTypeId )
+    {
+        _setDemandTypeIds = Collections.singleton( nDemandTypeId );
+    }
+
+    /**
+     * Sets the demand type ids : the subscriptions to one of these demand types are selected
+     * 
+     * @param collectionDemandTypeIds
+     *            the demand type ids
+     */
+    public void setDemandTypeIds( Collection<Integer> collectionDemandTypeIds )
+    {
+        _setDemandTypeIds = new LinkedHashSet<>( collectionDemandTypeIds );
+    }
+
+    /**
+     * Returns true if the demand type is a criterion
+     * 
+     * @return true if the demand type is a criterion
+     */
+    public boolean containsDemandTypeIds( )
+    {
+        return !_setDemandTypeIds.isEmpty( );
+    }
+
+    /**
+     * Returns the mail
+     * 
+     * @return the mail
+     */
+    public String getMail( )
+    {
+        return _strMail;
+    }
+
+    /**
+     * Sets the mail
+     * 
+     * @param strMail
+     *            the mail
+     */
+    public void setMail( String strMail )
+    {
+        _strMail = strMail;
+    }
+
+    /**
+     * Returns true if the mail is a criterion
+     * 
+     * @return true if the mail is a criterion
+     */
+    public boolean containsMail( )
+    {
+        return _strMail != null && !_strMail.isEmpty( );
+    }
+
+    /**
+     * Returns the text searched in the mails
+     * 
+     * @return the text searched in the mails
+     */
+    public String getMailSearch( )
+    {
+        return _strMailSearch;
+    }
+
+    /**
+     * Sets the text searched in the mails : the subscriptions whose mail contains this text, ignoring the case, are selected
+     * 
+     * @param strMailSearch
+     *            the text searched in the mails
+     */
+    public void setMailSearch( String strMailSearch )
+    {
+        _strMailSearch = strMailSearch;
+    }
+
+    /**
+     * Returns true if the mail search is a criterion
+     * 
+     * @return true if the mail search is a criterion
+     */
+    public boolean containsMailSearch( )
+    {
+        return _strMailSearch != null && !_strMailSearch.isEmpty( );
+    }
+
+    /**
+     * Returns the frequency
+     * 
+     * @return the frequency
+     */
+    public int getFrequency( )
+    {
+        return _nFrequency;
+    }
+
+    /**
+     * Sets the frequency
+     * 
+     * @param nFrequency
+     *            the frequency, in hours
+     */
+    public void setFrequency( int nFrequency )
+    {
+        _nFrequency = nFrequency;
+    }
+
+    /**
+     * Returns true if the frequency is a criterion
+     * 
+     * @return true if the frequency is a criterion
+     */
+    public boolean containsFrequency( )
+    {
+        return _nFrequency > 0;
+    }
+
+    /**
+     * Returns true if no criterion is set
+     * 
+     * @return true if the filter selects all the subscriptions
+     */
+    public boolean isEmpty( )
+    {
+        return !containsDemandTypeIds( ) && !containsMail( ) && !containsMailSearch( ) && !containsFrequency( );
+    }
+
+    /**
+     * Check a subscription against the criteria, as the SQL query of the DAO does
+     * 
+     * @param subscription
+     *            the subscription
+     * @return true if the subscription matches all the criteria
+     */
+    public boolean matches( Subscription subscription )
+    {
+        // the mail comparison is case insensitive, as with the default collation of the table
+        return ( !containsDemandTypeIds( ) || _setDemandTypeIds.contains( subscription.getDemandTypeId( ) ) )
+                && ( !containsMail( ) || _strMail.equalsIgnoreCase( subscription.getMail( ) ) )
+                && ( !containsMailSearch( ) || ( subscription.getMail( ) != null
+                        && subscription.getMail( ).toLowerCase( Locale.ROOT ).contains( _strMailSearch.toLowerCase( Locale.ROOT ) ) ) )
+                && ( !containsFrequency( ) || _nFrequency == subscription.getFrequency( ) );
+    }
+}
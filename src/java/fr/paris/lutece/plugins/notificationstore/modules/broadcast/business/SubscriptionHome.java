@@ -36,8 +36,12 @@ package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.ReferenceList;
+import fr.paris.lutece.util.sql.TransactionManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -49,6 +53,16 @@ public final class SubscriptionHome
     private static ISubscriptionDAO _dao = SpringContextService.getBean( "notificationstore-broadcast.subscriptionDAO" );
     private static Plugin _plugin = PluginService.getPlugin( "notificationstore-broadcast" );
 
+    // Cache of the subscription table
+    private static final String PROPERTY_CACHE_ENABLED = "notificationstore-broadcast.subscription.cache.enabled";
+    private static final String PROPERTY_CACHE_TIME_TO_LIVE = "notificationstore-broadcast.subscription.cache.timeToLive";
+    private static boolean _bCacheEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_CACHE_ENABLED, true );
+    private static SubscriptionCache _cache = new SubscriptionCache( _dao, _plugin, AppPropertiesService.getPropertyInt( PROPERTY_CACHE_TIME_TO_LIVE, 300 ) );
+
+    // Version of the subscription table, shared by the nodes
+    private static final String TABLE_NAME = "notificationstore_broadcast_subscription";
+    private static volatile long _lKnownTableVersion = -1;
+
     /**
      * Private constructor - this class need not be instantiated
      */
@@ -57,7 +71,7 @@ public final class SubscriptionHome
     }
 
     /**
-     * Create an instance of the subscription class
+     * Create an instance of the subscription class, and increment the version of the table in the same transaction
      * 
      * @param subscription
      *            The instance of the Subscription which contains the informations to store
@@ -65,13 +79,29 @@ public final class SubscriptionHome
      */
     public static Subscription create( Subscription subscription )
     {
-        _dao.insert( subscription, _plugin );
+        long lNow = System.currentTimeMillis( );
+        subscription.setDateUpdate( lNow );
+
+        TransactionManager.beginTransaction( _plugin );
+        try
+        {
+            _dao.insert( subscription, _plugin );
+            BroadcastTableVersionHome.increment( TABLE_NAME, lNow );
+            TransactionManager.commitTransaction( _plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( _plugin, e );
+            throw e;
+        }
+
+        _cache.onCreate( subscription );
 
         return subscription;
     }
 
     /**
-     * Update of the subscription which is specified in parameter
+     * Update of the subscription which is specified in parameter, and increment the version of the table in the same transaction
      * 
      * @param subscription
      *            The instance of the Subscription which contains the data to store
@@ -79,20 +109,158 @@ public final class SubscriptionHome
      */
     public static Subscription update( Subscription subscription )
     {
-        _dao.store( subscription, _plugin );
+        long lNow = System.currentTimeMillis( );
+        subscription.setDateUpdate( lNow );
+
+        TransactionManager.beginTransaction( _plugin );
+        try
+        {
+            _dao.store( subscription, _plugin );
+            BroadcastTableVersionHome.increment( TABLE_NAME, lNow );
+            TransactionManager.commitTransaction( _plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( _plugin, e );
+            throw e;
+        }
+
+        _cache.onUpdate( subscription );
 
         return subscription;
     }
 
     /**
-     * Remove the subscription whose identifier is specified in parameter
+     * Remove the subscription whose identifier is specified in parameter, and increment the version of the table in the same transaction
      * 
      * @param nKey
      *            The subscription Id
      */
     public static void remove( int nKey )
     {
-        _dao.delete( nKey, _plugin );
+        TransactionManager.beginTransaction( _plugin );
+        try
+        {
+            _dao.delete( nKey, _plugin );
+            BroadcastTableVersionHome.increment( TABLE_NAME, System.currentTimeMillis( ) );
+            TransactionManager.commitTransaction( _plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( _plugin, e );
+            throw e;
+        }
+
+        _cache.onRemove( nKey );
+    }
+
+    /**
+     * Create subscriptions in a single transaction, using a batch statement
+     * 
+     * @param listSubscriptions
+     *            The subscriptions to create
+     * @return The subscriptions which have been created with their primary key
+     */
+    public static List<Subscription> createAll( List<Subscription> listSubscriptions )
+    {
+        long lNow = System.currentTimeMillis( );
+        for ( Subscription subscription : listSubscriptions )
+        {
+            subscription.setDateUpdate( lNow );
+        }
+
+        TransactionManager.beginTransaction( _plugin );
+        try
+        {
+            _dao.insertAll( listSubscriptions, _plugin );
+            BroadcastTableVersionHome.increment( TABLE_NAME, lNow );
+            TransactionManager.commitTransaction( _plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( _plugin, e );
+            throw e;
+        }
+
+        _cache.onWriteAll( listSubscriptions );
+
+        return listSubscriptions;
+    }
+
+    /**
+     * Update subscriptions in a single transaction, using a batch statement
+     * 
+     * @param listSubscriptions
+     *            The subscriptions to update
+     * @return The subscriptions which have been updated
+     */
+    public static List<Subscription> updateAll( List<Subscription> listSubscriptions )
+    {
+        long lNow = System.currentTimeMillis( );
+        for ( Subscription subscription : listSubscriptions )
+        {
+            subscription.setDateUpdate( lNow );
+        }
+
+        TransactionManager.beginTransaction( _plugin );
+        try
+        {
+            _dao.storeAll( listSubscriptions, _plugin );
+            BroadcastTableVersionHome.increment( TABLE_NAME, lNow );
+            TransactionManager.commitTransaction( _plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( _plugin, e );
+            throw e;
+        }
+
+        _cache.onWriteAll( listSubscriptions );
+
+        return listSubscriptions;
+    }
+
+    /**
+     * Remove subscriptions in a single transaction, using a batch statement
+     * 
+     * @param listKeys
+     *            The subscription Ids
+     */
+    public static void removeAll( List<Integer> listKeys )
+    {
+        TransactionManager.beginTransaction( _plugin );
+        try
+        {
+            _dao.deleteAll( listKeys, _plugin );
+            BroadcastTableVersionHome.increment( TABLE_NAME, System.currentTimeMillis( ) );
+            TransactionManager.commitTransaction( _plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( _plugin, e );
+            throw e;
+        }
+
+        _cache.onRemoveAll( listKeys );
+    }
+
+    /**
+     * Returns the version of the subscription table, incremented by each write of any node. The subscriptions read after this call are at least as
+     * recent as this version : the table copy of the cache is dropped when the version shows a write done by another node.
+     * 
+     * @return the version of the table
+     */
+    public static BroadcastTableVersion getTableVersion( )
+    {
+        BroadcastTableVersion tableVersion = BroadcastTableVersionHome.findByPrimaryKey( TABLE_NAME );
+
+        if ( _bCacheEnabled && tableVersion.getVersion( ) != _lKnownTableVersion )
+        {
+            _cache.onExternalWrite( );
+            _lKnownTableVersion = tableVersion.getVersion( );
+        }
+
+        return tableVersion;
     }
 
     /**
@@ -103,6 +271,26 @@ public final class SubscriptionHome
      * @return an instance of Subscription
      */
     public static Subscription findByPrimaryKey( int nKey )
+    {
+        if ( _bCacheEnabled )
+        {
+            Subscription subscription = _cache.getSnapshot( ).getSubscription( nKey );
+
+            return ( subscription != null ) ? SubscriptionCache.copy( subscription ) : null;
+        }
+
+        return _dao.load( nKey, _plugin );
+    }
+
+    /**
+     * Returns an instance of a subscription whose identifier is specified in parameter, read from the database : the writes of the other nodes are
+     * seen at once, whatever the state of the cache of this node
+     * 
+     * @param nKey
+     *            The subscription primary key
+     * @return an instance of Subscription
+     */
+    public static Subscription findByPrimaryKeyInDatabase( int nKey )
     {
         return _dao.load( nKey, _plugin );
     }
@@ -114,9 +302,159 @@ public final class SubscriptionHome
      */
     public static List<Subscription> getSubscriptionsList( )
     {
+        if ( _bCacheEnabled )
+        {
+            List<Subscription> listSubscriptions = new ArrayList<>( );
+            for ( Subscription subscription : _cache.getSnapshot( ).getSubscriptions( ) )
+            {
+                listSubscriptions.add( SubscriptionCache.copy( subscription ) );
+            }
+
+            return listSubscriptions;
+        }
+
         return _dao.selectSubscriptionsList( _plugin );
     }
 
+    /**
+     * Load the subscriptions matching a filter
+     * 
+     * @param filter
+     *            the filter
+     * @return the list which contains the data of the matching subscriptions
+     */
+    public static List<Subscription> getSubscriptionsList( SubscriptionFilter filter )
+    {
+        if ( _bCacheEnabled )
+        {
+            List<Subscription> listSubscriptions = new ArrayList<>( );
+            for ( Subscription subscription : _cache.getSnapshot( ).getSubscriptions( ) )
+            {
+                if ( filter.matches( subscription ) )
+                {
+                    listSubscriptions.add( SubscriptionCache.copy( subscription ) );
+                }
+            }
+
+            return listSubscriptions;
+        }
+
+        return _dao.selectSubscriptionsList( filter, _plugin );
+    }
+
+    /**
+     * Load the subscriptions to a demand type
+     * 
+     * @param nDemandTypeId
+     *            the demand type id
+     * @return the list which contains the data of the subscriptions to the demand type
+     */
+    public static List<Subscription> getSubscriptionsListByDemandTypeId( int nDemandTypeId )
+    {
+        SubscriptionFilter filter = new SubscriptionFilter( );
+        filter.setDemandTypeId( nDemandTypeId );
+
+        return getSubscriptionsList( filter );
+    }
+
+    /**
+     * Load the subscriptions to one of several demand types
+     * 
+     * @param collectionDemandTypeIds
+     *            the demand type ids
+     * @return the list which contains the data of the subscriptions to the demand types
+     */
+    public static List<Subscription> getSubscriptionsListByDemandTypeIds( Collection<Integer> collectionDemandTypeIds )
+    {
+        SubscriptionFilter filter = new SubscriptionFilter( );
+        filter.setDemandTypeIds( collectionDemandTypeIds );
+
+        return getSubscriptionsList( filter );
+    }
+
+    /**
+     * Load the subscriptions of a mail
+     * 
+     * @param strMail
+     *            the mail
+     * @return the list which contains the data of the subscriptions of the mail
+     */
+    public static List<Subscription> getSubscriptionsListByMail( String strMail )
+    {
+        SubscriptionFilter filter = new SubscriptionFilter( );
+        filter.setMail( strMail );
+
+        return getSubscriptionsList( filter );
+    }
+
+    /**
+     * Load the subscriptions with a frequency
+     * 
+     * @param nFrequency
+     *            the frequency
+     * @return the list which contains the data of the subscriptions with the frequency
+     */
+    public static List<Subscription> getSubscriptionsListByFrequency( int nFrequency )
+    {
+        SubscriptionFilter filter = new SubscriptionFilter( );
+        filter.setFrequency( nFrequency );
+
+        return getSubscriptionsList( filter );
+    }
+
+    /**
+     * Load a page of subscriptions matching a filter, ordered by id (keyset pagination)
+     * 
+     * @param filter
+     *            the filter
+     * @param nAfterId
+     *            the id of the last subscription of the previous page (0 for the first page)
+     * @param nLimit
+     *            the size of the page
+     * @return the list which contains the subscriptions of the page
+     */
+    public static List<Subscription> getSubscriptionsList( SubscriptionFilter filter, int nAfterId, int nLimit )
+    {
+        List<Subscription> listSubscriptions = new ArrayList<>( );
+        _dao.selectSubscriptionsList( filter, nAfterId, nLimit, listSubscriptions::add, _plugin );
+
+        return listSubscriptions;
+    }
+
+    /**
+     * Load a page of the subscriptions matching a filter. The page is always sorted and sliced by the database, so that its cost depends on the size
+     * of the page and not on the number of subscriptions.
+     * 
+     * @param filter
+     *            the filter
+     * @param strSortedAttributeName
+     *            the attribute of the subscriptions to sort on (demandTypeId, mail or frequency), or null to sort by id
+     * @param bSortAsc
+     *            true for an ascending sort
+     * @param nOffset
+     *            the number of matching subscriptions to skip
+     * @param nLimit
+     *            the size of the page
+     * @return the list which contains the subscriptions of the page
+     */
+    public static List<Subscription> getSubscriptionsList( SubscriptionFilter filter, String strSortedAttributeName, boolean bSortAsc, int nOffset,
+            int nLimit )
+    {
+        return _dao.selectSubscriptionsList( filter, strSortedAttributeName, bSortAsc, nOffset, nLimit, _plugin );
+    }
+
+    /**
+     * Count the subscriptions matching a filter
+     * 
+     * @param filter
+     *            the filter
+     * @return the number of matching subscriptions
+     */
+    public static int getSubscriptionsCount( SubscriptionFilter filter )
+    {
+        return _dao.countSubscriptions( filter, _plugin );
+    }
+
     /**
      * Load the id of all the subscription objects and returns them as a list
      * 
@@ -124,6 +462,17 @@ public final class SubscriptionHome
      */
     public static List<Integer> getIdSubscriptionsList( )
     {
+        if ( _bCacheEnabled )
+        {
+            List<Integer> listIds = new ArrayList<>( );
+            for ( Subscription subscription : _cache.getSnapshot( ).getSubscriptions( ) )
+            {
+                listIds.add( subscription.getId( ) );
+            }
+
+            return listIds;
+        }
+
         return _dao.selectIdSubscriptionsList( _plugin );
     }
 
@@ -134,6 +483,71 @@ public final class SubscriptionHome
      */
     public static ReferenceList getSubscriptionsReferenceList( )
     {
+        if ( _bCacheEnabled )
+        {
+            ReferenceList referenceList = new ReferenceList( );
+            for ( Subscription subscription : _cache.getSnapshot( ).getSubscriptions( ) )
+            {
+                referenceList.addItem( subscription.getId( ), subscription.getMail( ) );
+            }
+
+            return referenceList;
+        }
+
         return _dao.selectSubscriptionsReferenceList( _plugin );
     }
+
+    /**
+     * Get the broadcast feeds : the mails of the subscribers grouped by demand type id and frequency
+     * 
+     * @return the index of the broadcast feeds
+     */
+    public static BroadcastFeedIndex getBroadcastFeedIndex( )
+    {
+        if ( _bCacheEnabled )
+        {
+            return _cache.getFeedIndex( );
+        }
+
+        return new BroadcastFeedIndex( _dao.selectSubscriptionsList( _plugin ) );
+    }
+
+    /**
+     * Get the broadcast feeds of some demand types
+     * 
+     * @param collectionDemandTypeIds
+     *            the demand type ids
+     * @return the index of the broadcast feeds of the demand types
+     */
+    public static BroadcastFeedIndex getBroadcastFeedIndex( Collection<Integer> collectionDemandTypeIds )
+    {
+        SubscriptionFilter filter = new SubscriptionFilter( );
+        filter.setDemandTypeIds( collectionDemandTypeIds );
+
+        if ( _bCacheEnabled )
+        {
+            List<Subscription> listSubscriptions = new ArrayList<>( );
+            for ( Subscription subscription : _cache.getSnapshot( ).getSubscriptions( ) )
+            {
+                if ( filter.matches( subscription ) )
+                {
+                    listSubscriptions.add( subscription );
+                }
+            }
+
+            return new BroadcastFeedIndex( listSubscriptions );
+        }
+
+        return new BroadcastFeedIndex( _dao.selectSubscriptionsList( filter, _plugin ) );
+    }
+
+    /**
+     * Returns the cache of the subscription table, for statistics purpose
+     * 
+     * @return the cache
+     */
+    public static SubscriptionCache getCache( )
+    {
+        return _cache;
+    }
 }
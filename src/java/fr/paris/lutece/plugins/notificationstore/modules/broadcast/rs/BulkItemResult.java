@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.rs;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Result of one item of a bulk request
+ */
+public class BulkItemResult
+{
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_ERROR = "ERROR";
+
+    private final int _nIndex;
+    private int _nId;
+    private String _strStatus = STATUS_OK;
+    private String _strMessage;
+
+    /**
+     * Constructor
+     * 
+     * @param nIndex
+     *            the index of the item in the request
+     */
+    public BulkItemResult( int nIndex )
+    {
+        _nIndex = nIndex;
+    }
+
+    /**
+     * Returns the index of the item in the request
+     * 
+     * @return The Index
+     */
+    public int getIndex( )
+    {
+        return _nIndex;
+    }
+
+    /**
+     * Returns the id of the subscription
+     * 
+     * @return The Id
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    /**
+     * Sets the id of the subscription
+     * 
+     * @param nId
+     *            The Id
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * Returns the status (OK or ERROR)
+     * 
+     * @return The Status
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Returns the error message
+     * 
+     * @return The Message
+     */
+    public String getMessage( )
+    {
+        return _strMessage;
+    }
+
+    /**
+     * Mark the item in error
+     * 
+     * @param strMessage
+     *            The error message
+     */
+    public void setError( String strMessage )
+    {
+        _strStatus = STATUS_ERROR;
+        _strMessage = strMessage;
+    }
+
+    /**
+     * Returns true if the item is not in error
+     * 
+     * @return true if the item is OK
+     */
+    @JsonIgnore
+    public boolean isOk( )
+    {
+        return STATUS_OK.equals( _strStatus );
+    }
+}
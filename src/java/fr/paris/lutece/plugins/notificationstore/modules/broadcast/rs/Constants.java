@@ -54,12 +54,32 @@ public final class Constants
     public static final String ERROR_NOT_FOUND_VERSION = "Version not found";
     public static final String ERROR_NOT_FOUND_RESOURCE = "Resource not found";
     public static final String ERROR_BAD_REQUEST_EMPTY_PARAMETER = "Empty parameter";
+    public static final String ERROR_BAD_REQUEST_INVALID_PARAMETER = "Invalid parameter";
+    public static final String ERROR_BAD_REQUEST_INVALID_BODY = "The body must be a JSON array";
+    public static final String ERROR_BAD_REQUEST_TOO_MANY_ITEMS = "Too many items";
+    public static final String ERROR_BATCH_REJECTED = "Batch rejected by the database";
 
     public static final String SUBSCRIPTION_PATH = "/subscriptions";
+    public static final String BULK_PATH = "/bulk";
+    public static final String BULK_DELETE_PATH = "/bulk/delete";
+    public static final String SUBSCRIPTION_ATTRIBUTE_ID = "id";
     public static final String SUBSCRIPTION_ATTRIBUTE_DEMAND_TYPE_ID = "demand_type_id";
     public static final String SUBSCRIPTION_ATTRIBUTE_MAIL = "mail";
     public static final String SUBSCRIPTION_ATTRIBUTE_FREQUENCY = "frequency";
 
+    public static final String STATS_PATH = "/stats";
+    public static final String STATS_ATTRIBUTE_NB_RUNS = "nbRuns";
+    public static final String STATS_ATTRIBUTE_LAST_RUN = "lastRun";
+    public static final String STATS_ATTRIBUTE_DEMAND_TYPES = "demandTypes";
+    public static final String STATS_ATTRIBUTE_SENDER = "sender";
+
+    public static final String PARAMETER_AFTER = "after";
+    public static final String PARAMETER_LIMIT = "limit";
+    public static final String PARAMETER_STREAM = "stream";
+    public static final String PARAMETER_DEMAND_TYPE_ID = "demand_type_id";
+    public static final String PARAMETER_MAIL = "mail";
+    public static final String PARAMETER_FREQUENCY = "frequency";
+
     /**
      * Private constructor
      */
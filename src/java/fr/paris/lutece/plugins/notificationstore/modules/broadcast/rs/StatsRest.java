@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.rs;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.service.BroadcastMetrics;
+import fr.paris.lutece.plugins.rest.service.RestConstants;
+import fr.paris.lutece.util.json.ErrorJsonResponse;
+import fr.paris.lutece.util.json.JsonResponse;
+import fr.paris.lutece.util.json.JsonUtil;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * StatsRest : the metrics of the broadcast on this node
+ */
+@Path( RestConstants.BASE_PATH + Constants.API_PATH + Constants.VERSION_PATH + Constants.STATS_PATH )
+public class StatsRest
+{
+    private static final int VERSION_1 = 1;
+    private final Logger _logger = Logger.getLogger( RestConstants.REST_LOGGER );
+
+    /**
+     * Get the broadcast metrics
+     * 
+     * @param nVersion
+     *            the API version
+     * @return the metrics of the last run, of the demand types (the most time consuming first) and of the mail sender
+     */
+    @GET
+    @Path( StringUtils.EMPTY )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getStats( @PathParam( Constants.VERSION ) Integer nVersion )
+    {
+        if ( nVersion == VERSION_1 )
+        {
+            return getStatsV1( );
+        }
+        _logger.error( Constants.ERROR_NOT_FOUND_VERSION );
+        return Response.status( Response.Status.NOT_FOUND )
+                .entity( JsonUtil.buildJsonResponse( new ErrorJsonResponse( Response.Status.NOT_FOUND.name( ), Constants.ERROR_NOT_FOUND_VERSION ) ) ).build( );
+    }
+
+    /**
+     * Get the broadcast metrics V1
+     * 
+     * @return the broadcast metrics for the version 1
+     */
+    private Response getStatsV1( )
+    {
+        Map<String, Object> mapStats = new LinkedHashMap<>( );
+        mapStats.put( Constants.STATS_ATTRIBUTE_NB_RUNS, BroadcastMetrics.getNbRuns( ) );
+        mapStats.put( Constants.STATS_ATTRIBUTE_LAST_RUN, BroadcastMetrics.getLastRun( ) );
+        mapStats.put( Constants.STATS_ATTRIBUTE_DEMAND_TYPES, BroadcastMetrics.getDemandTypeMetricsList( ) );
+        mapStats.put( Constants.STATS_ATTRIBUTE_SENDER, BroadcastMetrics.getSenderMetrics( ) );
+
+        return Response.status( Response.Status.OK ).entity( JsonUtil.buildJsonResponse( new JsonResponse( mapStats ) ) ).build( );
+    }
+}
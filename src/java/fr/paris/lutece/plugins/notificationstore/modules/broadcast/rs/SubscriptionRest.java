@@ -34,16 +34,28 @@
 
 package fr.paris.lutece.plugins.notificationstore.modules.broadcast.rs;
 
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastTableVersion;
 import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.SubscriptionFilter;
 import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.SubscriptionHome;
 import fr.paris.lutece.plugins.rest.service.RestConstants;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.json.ErrorJsonResponse;
 import fr.paris.lutece.util.json.JsonResponse;
 import fr.paris.lutece.util.json.JsonUtil;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -52,7 +64,12 @@ import javax.ws.rs.DELETE;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 /**
@@ -62,23 +79,48 @@ import javax.ws.rs.core.Response;
 public class SubscriptionRest
 {
     private static final int VERSION_1 = 1;
+    private static final String PROPERTY_MAX_LIMIT = "notificationstore-broadcast.api.subscriptions.maxLimit";
+    private static final int MAX_LIMIT = AppPropertiesService.getPropertyInt( PROPERTY_MAX_LIMIT, 1000 );
+    private static final String PROPERTY_BULK_MAX_SIZE = "notificationstore-broadcast.api.subscriptions.bulk.maxSize";
+    private static final int BULK_MAX_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_BULK_MAX_SIZE, 1000 );
+    private static final ObjectMapper _mapper = new ObjectMapper( );
     private final Logger _logger = Logger.getLogger( RestConstants.REST_LOGGER );
 
     /**
      * Get Subscription List
      * 
+     * @param requestContext
+     *            the request context, evaluating the conditional headers
+     * @param httpHeaders
+     *            the headers of the request
      * @param nVersion
      *            the API version
+     * @param nAfter
+     *            the id of the last subscription of the previous page (optional)
+     * @param nLimit
+     *            the size of the page (optional)
+     * @param bStream
+     *            true to write the subscriptions as they are read from the database
+     * @param strDemandTypeIds
+     *            the comma separated demand type ids of the subscriptions (optional)
+     * @param strMail
+     *            the mail of the subscriptions (optional)
+     * @param nFrequency
+     *            the frequency of the subscriptions (optional)
      * @return the Subscription List
      */
     @GET
     @Path( StringUtils.EMPTY )
     @Produces( MediaType.APPLICATION_JSON )
-    public Response getSubscriptionList( @PathParam( Constants.VERSION ) Integer nVersion )
+    public Response getSubscriptionList( @Context Request requestContext, @Context HttpHeaders httpHeaders,
+            @PathParam( Constants.VERSION ) Integer nVersion, @QueryParam( Constants.PARAMETER_AFTER ) Integer nAfter,
+            @QueryParam( Constants.PARAMETER_LIMIT ) Integer nLimit, @QueryParam( Constants.PARAMETER_STREAM ) boolean bStream,
+            @QueryParam( Constants.PARAMETER_DEMAND_TYPE_ID ) String strDemandTypeIds, @QueryParam( Constants.PARAMETER_MAIL ) String strMail,
+            @QueryParam( Constants.PARAMETER_FREQUENCY ) Integer nFrequency )
     {
         if ( nVersion == VERSION_1 )
         {
-            return getSubscriptionListV1( );
+            return getSubscriptionListV1( requestContext, httpHeaders, nAfter, nLimit, bStream, strDemandTypeIds, strMail, nFrequency );
         }
         _logger.error( Constants.ERROR_NOT_FOUND_VERSION );
         return Response.status( Response.Status.NOT_FOUND )
@@ -86,19 +128,99 @@ public class SubscriptionRest
     }
 
     /**
-     * Get Subscription List V1
+     * Get Subscription List V1. The list is tagged with the version of the subscription table : while no subscription is written, a client sending
+     * the tag back gets a 304 response, without reading nor serializing the subscriptions.
      * 
+     * @param requestContext
+     *            the request context, evaluating the conditional headers
+     * @param httpHeaders
+     *            the headers of the request
+     * @param nAfter
+     *            the id of the last subscription of the previous page (optional)
+     * @param nLimit
+     *            the size of the page (optional)
+     * @param bStream
+     *            true to write the subscriptions as they are read from the database
+     * @param strDemandTypeIds
+     *            the comma separated demand type ids of the subscriptions (optional)
+     * @param strMail
+     *            the mail of the subscriptions (optional)
+     * @param nFrequency
+     *            the frequency of the subscriptions (optional)
      * @return the Subscription List for the version 1
      */
-    private Response getSubscriptionListV1( )
+    private Response getSubscriptionListV1( Request requestContext, HttpHeaders httpHeaders, Integer nAfter, Integer nLimit, boolean bStream, String strDemandTypeIds,
+            String strMail, Integer nFrequency )
     {
-        List<Subscription> listSubscriptions = SubscriptionHome.getSubscriptionsList( );
+        SubscriptionFilter filter = new SubscriptionFilter( );
+        boolean bValidFilter = true;
+        try
+        {
+            if ( StringUtils.isNotBlank( strDemandTypeIds ) )
+            {
+                List<Integer> listDemandTypeIds = new ArrayList<>( );
+                for ( String strDemandTypeId : StringUtils.split( strDemandTypeIds, ',' ) )
+                {
+                    listDemandTypeIds.add( Integer.parseInt( strDemandTypeId.trim( ) ) );
+                }
+                filter.setDemandTypeIds( listDemandTypeIds );
+            }
+        }
+        catch( NumberFormatException e )
+        {
+            bValidFilter = false;
+        }
+        if ( nFrequency != null )
+        {
+            bValidFilter = bValidFilter && nFrequency > 0;
+            filter.setFrequency( nFrequency );
+        }
+        filter.setMail( strMail );
+
+        if ( !bValidFilter || ( nAfter != null && nAfter < 0 ) || ( nLimit != null && ( nLimit <= 0 || ( !bStream && nLimit > MAX_LIMIT ) ) ) )
+        {
+            _logger.error( Constants.ERROR_BAD_REQUEST_INVALID_PARAMETER );
+            return Response.status( Response.Status.BAD_REQUEST )
+                    .entity( JsonUtil
+                            .buildJsonResponse( new ErrorJsonResponse( Response.Status.BAD_REQUEST.name( ), Constants.ERROR_BAD_REQUEST_INVALID_PARAMETER ) ) )
+                    .build( );
+        }
+
+        int nAfterId = ( nAfter != null ) ? nAfter : 0;
+
+        // the version is read before the subscriptions, so that the tag is never more recent than the list
+        BroadcastTableVersion tableVersion = SubscriptionHome.getTableVersion( );
+        EntityTag etag = new EntityTag( Long.toHexString( tableVersion.getVersion( ) ) );
+        Response.ResponseBuilder builderNotModified = evaluatePreconditions( requestContext, httpHeaders, etag, tableVersion.getDateUpdate( ) );
+        if ( builderNotModified != null )
+        {
+            return builderNotModified.build( );
+        }
+
+        if ( bStream )
+        {
+            // the subscriptions are read by pages of the maximum size, so the limit of the response is not bounded
+            return withValidators( Response.status( Response.Status.OK )
+                    .entity( new SubscriptionStreamingOutput( filter, nAfterId, ( nLimit != null ) ? nLimit : 0, MAX_LIMIT ) ), etag,
+                    tableVersion.getDateUpdate( ) ).build( );
+        }
+
+        List<Subscription> listSubscriptions;
+        if ( nAfter == null && nLimit == null )
+        {
+            listSubscriptions = filter.isEmpty( ) ? SubscriptionHome.getSubscriptionsList( ) : SubscriptionHome.getSubscriptionsList( filter );
+        }
+        else
+        {
+            listSubscriptions = SubscriptionHome.getSubscriptionsList( filter, nAfterId, ( nLimit != null ) ? nLimit : MAX_LIMIT );
+        }
 
         if ( listSubscriptions.isEmpty( ) )
         {
             return Response.status( Response.Status.NO_CONTENT ).entity( JsonUtil.buildJsonResponse( new JsonResponse( Constants.EMPTY_OBJECT ) ) ).build( );
         }
-        return Response.status( Response.Status.OK ).entity( JsonUtil.buildJsonResponse( new JsonResponse( listSubscriptions ) ) ).build( );
+        return withValidators( Response.status( Response.Status.OK ).entity( JsonUtil.buildJsonResponse( new JsonResponse( listSubscriptions ) ) ), etag,
+                tableVersion.getDateUpdate( ) ).build( );
     }
 
     /**
@@ -283,6 +405,10 @@ public class SubscriptionRest
     /**
      * Get Subscription
      * 
+     * @param requestContext
+     *            the request context, evaluating the conditional headers
+     * @param httpHeaders
+     *            the headers of the request
      * @param nVersion
      *            the API version
      * @param id
@@ -292,11 +418,12 @@ public class SubscriptionRest
     @GET
     @Path( Constants.ID_PATH )
     @Produces( MediaType.APPLICATION_JSON )
-    public Response getSubscription( @PathParam( Constants.VERSION ) Integer nVersion, @PathParam( Constants.ID ) Integer id )
+    public Response getSubscription( @Context Request requestContext, @Context HttpHeaders httpHeaders,
+            @PathParam( Constants.VERSION ) Integer nVersion, @PathParam( Constants.ID ) Integer id )
     {
         if ( nVersion == VERSION_1 )
         {
-            return getSubscriptionV1( id );
+            return getSubscriptionV1( requestContext, httpHeaders, id );
         }
         _logger.error( Constants.ERROR_NOT_FOUND_VERSION );
         return Response.status( Response.Status.NOT_FOUND )
@@ -304,15 +431,20 @@ public class SubscriptionRest
     }
 
     /**
-     * Get Subscription V1
+     * Get Subscription V1. The subscription is tagged with its own version, so that its tag does not change with the writes of the other
+     * subscriptions. It is read from the database : the cache of this node may not know the last writes of the other nodes yet.
      * 
+     * @param requestContext
+     *            the request context, evaluating the conditional headers
+     * @param httpHeaders
+     *            the headers of the request
      * @param id
      *            the id
      * @return the Subscription for the version 1
      */
-    private Response getSubscriptionV1( Integer id )
+    private Response getSubscriptionV1( Request requestContext, HttpHeaders httpHeaders, Integer id )
     {
-        Subscription subscription = SubscriptionHome.findByPrimaryKey( id );
+        Subscription subscription = SubscriptionHome.findByPrimaryKeyInDatabase( id );
         if ( subscription == null )
         {
             _logger.error( Constants.ERROR_NOT_FOUND_RESOURCE );
@@ -321,6 +453,331 @@ public class SubscriptionRest
                     .build( );
         }
 
-        return Response.status( Response.Status.OK ).entity( JsonUtil.buildJsonResponse( new JsonResponse( subscription ) ) ).build( );
+        // two writes in the same millisecond are told apart by the content
+        EntityTag etag = new EntityTag( Long.toHexString( subscription.getDateUpdate( ) ) + '-'
+                + Integer.toHexString( Objects.hash( subscription.getDemandTypeId( ), subscription.getMail( ), subscription.getFrequency( ) ) ) );
+        Response.ResponseBuilder builderNotModified = evaluatePreconditions( requestContext, httpHeaders, etag, subscription.getDateUpdate( ) );
+        if ( builderNotModified != null )
+        {
+            return builderNotModified.build( );
+        }
+
+        return withValidators( Response.status( Response.Status.OK ).entity( JsonUtil.buildJsonResponse( new JsonResponse( subscription ) ) ), etag,
+                subscription.getDateUpdate( ) ).build( );
+    }
+
+    /**
+     * Evaluate the If-None-Match and If-Modified-Since headers of a request. When the request has a tag, only the tag is evaluated : the date has a
+     * precision of one second, and would miss the writes done in the second of the last modification.
+     * 
+     * @param requestContext
+     *            the request context
+     * @param httpHeaders
+     *            the headers of the request
+     * @param etag
+     *            the tag of the current version of the resource
+     * @param lLastModified
+     *            the date of the last write of the resource, 0 if unknown
+     * @return a 304 response builder if the client has the current version, null otherwise
+     */
+    private static Response.ResponseBuilder evaluatePreconditions( Request requestContext, HttpHeaders httpHeaders, EntityTag etag,
+            long lLastModified )
+    {
+        boolean bTagged = httpHeaders.getHeaderString( HttpHeaders.IF_NONE_MATCH ) != null;
+        Response.ResponseBuilder builder = ( lLastModified > 0 && !bTagged ) ? requestContext.evaluatePreconditions( new Date( lLastModified ), etag )
+                : requestContext.evaluatePreconditions( etag );
+
+        return ( builder != null ) ? withValidators( builder, etag, lLastModified ) : null;
+    }
+
+    /**
+     * Add the ETag and Last-Modified headers to a response
+     * 
+     * @param builder
+     *            the response builder
+     * @param etag
+     *            the tag of the current version of the resource
+     * @param lLastModified
+     *            the date of the last write of the resource, 0 if unknown
+     * @return the response builder
+     */
+    private static Response.ResponseBuilder withValidators( Response.ResponseBuilder builder, EntityTag etag, long lLastModified )
+    {
+        builder.tag( etag );
+        if ( lLastModified > 0 )
+        {
+            builder.lastModified( new Date( lLastModified ) );
+        }
+
+        return builder;
+    }
+
+    /**
+     * Create Subscriptions in bulk
+     * 
+     * @param nVersion
+     *            the API version
+     * @param strBody
+     *            the JSON array of the subscriptions (demand_type_id, mail, frequency)
+     * @return the result of each item
+     */
+    @POST
+    @Path( Constants.BULK_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response createSubscriptions( @PathParam( Constants.VERSION ) Integer nVersion, String strBody )
+    {
+        if ( nVersion == VERSION_1 )
+        {
+            return processBulkV1( strBody, BulkOperation.CREATE );
+        }
+        _logger.error( Constants.ERROR_NOT_FOUND_VERSION );
+        return Response.status( Response.Status.NOT_FOUND )
+                .entity( JsonUtil.buildJsonResponse( new ErrorJsonResponse( Response.Status.NOT_FOUND.name( ), Constants.ERROR_NOT_FOUND_VERSION ) ) ).build( );
+    }
+
+    /**
+     * Modify Subscriptions in bulk
+     * 
+     * @param nVersion
+     *            the API version
+     * @param strBody
+     *            the JSON array of the subscriptions (id, demand_type_id, mail, frequency)
+     * @return the result of each item
+     */
+    @PUT
+    @Path( Constants.BULK_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response modifySubscriptions( @PathParam( Constants.VERSION ) Integer nVersion, String strBody )
+    {
+        if ( nVersion == VERSION_1 )
+        {
+            return processBulkV1( strBody, BulkOperation.UPDATE );
+        }
+        _logger.error( Constants.ERROR_NOT_FOUND_VERSION );
+        return Response.status( Response.Status.NOT_FOUND )
+                .entity( JsonUtil.buildJsonResponse( new ErrorJsonResponse( Response.Status.NOT_FOUND.name( ), Constants.ERROR_NOT_FOUND_VERSION ) ) ).build( );
+    }
+
+    /**
+     * Delete Subscriptions in bulk
+     * 
+     * @param nVersion
+     *            the API version
+     * @param strBody
+     *            the JSON array of the subscription ids
+     * @return the result of each item
+     */
+    @POST
+    @Path( Constants.BULK_DELETE_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response deleteSubscriptions( @PathParam( Constants.VERSION ) Integer nVersion, String strBody )
+    {
+        if ( nVersion == VERSION_1 )
+        {
+            return processBulkV1( strBody, BulkOperation.DELETE );
+        }
+        _logger.error( Constants.ERROR_NOT_FOUND_VERSION );
+        return Response.status( Response.Status.NOT_FOUND )
+                .entity( JsonUtil.buildJsonResponse( new ErrorJsonResponse( Response.Status.NOT_FOUND.name( ), Constants.ERROR_NOT_FOUND_VERSION ) ) ).build( );
+    }
+
+    /**
+     * Process a bulk request V1 : the valid items are written in a single transaction with batch statements, the invalid ones are reported in error
+     * 
+     * @param strBody
+     *            the JSON array of the items
+     * @param operation
+     *            the bulk operation
+     * @return the result of each item for the version 1
+     */
+    private Response processBulkV1( String strBody, BulkOperation operation )
+    {
+        JsonNode nodeItems;
+        try
+        {
+            nodeItems = StringUtils.isEmpty( strBody ) ? null : _mapper.readTree( strBody );
+        }
+        catch( IOException e )
+        {
+            nodeItems = null;
+        }
+
+        if ( nodeItems == null || !nodeItems.isArray( ) )
+        {
+            _logger.error( Constants.ERROR_BAD_REQUEST_INVALID_BODY );
+            return Response.status( Response.Status.BAD_REQUEST )
+                    .entity( JsonUtil.buildJsonResponse( new ErrorJsonResponse( Response.Status.BAD_REQUEST.name( ), Constants.ERROR_BAD_REQUEST_INVALID_BODY ) ) )
+                    .build( );
+        }
+        if ( nodeItems.size( ) > BULK_MAX_SIZE )
+        {
+            _logger.error( Constants.ERROR_BAD_REQUEST_TOO_MANY_ITEMS );
+            return Response.status( Response.Status.BAD_REQUEST )
+                    .entity( JsonUtil
+                            .buildJsonResponse( new ErrorJsonResponse( Response.Status.BAD_REQUEST.name( ), Constants.ERROR_BAD_REQUEST_TOO_MANY_ITEMS ) ) )
+                    .build( );
+        }
+
+        List<BulkItemResult> listResults = new ArrayList<>( );
+        List<BulkItemResult> listValidResults = new ArrayList<>( );
+        List<Subscription> listSubscriptions = new ArrayList<>( );
+
+        for ( int i = 0; i < nodeItems.size( ); i++ )
+        {
+            BulkItemResult result = new BulkItemResult( i );
+            listResults.add( result );
+
+            try
+            {
+                Subscription subscription = parseBulkItem( nodeItems.get( i ), operation );
+                result.setId( subscription.getId( ) );
+                listSubscriptions.add( subscription );
+                listValidResults.add( result );
+            }
+            catch( IllegalArgumentException e )
+            {
+                result.setError( e.getMessage( ) );
+            }
+        }
+
+        if ( !listSubscriptions.isEmpty( ) )
+        {
+            try
+            {
+                writeBulk( listSubscriptions, operation );
+
+                for ( int i = 0; i < listSubscriptions.size( ); i++ )
+                {
+                    listValidResults.get( i ).setId( listSubscriptions.get( i ).getId( ) );
+                }
+            }
+            catch( RuntimeException e )
+            {
+                // the transaction has been rolled back : none of the items has been written
+                _logger.error( Constants.ERROR_BATCH_REJECTED, e );
+                for ( BulkItemResult result : listValidResults )
+                {
+                    result.setError( Constants.ERROR_BATCH_REJECTED );
+                }
+            }
+        }
+
+        return Response.status( Response.Status.OK ).entity( JsonUtil.buildJsonResponse( new JsonResponse( listResults ) ) ).build( );
+    }
+
+    /**
+     * Parse and check an item of a bulk request
+     * 
+     * @param nodeItem
+     *            the item
+     * @param operation
+     *            the bulk operation
+     * @return the subscription (only the id is set for a deletion)
+     * @throws IllegalArgumentException
+     *             if the item is not valid
+     */
+    private Subscription parseBulkItem( JsonNode nodeItem, BulkOperation operation )
+    {
+        Subscription subscription = new Subscription( );
+
+        if ( operation == BulkOperation.DELETE )
+        {
+            subscription.setId( parseInt( nodeItem.isObject( ) ? nodeItem.path( Constants.SUBSCRIPTION_ATTRIBUTE_ID ) : nodeItem ) );
+        }
+        else
+        {
+            if ( operation == BulkOperation.UPDATE )
+            {
+                subscription.setId( parseInt( nodeItem.path( Constants.SUBSCRIPTION_ATTRIBUTE_ID ) ) );
+            }
+
+            String strMail = nodeItem.path( Constants.SUBSCRIPTION_ATTRIBUTE_MAIL ).asText( );
+            if ( StringUtils.isEmpty( strMail ) )
+            {
+                throw new IllegalArgumentException( Constants.ERROR_BAD_REQUEST_EMPTY_PARAMETER );
+            }
+            subscription.setDemandTypeId( parseInt( nodeItem.path( Constants.SUBSCRIPTION_ATTRIBUTE_DEMAND_TYPE_ID ) ) );
+            subscription.setMail( strMail );
+            subscription.setFrequency( parseInt( nodeItem.path( Constants.SUBSCRIPTION_ATTRIBUTE_FREQUENCY ) ) );
+        }
+
+        if ( operation != BulkOperation.CREATE && SubscriptionHome.findByPrimaryKey( subscription.getId( ) ) == null )
+        {
+            throw new IllegalArgumentException( Constants.ERROR_NOT_FOUND_RESOURCE );
+        }
+
+        return subscription;
+    }
+
+    /**
+     * Parse an integer value of a bulk item, given as a JSON number or string
+     * 
+     * @param node
+     *            the value
+     * @return the integer
+     * @throws IllegalArgumentException
+     *             if the value is missing or is not an integer
+     */
+    private int parseInt( JsonNode node )
+    {
+        if ( node.isMissingNode( ) || node.isNull( ) || StringUtils.isEmpty( node.asText( ) ) )
+        {
+            throw new IllegalArgumentException( Constants.ERROR_BAD_REQUEST_EMPTY_PARAMETER );
+        }
+        if ( node.isInt( ) )
+        {
+            return node.intValue( );
+        }
+
+        try
+        {
+            return Integer.parseInt( node.asText( ) );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new IllegalArgumentException( Constants.ERROR_BAD_REQUEST_INVALID_PARAMETER );
+        }
+    }
+
+    /**
+     * Write the valid items of a bulk request
+     * 
+     * @param listSubscriptions
+     *            the subscriptions
+     * @param operation
+     *            the bulk operation
+     */
+    private void writeBulk( List<Subscription> listSubscriptions, BulkOperation operation )
+    {
+        switch( operation )
+        {
+            case CREATE:
+                SubscriptionHome.createAll( listSubscriptions );
+                break;
+            case UPDATE:
+                SubscriptionHome.updateAll( listSubscriptions );
+                break;
+            default:
+                List<Integer> listKeys = new ArrayList<>( );
+                for ( Subscription subscription : listSubscriptions )
+                {
+                    listKeys.add( subscription.getId( ) );
+                }
+                SubscriptionHome.removeAll( listKeys );
+                break;
+        }
+    }
+
+    /**
+     * Bulk operations
+     */
+    private enum BulkOperation
+    {
+        CREATE,
+        UPDATE,
+        DELETE
     }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.rs;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.SubscriptionFilter;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.SubscriptionHome;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes the subscription list as a JSON response, page by page : the subscriptions are read by keyset pages of a bounded size, and each page is
+ * written before the next one is read. The JDBC drivers may buffer a whole result set (e.g. MySQL Connector/J), so the memory used is bounded by
+ * the page size rather than by the number of subscriptions. The pages are read by distinct queries : a subscription created or removed during the
+ * response may be missed or written.
+ */
+public class SubscriptionStreamingOutput implements StreamingOutput
+{
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_RESULT = "result";
+    private static final String STATUS_OK = "OK";
+    private static final ObjectMapper _mapper = new ObjectMapper( ).disable( SerializationFeature.FLUSH_AFTER_WRITE_VALUE );
+
+    private final SubscriptionFilter _filter;
+    private final int _nAfterId;
+    private final int _nLimit;
+    private final int _nPageSize;
+
+    /**
+     * Constructor
+     * 
+     * @param filter
+     *            the filter of the subscriptions
+     * @param nAfterId
+     *            the id after which the subscriptions are written (0 to write them all)
+     * @param nLimit
+     *            the maximum number of subscriptions, or 0 for no limit
+     * @param nPageSize
+     *            the number of subscriptions read by query
+     */
+    public SubscriptionStreamingOutput( SubscriptionFilter filter, int nAfterId, int nLimit, int nPageSize )
+    {
+        _filter = filter;
+        _nAfterId = nAfterId;
+        _nLimit = nLimit;
+        _nPageSize = Math.max( 1, nPageSize );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void write( OutputStream output ) throws IOException
+    {
+        try ( JsonGenerator generator = _mapper.getFactory( ).createGenerator( output, JsonEncoding.UTF8 ) )
+        {
+            generator.writeStartObject( );
+            generator.writeStringField( FIELD_STATUS, STATUS_OK );
+            generator.writeArrayFieldStart( FIELD_RESULT );
+
+            int nAfterId = _nAfterId;
+            int nRemaining = ( _nLimit > 0 ) ? _nLimit : Integer.MAX_VALUE;
+            while ( nRemaining > 0 )
+            {
+                int nPageSize = Math.min( _nPageSize, nRemaining );
+                List<Subscription> listSubscriptions = SubscriptionHome.getSubscriptionsList( _filter, nAfterId, nPageSize );
+                for ( Subscription subscription : listSubscriptions )
+                {
+                    _mapper.writeValue( generator, subscription );
+                }
+                // the page is sent before the next one is read
+                generator.flush( );
+
+                if ( listSubscriptions.size( ) < nPageSize )
+                {
+                    break;
+                }
+                nAfterId = listSubscriptions.get( listSubscriptions.size( ) - 1 ).getId( );
+                nRemaining -= listSubscriptions.size( );
+            }
+
+            generator.writeEndArray( );
+            generator.writeEndObject( );
+        }
+    }
+}
@@ -42,15 +42,19 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import org.apache.log4j.Logger;
 
@@ -66,13 +70,19 @@ public class SwaggerRest
     private static final String BASE_INFOS_SCHEMES = "schemes";
     private static final String BASE_INFOS_HOST = "host";
     private static final String BASE_INFOS_BASE_PATH = "basePath";
+    private static final int MAX_CACHED_DOCUMENTS = 32;
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+    // the patched documents, by version and base url
+    private static final Map<String, SwaggerDocument> _mapDocuments = new ConcurrentHashMap<>( );
     private final Logger _logger = Logger.getLogger( RestConstants.REST_LOGGER );
 
     /**
-     * Get Swagger.json
+     * Get Swagger.json. The patched document is kept until the file is modified, and is not sent again to a client which already has it.
      * 
      * @param request
      *            the request
+     * @param requestContext
+     *            the request context, evaluating the If-None-Match header
      * @param strVersion
      *            the version
      * @return the swagger.json
@@ -82,30 +92,36 @@ public class SwaggerRest
     @GET
     @Path( Constants.SWAGGER_PATH )
     @Produces( MediaType.APPLICATION_JSON )
-    public Response getSwagger( @Context HttpServletRequest request, @PathParam( Constants.VERSION ) String strVersion ) throws IOException
+    public Response getSwagger( @Context HttpServletRequest request, @Context Request requestContext, @PathParam( Constants.VERSION ) String strVersion )
+            throws IOException
     {
         File fileJson = new File( getJsonFilePath( strVersion ) );
-        if ( fileJson.exists( ) )
+        // 0 if the file does not exist
+        long lLastModified = fileJson.lastModified( );
+        if ( lLastModified != 0L )
         {
-            Map<String, String> mapBaseInfos = getBaseInfos( AppPathService.getBaseUrl( request ), strVersion );
+            String strBaseUrl = AppPathService.getBaseUrl( request );
+            String strKey = strVersion + '|' + strBaseUrl;
 
-            ObjectMapper mapper = new ObjectMapper( );
-            ObjectNode objectNode = mapper.readValue( fileJson, ObjectNode.class );
-
-            if ( objectNode.path( BASE_INFOS_HOST ).isMissingNode( ) )
-            {
-                objectNode.put( BASE_INFOS_HOST, mapBaseInfos.get( BASE_INFOS_HOST ) );
-            }
-            if ( objectNode.path( BASE_INFOS_SCHEMES ).isMissingNode( ) )
+            SwaggerDocument document = _mapDocuments.get( strKey );
+            if ( document == null || document._lLastModified != lLastModified )
             {
-                objectNode.putArray( BASE_INFOS_SCHEMES ).add( mapBaseInfos.get( BASE_INFOS_SCHEMES ) );
+                document = new SwaggerDocument( lLastModified, buildSwaggerJson( fileJson, strBaseUrl, strVersion ) );
+                if ( _mapDocuments.size( ) >= MAX_CACHED_DOCUMENTS )
+                {
+                    // the base url comes from the request : the cache is not allowed to grow with the host names of the clients
+                    _mapDocuments.clear( );
+                }
+                _mapDocuments.put( strKey, document );
             }
-            if ( objectNode.path( BASE_INFOS_BASE_PATH ).isMissingNode( ) )
+
+            Response.ResponseBuilder builder = requestContext.evaluatePreconditions( document._etag );
+            if ( builder != null )
             {
-                objectNode.put( BASE_INFOS_BASE_PATH, mapBaseInfos.get( BASE_INFOS_BASE_PATH ) );
+                return builder.build( );
             }
-            String strSwaggerJson = mapper.writerWithDefaultPrettyPrinter( ).writeValueAsString( objectNode );
-            return Response.status( Response.Status.OK ).entity( strSwaggerJson ).build( );
+
+            return Response.status( Response.Status.OK ).entity( document._content ).tag( document._etag ).build( );
         }
         _logger.error( Constants.ERROR_NOT_FOUND_RESOURCE );
         return Response.status( Response.Status.NOT_FOUND )
@@ -113,6 +129,40 @@ public class SwaggerRest
                 .build( );
     }
 
+    /**
+     * Read the swagger.json file and fill in the base informations it does not define
+     * 
+     * @param fileJson
+     *            the swagger.json file
+     * @param strBaseUrl
+     *            the base url
+     * @param strVersion
+     *            the version
+     * @return the pretty printed document, encoded in UTF-8
+     * @throws java.io.IOException
+     *             {@link java.io.IOException}
+     */
+    private byte [ ] buildSwaggerJson( File fileJson, String strBaseUrl, String strVersion ) throws IOException
+    {
+        Map<String, String> mapBaseInfos = getBaseInfos( strBaseUrl, strVersion );
+
+        ObjectNode objectNode = _mapper.readValue( fileJson, ObjectNode.class );
+
+        if ( objectNode.path( BASE_INFOS_HOST ).isMissingNode( ) )
+        {
+            objectNode.put( BASE_INFOS_HOST, mapBaseInfos.get( BASE_INFOS_HOST ) );
+        }
+        if ( objectNode.path( BASE_INFOS_SCHEMES ).isMissingNode( ) )
+        {
+            objectNode.putArray( BASE_INFOS_SCHEMES ).add( mapBaseInfos.get( BASE_INFOS_SCHEMES ) );
+        }
+        if ( objectNode.path( BASE_INFOS_BASE_PATH ).isMissingNode( ) )
+        {
+            objectNode.put( BASE_INFOS_BASE_PATH, mapBaseInfos.get( BASE_INFOS_BASE_PATH ) );
+        }
+        return _mapper.writerWithDefaultPrettyPrinter( ).writeValueAsBytes( objectNode );
+    }
+
     /**
      * Get the swagger.json file path
      * 
@@ -160,4 +210,29 @@ public class SwaggerRest
 
         return map;
     }
+
+    /**
+     * A patched swagger.json document, ready to be sent
+     */
+    private static final class SwaggerDocument
+    {
+        private final long _lLastModified;
+        private final byte [ ] _content;
+        private final EntityTag _etag;
+
+        /**
+         * Constructor
+         * 
+         * @param lLastModified
+         *            the modification date of the file
+         * @param content
+         *            the document
+         */
+        SwaggerDocument( long lLastModified, byte [ ] content )
+        {
+            _lLastModified = lLastModified;
+            _content = content;
+            _etag = new EntityTag( Long.toHexString( lLastModified ) + '-' + Integer.toHexString( Arrays.hashCode( content ) ) );
+        }
+    }
 }
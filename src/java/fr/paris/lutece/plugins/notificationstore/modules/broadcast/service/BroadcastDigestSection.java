@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.service.BroadcastEventCollector.EventCounter;
+
+import java.util.List;
+
+/**
+ * The alerts of a demand type in a digest mail
+ */
+public final class BroadcastDigestSection
+{
+    private final int _nDemandTypeId;
+    private final long _lStart;
+    private final long _lEnd;
+    private final BroadcastEventCollector _collector;
+
+    /**
+     * Constructor
+     * 
+     * @param nDemandTypeId
+     *            the demand type id
+     * @param lStart
+     *            the start of the period
+     * @param lEnd
+     *            the end of the period
+     * @param collector
+     *            the events of the period
+     */
+    public BroadcastDigestSection( int nDemandTypeId, long lStart, long lEnd, BroadcastEventCollector collector )
+    {
+        _nDemandTypeId = nDemandTypeId;
+        _lStart = lStart;
+        _lEnd = lEnd;
+        _collector = collector;
+    }
+
+    /**
+     * Returns the demand type id
+     * 
+     * @return the demand type id
+     */
+    public int getDemandTypeId( )
+    {
+        return _nDemandTypeId;
+    }
+
+    /**
+     * Returns the start of the period
+     * 
+     * @return the start of the period
+     */
+    public long getStart( )
+    {
+        return _lStart;
+    }
+
+    /**
+     * Returns the end of the period
+     * 
+     * @return the end of the period
+     */
+    public long getEnd( )
+    {
+        return _lEnd;
+    }
+
+    /**
+     * Returns the events of the period kept in full detail
+     * 
+     * @return the events
+     */
+    public List<NotificationEvent> getNotificationEventList( )
+    {
+        return _collector.getEvents( );
+    }
+
+    /**
+     * Returns the groups of events of the period, by type, status and normalized message
+     * 
+     * @return the groups
+     */
+    public List<BroadcastEventGroup> getGroupList( )
+    {
+        return _collector.getGroupList( );
+    }
+
+    /**
+     * Returns the counters of the events of the period which do not belong to a group, by event type and status
+     * 
+     * @return the counters
+     */
+    public List<EventCounter> getOverflowList( )
+    {
+        return _collector.getOverflowList( );
+    }
+
+    /**
+     * Returns the number of events of the period
+     * 
+     * @return the number of events
+     */
+    public int getNbEvents( )
+    {
+        return _collector.getNbEvents( );
+    }
+
+    /**
+     * Returns the number of events of the period which do not belong to a group
+     * 
+     * @return the number of events
+     */
+    public int getNbOverflowEvents( )
+    {
+        return _collector.getNbOverflowEvents( );
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bounded collector of the events of an alert : the events are grouped by type, status and normalized message, and the first events are kept in
+ * full detail. Once the maximum number of groups is reached, the events of new groups are only counted by event type and status. The memory used by
+ * an alert does not depend on the number of events, and the mail shows a summary instead of the whole incident.
+ */
+public final class BroadcastEventCollector implements Consumer<NotificationEvent>
+{
+    private final int _nMaxDetailedEvents;
+    private final int _nMaxGroups;
+    private final List<NotificationEvent> _listEvent = new ArrayList<>( );
+    private final Map<String, BroadcastEventGroup> _mapGroups = new LinkedHashMap<>( );
+    private final Map<String, EventCounter> _mapOverflowCounters = new LinkedHashMap<>( );
+    private int _nbEvents;
+    private int _nbOverflowEvents;
+    private long _lFirstEventDate = Long.MAX_VALUE;
+    private long _lLastEventDate = Long.MIN_VALUE;
+
+    /**
+     * Constructor
+     * 
+     * @param nMaxDetailedEvents
+     *            the maximum number of events kept in full detail, 0 or less for no limit
+     * @param nMaxGroups
+     *            the maximum number of groups of events, 0 or less for no limit
+     */
+    public BroadcastEventCollector( int nMaxDetailedEvents, int nMaxGroups )
+    {
+        _nMaxDetailedEvents = nMaxDetailedEvents;
+        _nMaxGroups = nMaxGroups;
+    }
+
+    /**
+     * Collect an event
+     * 
+     * @param notificationEvent
+     *            the event
+     */
+    @Override
+    public void accept( NotificationEvent notificationEvent )
+    {
+        _nbEvents++;
+        _lFirstEventDate = Math.min( _lFirstEventDate, notificationEvent.getEvent( ).getEventDate( ) );
+        _lLastEventDate = Math.max( _lLastEventDate, notificationEvent.getEvent( ).getEventDate( ) );
+
+        if ( _nMaxDetailedEvents <= 0 || _listEvent.size( ) < _nMaxDetailedEvents )
+        {
+            _listEvent.add( notificationEvent );
+        }
+
+        String strType = notificationEvent.getEvent( ).getType( );
+        String strStatus = notificationEvent.getEvent( ).getStatus( );
+        String strMessage = notificationEvent.getEvent( ).getMessage( );
+        String strNormalizedMessage = BroadcastEventGroup.normalizeMessage( strMessage );
+        String strGroupKey = strType + '|' + strStatus + '|' + strNormalizedMessage;
+
+        BroadcastEventGroup group = _mapGroups.get( strGroupKey );
+        if ( group == null && ( _nMaxGroups <= 0 || _mapGroups.size( ) < _nMaxGroups ) )
+        {
+            group = new BroadcastEventGroup( strType, strStatus, strMessage, strNormalizedMessage );
+            _mapGroups.put( strGroupKey, group );
+        }
+
+        if ( group != null )
+        {
+            group.add( notificationEvent );
+            return;
+        }
+
+        _nbOverflowEvents++;
+        _mapOverflowCounters.computeIfAbsent( strType + '|' + strStatus, k -> new EventCounter( strType, strStatus ) ).increment( );
+    }
+
+    /**
+     * Collect events
+     * 
+     * @param listEvent
+     *            the events
+     */
+    public void acceptAll( List<NotificationEvent> listEvent )
+    {
+        for ( NotificationEvent notificationEvent : listEvent )
+        {
+            accept( notificationEvent );
+        }
+    }
+
+    /**
+     * Returns the events kept in full detail
+     * 
+     * @return the events
+     */
+    public List<NotificationEvent> getEvents( )
+    {
+        return Collections.unmodifiableList( _listEvent );
+    }
+
+    /**
+     * Returns the groups of events
+     * 
+     * @return the groups, in the order of their first event
+     */
+    public List<BroadcastEventGroup> getGroupList( )
+    {
+        return new ArrayList<>( _mapGroups.values( ) );
+    }
+
+    /**
+     * Returns the counters of the events which do not belong to a group, by event type and status
+     * 
+     * @return the counters, in the order of their first event
+     */
+    public List<EventCounter> getOverflowList( )
+    {
+        return new ArrayList<>( _mapOverflowCounters.values( ) );
+    }
+
+    /**
+     * Returns the number of collected events, kept in detail or not
+     * 
+     * @return the number of events
+     */
+    public int getNbEvents( )
+    {
+        return _nbEvents;
+    }
+
+    /**
+     * Returns the number of events which do not belong to a group
+     * 
+     * @return the number of events
+     */
+    public int getNbOverflowEvents( )
+    {
+        return _nbOverflowEvents;
+    }
+
+    /**
+     * Returns true if no event has been collected
+     * 
+     * @return true if there is no event
+     */
+    public boolean isEmpty( )
+    {
+        return _nbEvents == 0;
+    }
+
+    /**
+     * Returns the date of the oldest collected event
+     * 
+     * @return the date, or Long.MAX_VALUE if there is no event
+     */
+    public long getFirstEventDate( )
+    {
+        return _lFirstEventDate;
+    }
+
+    /**
+     * Returns the date of the newest collected event
+     * 
+     * @return the date, or Long.MIN_VALUE if there is no event
+     */
+    public long getLastEventDate( )
+    {
+        return _lLastEventDate;
+    }
+
+    /**
+     * Returns a key of the summary of the events : two collectors with the same detailed events and the same key render the same alert
+     * 
+     * @return the key
+     */
+    String getSummaryKey( )
+    {
+        StringBuilder sbKey = new StringBuilder( );
+        for ( BroadcastEventGroup group : _mapGroups.values( ) )
+        {
+            sbKey.append( group.getType( ) ).append( '|' ).append( group.getStatus( ) ).append( '|' ).append( group.getMessage( ) ).append( '=' )
+                    .append( group.getCount( ) ).append( '|' ).append( group.getFirstEventDate( ) ).append( '|' ).append( group.getLastEventDate( ) )
+                    .append( '|' ).append( group.getSampleDemandIds( ) ).append( ';' );
+        }
+        sbKey.append( '/' );
+        for ( EventCounter counter : _mapOverflowCounters.values( ) )
+        {
+            sbKey.append( counter.getType( ) ).append( '|' ).append( counter.getStatus( ) ).append( '=' ).append( counter.getCount( ) ).append( ';' );
+        }
+
+        return sbKey.toString( );
+    }
+
+    /**
+     * Number of events of a type and a status
+     */
+    public static final class EventCounter
+    {
+        private final String _strType;
+        private final String _strStatus;
+        private int _nCount;
+
+        /**
+         * Constructor
+         * 
+         * @param strType
+         *            the event type
+         * @param strStatus
+         *            the event status
+         */
+        EventCounter( String strType, String strStatus )
+        {
+            _strType = strType;
+            _strStatus = strStatus;
+        }
+
+        void increment( )
+        {
+            _nCount++;
+        }
+
+        public String getType( )
+        {
+            return _strType;
+        }
+
+        public String getStatus( )
+        {
+            return _strStatus;
+        }
+
+        public int getCount( )
+        {
+            return _nCount;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Group of the events of an alert having the same type, status and normalized message : a recurring failure is shown once, with its number of
+ * occurrences, its first and last dates and a sample of the demands concerned.
+ */
+public final class BroadcastEventGroup
+{
+    private static final int MAX_SAMPLE_DEMAND_IDS = 5;
+    private static final int MAX_MESSAGE_LENGTH = 500;
+    private static final Pattern PATTERN_HEXADECIMAL = Pattern.compile( "\\b[0-9a-fA-F]{8,}(-[0-9a-fA-F]{4,})*\\b" );
+    private static final Pattern PATTERN_NUMBER = Pattern.compile( "\\d+" );
+    private static final Pattern PATTERN_WHITESPACES = Pattern.compile( "\\s+" );
+    private static final String VARIABLE_MARKER = "#";
+
+    private final String _strType;
+    private final String _strStatus;
+    private final String _strMessage;
+    private final String _strNormalizedMessage;
+    private final List<String> _listSampleDemandIds = new ArrayList<>( MAX_SAMPLE_DEMAND_IDS );
+    private int _nCount;
+    private long _lFirstEventDate = Long.MAX_VALUE;
+    private long _lLastEventDate = Long.MIN_VALUE;
+
+    /**
+     * Constructor
+     * 
+     * @param strType
+     *            the event type
+     * @param strStatus
+     *            the event status
+     * @param strMessage
+     *            the message of the first event of the group
+     * @param strNormalizedMessage
+     *            the normalized message shared by the events of the group
+     */
+    BroadcastEventGroup( String strType, String strStatus, String strMessage, String strNormalizedMessage )
+    {
+        _strType = strType;
+        _strStatus = strStatus;
+        _strMessage = truncate( strMessage );
+        _strNormalizedMessage = strNormalizedMessage;
+    }
+
+    /**
+     * Add an event to the group
+     * 
+     * @param notificationEvent
+     *            the event
+     */
+    void add( NotificationEvent notificationEvent )
+    {
+        _nCount++;
+        _lFirstEventDate = Math.min( _lFirstEventDate, notificationEvent.getEvent( ).getEventDate( ) );
+        _lLastEventDate = Math.max( _lLastEventDate, notificationEvent.getEvent( ).getEventDate( ) );
+
+        String strDemandId = notificationEvent.getDemand( ) != null ? notificationEvent.getDemand( ).getId( ) : null;
+        if ( strDemandId != null && _listSampleDemandIds.size( ) < MAX_SAMPLE_DEMAND_IDS && !_listSampleDemandIds.contains( strDemandId ) )
+        {
+            _listSampleDemandIds.add( strDemandId );
+        }
+    }
+
+    /**
+     * Returns the event type
+     * 
+     * @return the event type
+     */
+    public String getType( )
+    {
+        return _strType;
+    }
+
+    /**
+     * Returns the event status
+     * 
+     * @return the event status
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Returns the message of the first event of the group
+     * 
+     * @return the message
+     */
+    public String getMessage( )
+    {
+        return _strMessage;
+    }
+
+    /**
+     * Returns the normalized message shared by the events of the group
+     * 
+     * @return the normalized message
+     */
+    public String getNormalizedMessage( )
+    {
+        return _strNormalizedMessage;
+    }
+
+    /**
+     * Returns the number of events of the group
+     * 
+     * @return the number of events
+     */
+    public int getCount( )
+    {
+        return _nCount;
+    }
+
+    /**
+     * Returns the date of the oldest event of the group
+     * 
+     * @return the date
+     */
+    public long getFirstEventDate( )
+    {
+        return _lFirstEventDate;
+    }
+
+    /**
+     * Returns the date of the newest event of the group
+     * 
+     * @return the date
+     */
+    public long getLastEventDate( )
+    {
+        return _lLastEventDate;
+    }
+
+    /**
+     * Returns the ids of the first demands of the group
+     * 
+     * @return the demand ids
+     */
+    public List<String> getSampleDemandIds( )
+    {
+        return Collections.unmodifiableList( _listSampleDemandIds );
+    }
+
+    /**
+     * Normalize an event message : the numbers and the identifiers are replaced by a marker, so that the occurrences of a failure concerning
+     * different demands share the same message
+     * 
+     * @param strMessage
+     *            the message
+     * @return the normalized message
+     */
+    public static String normalizeMessage( String strMessage )
+    {
+        if ( strMessage == null )
+        {
+            return "";
+        }
+
+        String strNormalized = PATTERN_HEXADECIMAL.matcher( strMessage ).replaceAll( VARIABLE_MARKER );
+        strNormalized = PATTERN_NUMBER.matcher( strNormalized ).replaceAll( VARIABLE_MARKER );
+        strNormalized = PATTERN_WHITESPACES.matcher( strNormalized ).replaceAll( " " ).trim( );
+
+        return truncate( strNormalized );
+    }
+
+    /**
+     * Truncate a message to a reasonable length for a mail
+     * 
+     * @param strMessage
+     *            the message
+     * @return the truncated message
+     */
+    private static String truncate( String strMessage )
+    {
+        if ( strMessage == null || strMessage.length( ) <= MAX_MESSAGE_LENGTH )
+        {
+            return strMessage;
+        }
+
+        return strMessage.substring( 0, MAX_MESSAGE_LENGTH ) + "...";
+    }
+}
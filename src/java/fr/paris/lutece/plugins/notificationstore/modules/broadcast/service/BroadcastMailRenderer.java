@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.portal.service.template.AppTemplateService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renderer of the broadcast alert mails, through the Lutece template service : the template is compiled once and kept in the FreeMarker cache of
+ * the webapp, with its settings, auto-includes, macros and skin overrides, and its i18n keys are localized by the template service.
+ */
+public final class BroadcastMailRenderer
+{
+    // Model
+    static final String KEY_NOTIFICATION_EVENT_LIST = "notification_event_list";
+    static final String KEY_START = "start";
+    static final String KEY_END = "end";
+    static final String KEY_SECTION_LIST = "section_list";
+    static final String KEY_GROUP_LIST = "group_list";
+    static final String KEY_OVERFLOW_LIST = "overflow_list";
+    static final String KEY_NB_EVENTS = "nb_events";
+    static final String KEY_NB_OVERFLOW_EVENTS = "nb_overflow_events";
+
+    private final String _strTemplate;
+
+    /**
+     * Constructor
+     * 
+     * @param strTemplate
+     *            the path of the template, relative to the template directory of the webapp
+     */
+    public BroadcastMailRenderer( String strTemplate )
+    {
+        _strTemplate = strTemplate;
+    }
+
+    /**
+     * Render the alert mail of a feed from a bounded collector : the groups of events, then the counters of the events which do not belong to a
+     * group. The period shown is the span of the events of the alert, not the period of the feed : the feeds with the same events render the same
+     * body.
+     * 
+     * @param collector
+     *            the events of the alert
+     * @param locale
+     *            the locale
+     * @return the HTML content of the mail
+     */
+    public String render( BroadcastEventCollector collector, Locale locale )
+    {
+        Map<String, Object> model = new HashMap<>( );
+        model.put( KEY_START, collector.getFirstEventDate( ) );
+        model.put( KEY_END, collector.getLastEventDate( ) );
+        model.put( KEY_NOTIFICATION_EVENT_LIST, collector.getEvents( ) );
+        model.put( KEY_GROUP_LIST, collector.getGroupList( ) );
+        model.put( KEY_OVERFLOW_LIST, collector.getOverflowList( ) );
+        model.put( KEY_NB_EVENTS, collector.getNbEvents( ) );
+        model.put( KEY_NB_OVERFLOW_EVENTS, collector.getNbOverflowEvents( ) );
+
+        return process( model, locale );
+    }
+
+    /**
+     * Render a digest mail, grouping the alerts of several demand types
+     * 
+     * @param listSections
+     *            the alerts of each demand type
+     * @param locale
+     *            the locale
+     * @return the HTML content of the mail
+     */
+    public String renderDigest( List<BroadcastDigestSection> listSections, Locale locale )
+    {
+        Map<String, Object> model = new HashMap<>( );
+        model.put( KEY_SECTION_LIST, listSections );
+
+        return process( model, locale );
+    }
+
+    /**
+     * Process the template with a model
+     * 
+     * @param model
+     *            the model
+     * @param locale
+     *            the locale
+     * @return the HTML content of the mail
+     */
+    private String process( Map<String, Object> model, Locale locale )
+    {
+        return AppTemplateService.getTemplate( _strTemplate, locale, model ).getHtml( );
+    }
+}
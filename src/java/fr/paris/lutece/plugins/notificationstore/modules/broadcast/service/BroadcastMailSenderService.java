@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastMail;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastMailHome;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender stage of the broadcast : drains the outbound mail queue with a bounded number of concurrent sendings. A failed mail is sent again after an
+ * exponential delay, and is marked as dead after the maximum number of attempts.
+ */
+public final class BroadcastMailSenderService
+{
+    // Constants
+    private static final String SENDER_BEAN_NAME = "notificationstore-broadcast.broadcastMailSender";
+    private static final int ERROR_MAX_LENGTH = 255;
+    private static final int STATUS_CLAIMED_ELSEWHERE = -1;
+
+    // Properties
+    private static final String PROPERTY_SENDER_THREADS = "notificationstore-broadcast.mail.sender.threads";
+    private static final String PROPERTY_SENDER_BATCH_SIZE = "notificationstore-broadcast.mail.sender.batchSize";
+    private static final String PROPERTY_SENDER_TIMEOUT = "notificationstore-broadcast.mail.sender.timeout";
+    private static final String PROPERTY_RETRY_MAX_ATTEMPTS = "notificationstore-broadcast.mail.retry.maxAttempts";
+    private static final String PROPERTY_RETRY_DELAY = "notificationstore-broadcast.mail.retry.delay";
+    private static final String PROPERTY_RETRY_MAX_DELAY = "notificationstore-broadcast.mail.retry.maxDelay";
+    private static final int SENDER_THREADS = AppPropertiesService.getPropertyInt( PROPERTY_SENDER_THREADS, 2 );
+    private static final int SENDER_BATCH_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_SENDER_BATCH_SIZE, 500 );
+    private static final long SENDER_TIMEOUT = TimeUnit.MINUTES.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_SENDER_TIMEOUT, 10 ) );
+    private static final int RETRY_MAX_ATTEMPTS = AppPropertiesService.getPropertyInt( PROPERTY_RETRY_MAX_ATTEMPTS, 8 );
+    private static final long RETRY_DELAY = TimeUnit.MINUTES.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_RETRY_DELAY, 1 ) );
+    private static final long RETRY_MAX_DELAY = TimeUnit.MINUTES.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_RETRY_MAX_DELAY, 240 ) );
+
+    private static IBroadcastMailSender _sender = SpringContextService.getBean( SENDER_BEAN_NAME );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private BroadcastMailSenderService( )
+    {
+    }
+
+    /**
+     * Send the mails of the queue which are due
+     * 
+     * @return the logs of the run
+     */
+    public static String sendQueuedMails( )
+    {
+        try
+        {
+            BroadcastMailHome.removeSentMails( );
+        }
+        catch( RuntimeException e )
+        {
+            // the sent mails are removed by the next run
+            AppLogService.error( "Unable to remove the sent broadcast mails", e );
+        }
+
+        List<BroadcastMail> listMails = BroadcastMailHome.getDueMailsList( System.currentTimeMillis( ), SENDER_BATCH_SIZE );
+
+        if ( listMails.isEmpty( ) )
+        {
+            return "no mail to send.";
+        }
+
+        int nbSent = 0;
+        int nbRetry = 0;
+        int nbDead = 0;
+        int nbSkipped = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, Math.min( SENDER_THREADS, listMails.size( ) ) ) );
+        List<Future<Integer>> listResults = new ArrayList<>( );
+
+        try
+        {
+            for ( BroadcastMail mail : listMails )
+            {
+                listResults.add( executor.submit( ( ) -> send( mail ) ) );
+            }
+
+            for ( Future<Integer> future : listResults )
+            {
+                try
+                {
+                    int nStatus = future.get( );
+                    if ( nStatus == STATUS_CLAIMED_ELSEWHERE )
+                    {
+                        nbSkipped++;
+                    }
+                    else
+                        if ( nStatus == BroadcastMail.STATUS_DEAD )
+                        {
+                            nbDead++;
+                        }
+                        else
+                            if ( nStatus == BroadcastMail.STATUS_PENDING )
+                            {
+                                nbRetry++;
+                            }
+                            else
+                                if ( nStatus == BroadcastMail.STATUS_SENT )
+                                {
+                                    nbSent++;
+                                }
+                }
+                catch( ExecutionException e )
+                {
+                    // the state of the mail could not be saved : it is sent again after the sending timeout
+                    AppLogService.error( "Unable to update the state of a broadcast mail", e.getCause( ) );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    AppLogService.error( "Mail sending interrupted", e );
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+
+        return nbSent + " mail(s) sent, " + nbRetry + " mail(s) to retry, " + nbDead + " dead mail(s), " + nbSkipped
+                + " mail(s) sent by another node.";
+    }
+
+    /**
+     * Send a mail and update its state in the queue
+     * 
+     * @param mail
+     *            the mail
+     * @return the status of the mail : SENT, PENDING if it will be retried, DEAD, or STATUS_CLAIMED_ELSEWHERE if it is sent by another node
+     */
+    private static int send( BroadcastMail mail )
+    {
+        // the mail is sent again if this node stops before the end of the sending. The claim fails if another node has claimed the mail since it
+        // has been loaded : the mail is left to that node
+        if ( !BroadcastMailHome.claim( mail, System.currentTimeMillis( ) + SENDER_TIMEOUT ) )
+        {
+            return STATUS_CLAIMED_ELSEWHERE;
+        }
+
+        long lStart = System.nanoTime( );
+        try
+        {
+            _sender.send( mail );
+            BroadcastMetrics.recordSending( BroadcastMetrics.elapsedSince( lStart ), true );
+        }
+        catch( RuntimeException e )
+        {
+            BroadcastMetrics.recordSending( BroadcastMetrics.elapsedSince( lStart ), false );
+            mail.setNbAttempts( mail.getNbAttempts( ) + 1 );
+            mail.setLastError( abbreviate( e.toString( ) ) );
+
+            if ( mail.getNbAttempts( ) >= RETRY_MAX_ATTEMPTS )
+            {
+                AppLogService.error( "Broadcast mail " + mail.getId( ) + " dead after " + mail.getNbAttempts( ) + " attempts", e );
+                mail.setStatus( BroadcastMail.STATUS_DEAD );
+            }
+            else
+            {
+                mail.setStatus( BroadcastMail.STATUS_PENDING );
+                mail.setNextAttemptDate( System.currentTimeMillis( ) + getRetryDelay( mail.getNbAttempts( ) ) );
+            }
+            BroadcastMailHome.update( mail );
+
+            return mail.getStatus( );
+        }
+
+        // a single update marks the mail as sent : the mail is no longer due, whatever happens to the node afterwards
+        mail.setStatus( BroadcastMail.STATUS_SENT );
+        BroadcastMailHome.update( mail );
+
+        return BroadcastMail.STATUS_SENT;
+    }
+
+    /**
+     * Get the delay before the next attempt : the delay doubles after each failed attempt, up to a maximum
+     * 
+     * @param nNbAttempts
+     *            the number of failed attempts
+     * @return the delay in milliseconds
+     */
+    static long getRetryDelay( int nNbAttempts )
+    {
+        int nShift = Math.min( nNbAttempts - 1, 30 );
+
+        return Math.min( RETRY_DELAY << nShift, RETRY_MAX_DELAY );
+    }
+
+    /**
+     * Truncate an error message to the size of its column
+     * 
+     * @param strError
+     *            the error message
+     * @return the truncated message
+     */
+    private static String abbreviate( String strError )
+    {
+        return ( strError.length( ) > ERROR_MAX_LENGTH ) ? strError.substring( 0, ERROR_MAX_LENGTH ) : strError;
+    }
+}
@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the broadcast metrics : the counters of the last run, the cumulated counters and timings of each demand type since the start of the
+ * node, and the counters of the mail sender. The timings are in milliseconds.
+ */
+public final class BroadcastMetrics
+{
+    private static final Map<Integer, DemandTypeMetrics> _mapDemandTypeMetrics = new ConcurrentHashMap<>( );
+    private static final SenderMetrics _senderMetrics = new SenderMetrics( );
+    private static final LongAdder _nbRuns = new LongAdder( );
+    private static volatile RunMetrics _lastRun;
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private BroadcastMetrics( )
+    {
+    }
+
+    /**
+     * Returns the metrics of a demand type, created on first use
+     * 
+     * @param nDemandTypeId
+     *            the demand type id
+     * @return the metrics
+     */
+    public static DemandTypeMetrics getDemandTypeMetrics( int nDemandTypeId )
+    {
+        return _mapDemandTypeMetrics.computeIfAbsent( nDemandTypeId, DemandTypeMetrics::new );
+    }
+
+    /**
+     * Record a finished broadcast run
+     * 
+     * @param run
+     *            the metrics of the run
+     */
+    public static void recordRun( RunMetrics run )
+    {
+        _nbRuns.increment( );
+        _lastRun = run;
+    }
+
+    /**
+     * Record the sending of a queued mail
+     * 
+     * @param lDuration
+     *            the duration of the sending
+     * @param bSent
+     *            true if the mail has been sent, false if the sending failed
+     */
+    public static void recordSending( long lDuration, boolean bSent )
+    {
+        _senderMetrics.record( lDuration, bSent );
+    }
+
+    /**
+     * Returns the number of broadcast runs since the start of the node
+     * 
+     * @return the number of runs
+     */
+    public static long getNbRuns( )
+    {
+        return _nbRuns.sum( );
+    }
+
+    /**
+     * Returns the metrics of the last broadcast run
+     * 
+     * @return the metrics, or null if the broadcast has not run yet
+     */
+    public static RunMetrics getLastRun( )
+    {
+        return _lastRun;
+    }
+
+    /**
+     * Returns the metrics of the demand types, the most time consuming first
+     * 
+     * @return the metrics of the demand types
+     */
+    public static List<DemandTypeMetrics> getDemandTypeMetricsList( )
+    {
+        List<DemandTypeMetrics> listMetrics = new ArrayList<>( _mapDemandTypeMetrics.values( ) );
+        listMetrics.sort( Comparator.comparingLong( DemandTypeMetrics::getTaskTime ).reversed( ) );
+
+        return listMetrics;
+    }
+
+    /**
+     * Returns the metrics of the mail sender
+     * 
+     * @return the metrics
+     */
+    public static SenderMetrics getSenderMetrics( )
+    {
+        return _senderMetrics;
+    }
+
+    /**
+     * Reset all the metrics
+     */
+    public static void reset( )
+    {
+        _mapDemandTypeMetrics.clear( );
+        _senderMetrics.reset( );
+        _nbRuns.reset( );
+        _lastRun = null;
+    }
+
+    /**
+     * Elapsed time since a start given by System.nanoTime( )
+     * 
+     * @param lStartNanos
+     *            the start
+     * @return the elapsed time in milliseconds
+     */
+    public static long elapsedSince( long lStartNanos )
+    {
+        return ( System.nanoTime( ) - lStartNanos ) / 1000000L;
+    }
+
+    /**
+     * Counters of a broadcast run
+     */
+    public static final class RunMetrics
+    {
+        private final long _lStartDate;
+        private long _lDuration;
+        private int _nbSubscriptions;
+        private int _nbFeeds;
+        private int _nbDueFeeds;
+        private int _nbEvents;
+        private int _nbMailsQueued;
+        private int _nbFeedErrors;
+        private long _lRenderCacheHits;
+        private long _lRenderCacheMisses;
+        private String _strLogs;
+
+        /**
+         * Constructor
+         * 
+         * @param lStartDate
+         *            the start date of the run
+         */
+        public RunMetrics( long lStartDate )
+        {
+            _lStartDate = lStartDate;
+        }
+
+        public long getStartDate( )
+        {
+            return _lStartDate;
+        }
+
+        public long getDuration( )
+        {
+            return _lDuration;
+        }
+
+        public void setDuration( long lDuration )
+        {
+            _lDuration = lDuration;
+        }
+
+        public int getNbSubscriptions( )
+        {
+            return _nbSubscriptions;
+        }
+
+        public void setNbSubscriptions( int nbSubscriptions )
+        {
+            _nbSubscriptions = nbSubscriptions;
+        }
+
+        public int getNbFeeds( )
+        {
+            return _nbFeeds;
+        }
+
+        public void setNbFeeds( int nbFeeds )
+        {
+            _nbFeeds = nbFeeds;
+        }
+
+        public int getNbDueFeeds( )
+        {
+            return _nbDueFeeds;
+        }
+
+        public void setNbDueFeeds( int nbDueFeeds )
+        {
+            _nbDueFeeds = nbDueFeeds;
+        }
+
+        public int getNbEvents( )
+        {
+            return _nbEvents;
+        }
+
+        public void setNbEvents( int nbEvents )
+        {
+            _nbEvents = nbEvents;
+        }
+
+        public int getNbMailsQueued( )
+        {
+            return _nbMailsQueued;
+        }
+
+        public void setNbMailsQueued( int nbMailsQueued )
+        {
+            _nbMailsQueued = nbMailsQueued;
+        }
+
+        public int getNbFeedErrors( )
+        {
+            return _nbFeedErrors;
+        }
+
+        public void setNbFeedErrors( int nbFeedErrors )
+        {
+            _nbFeedErrors = nbFeedErrors;
+        }
+
+        public long getRenderCacheHits( )
+        {
+            return _lRenderCacheHits;
+        }
+
+        public void setRenderCacheHits( long lRenderCacheHits )
+        {
+            _lRenderCacheHits = lRenderCacheHits;
+        }
+
+        public long getRenderCacheMisses( )
+        {
+            return _lRenderCacheMisses;
+        }
+
+        public void setRenderCacheMisses( long lRenderCacheMisses )
+        {
+            _lRenderCacheMisses = lRenderCacheMisses;
+        }
+
+        public String getLogs( )
+        {
+            return _strLogs;
+        }
+
+        public void setLogs( String strLogs )
+        {
+            _strLogs = strLogs;
+        }
+    }
+
+    /**
+     * Cumulated counters and timings of the broadcast tasks of a demand type
+     */
+    public static final class DemandTypeMetrics
+    {
+        private final int _nDemandTypeId;
+        private final LongAdder _nbTasks = new LongAdder( );
+        private final LongAdder _lTaskTime = new LongAdder( );
+        private final LongAdder _nbQueries = new LongAdder( );
+        private final LongAdder _lQueryTime = new LongAdder( );
+        private final LongAccumulator _lMaxQueryTime = new LongAccumulator( Long::max, 0 );
+        private final LongAdder _nbEvents = new LongAdder( );
+        private final LongAdder _lRenderTime = new LongAdder( );
+        private final LongAdder _nbMailsQueued = new LongAdder( );
+        private final LongAdder _nbFailures = new LongAdder( );
+
+        /**
+         * Constructor
+         * 
+         * @param nDemandTypeId
+         *            the demand type id
+         */
+        DemandTypeMetrics( int nDemandTypeId )
+        {
+            _nDemandTypeId = nDemandTypeId;
+        }
+
+        /**
+         * Record a broadcast task of the demand type
+         * 
+         * @param lDuration
+         *            the duration of the task
+         */
+        public void recordTask( long lDuration )
+        {
+            _nbTasks.increment( );
+            _lTaskTime.add( lDuration );
+        }
+
+        /**
+         * Record a query of the events of the demand type
+         * 
+         * @param lDuration
+         *            the duration of the query
+         * @param nbEvents
+         *            the number of events fetched
+         */
+        public void recordQuery( long lDuration, int nbEvents )
+        {
+            _nbQueries.increment( );
+            _lQueryTime.add( lDuration );
+            _lMaxQueryTime.accumulate( lDuration );
+            _nbEvents.add( nbEvents );
+        }
+
+        /**
+         * Record the rendering of a mail body
+         * 
+         * @param lDuration
+         *            the duration of the rendering
+         */
+        public void recordRender( long lDuration )
+        {
+            _lRenderTime.add( lDuration );
+        }
+
+        /**
+         * Record queued mails
+         * 
+         * @param nbMails
+         *            the number of mails
+         */
+        public void recordMailsQueued( int nbMails )
+        {
+            _nbMailsQueued.add( nbMails );
+        }
+
+        /**
+         * Record a feed in error
+         */
+        public void recordFailure( )
+        {
+            _nbFailures.increment( );
+        }
+
+        public int getDemandTypeId( )
+        {
+            return _nDemandTypeId;
+        }
+
+        public long getNbTasks( )
+        {
+            return _nbTasks.sum( );
+        }
+
+        public long getTaskTime( )
+        {
+            return _lTaskTime.sum( );
+        }
+
+        public long getNbQueries( )
+        {
+            return _nbQueries.sum( );
+        }
+
+        public long getQueryTime( )
+        {
+            return _lQueryTime.sum( );
+        }
+
+        public long getMaxQueryTime( )
+        {
+            return _lMaxQueryTime.get( );
+        }
+
+        public long getNbEvents( )
+        {
+            return _nbEvents.sum( );
+        }
+
+        public long getRenderTime( )
+        {
+            return _lRenderTime.sum( );
+        }
+
+        public long getNbMailsQueued( )
+        {
+            return _nbMailsQueued.sum( );
+        }
+
+        public long getNbFailures( )
+        {
+            return _nbFailures.sum( );
+        }
+    }
+
+    /**
+     * Cumulated counters and timings of the mail sender
+     */
+    public static final class SenderMetrics
+    {
+        private final LongAdder _nbSent = new LongAdder( );
+        private final LongAdder _nbFailures = new LongAdder( );
+        private final LongAdder _lSendTime = new LongAdder( );
+        private final LongAccumulator _lMaxSendTime = new LongAccumulator( Long::max, 0 );
+
+        /**
+         * Record a sending
+         * 
+         * @param lDuration
+         *            the duration of the sending
+         * @param bSent
+         *            true if the mail has been sent
+         */
+        void record( long lDuration, boolean bSent )
+        {
+            ( bSent ? _nbSent : _nbFailures ).increment( );
+            _lSendTime.add( lDuration );
+            _lMaxSendTime.accumulate( lDuration );
+        }
+
+        /**
+         * Reset the counters
+         */
+        void reset( )
+        {
+            _nbSent.reset( );
+            _nbFailures.reset( );
+            _lSendTime.reset( );
+            _lMaxSendTime.reset( );
+        }
+
+        public long getNbSent( )
+        {
+            return _nbSent.sum( );
+        }
+
+        public long getNbFailures( )
+        {
+            return _nbFailures.sum( );
+        }
+
+        public long getSendTime( )
+        {
+            return _lSendTime.sum( );
+        }
+
+        public long getMaxSendTime( )
+        {
+            return _lMaxSendTime.get( );
+        }
+    }
+}
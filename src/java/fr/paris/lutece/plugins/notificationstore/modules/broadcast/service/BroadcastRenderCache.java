@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the rendered alert bodies of a broadcast run, addressed by their content : the alerts having the same events share the same body, which
+ * is rendered once, whatever the period of their feed.
+ */
+public final class BroadcastRenderCache
+{
+    private final Map<RenderKey, String> _mapBodies = new ConcurrentHashMap<>( );
+    private final AtomicLong _lHitCount = new AtomicLong( );
+    private final AtomicLong _lMissCount = new AtomicLong( );
+
+    /**
+     * Get the body of an alert, rendering it if no identical alert has been rendered yet
+     * 
+     * @param nDemandTypeId
+     *            the demand type id
+     * @param locale
+     *            the locale
+     * @param collector
+     *            the events of the alert
+     * @param renderer
+     *            the rendering of the body
+     * @return the body
+     */
+    public String getBody( int nDemandTypeId, Locale locale, BroadcastEventCollector collector, Supplier<String> renderer )
+    {
+        RenderKey key = new RenderKey( nDemandTypeId, locale, collector );
+        String strBody = _mapBodies.get( key );
+
+        if ( strBody != null )
+        {
+            _lHitCount.incrementAndGet( );
+            return strBody;
+        }
+
+        _lMissCount.incrementAndGet( );
+        return _mapBodies.computeIfAbsent( key, k -> renderer.get( ) );
+    }
+
+    /**
+     * Returns the number of bodies found in the cache
+     * 
+     * @return the hit count
+     */
+    public long getHitCount( )
+    {
+        return _lHitCount.get( );
+    }
+
+    /**
+     * Returns the number of bodies rendered
+     * 
+     * @return the miss count
+     */
+    public long getMissCount( )
+    {
+        return _lMissCount.get( );
+    }
+
+    /**
+     * Content key of a body
+     */
+    private static final class RenderKey
+    {
+        private final int _nDemandTypeId;
+        private final Locale _locale;
+        private final long _lFirstEventDate;
+        private final long _lLastEventDate;
+        private final List<String> _listEventIds;
+        private final String _strSummaryKey;
+        private final int _nHashCode;
+
+        /**
+         * Constructor
+         * 
+         * @param nDemandTypeId
+         *            the demand type id
+         * @param locale
+         *            the locale
+         * @param collector
+         *            the events of the alert : the span of the events, the detailed events and the summary of the groups
+         */
+        RenderKey( int nDemandTypeId, Locale locale, BroadcastEventCollector collector )
+        {
+            _nDemandTypeId = nDemandTypeId;
+            _locale = locale;
+            _lFirstEventDate = collector.getFirstEventDate( );
+            _lLastEventDate = collector.getLastEventDate( );
+
+            // the events have no identifier : an event is identified by its demand, its dates and its type
+            List<NotificationEvent> listEvent = collector.getEvents( );
+            _listEventIds = new ArrayList<>( listEvent.size( ) );
+            for ( NotificationEvent notificationEvent : listEvent )
+            {
+                _listEventIds.add( notificationEvent.getDemand( ).getId( ) + '|' + notificationEvent.getNotificationDate( ) + '|'
+                        + notificationEvent.getEvent( ).getEventDate( ) + '|' + notificationEvent.getEvent( ).getType( ) );
+            }
+
+            _strSummaryKey = collector.getSummaryKey( );
+            _nHashCode = Objects.hash( _nDemandTypeId, _locale, _lFirstEventDate, _lLastEventDate, _listEventIds, _strSummaryKey );
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int hashCode( )
+        {
+            return _nHashCode;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public boolean equals( Object object )
+        {
+            if ( this == object )
+            {
+                return true;
+            }
+            if ( !( object instanceof RenderKey ) )
+            {
+                return false;
+            }
+
+            RenderKey other = (RenderKey) object;
+            return _nHashCode == other._nHashCode && _nDemandTypeId == other._nDemandTypeId && Objects.equals( _locale, other._locale )
+                    && _lFirstEventDate == other._lFirstEventDate && _lLastEventDate == other._lLastEventDate
+                    && _listEventIds.equals( other._listEventIds ) && _strSummaryKey.equals( other._strSummaryKey );
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastFeed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the next due date of each broadcast feed (demand type / frequency), so that a daemon run only processes the feeds whose frequency period has elapsed
+ */
+public class BroadcastScheduler
+{
+    private final PriorityQueue<ScheduledFeed> _queue = new PriorityQueue<>( Comparator.comparingLong( ScheduledFeed::getNextDueDate ) );
+    private final Map<Long, ScheduledFeed> _mapScheduledFeeds = new HashMap<>( );
+
+    /**
+     * Align the scheduled feeds with the current feeds : new feeds are scheduled from their watermark (or immediately if they have never been
+     * broadcast), feeds without subscriber anymore are discarded, and polled feeds which have not been rescheduled are due immediately
+     * 
+     * @param collectionFeeds
+     *            the current feeds
+     * @param mapWatermarks
+     *            the dates up to which the feeds have been broadcast, by feed key
+     */
+    public synchronized void synchronize( Collection<BroadcastFeed> collectionFeeds, Map<Long, Long> mapWatermarks )
+    {
+        Set<Long> setKeys = new HashSet<>( );
+        for ( BroadcastFeed feed : collectionFeeds )
+        {
+            setKeys.add( feed.getKey( ) );
+        }
+        _mapScheduledFeeds.keySet( ).retainAll( setKeys );
+        _queue.removeIf( scheduledFeed -> !_mapScheduledFeeds.containsKey( scheduledFeed.getKey( ) ) );
+
+        for ( BroadcastFeed feed : collectionFeeds )
+        {
+            ScheduledFeed scheduledFeed = _mapScheduledFeeds.get( feed.getKey( ) );
+
+            if ( scheduledFeed == null )
+            {
+                Long lWatermark = mapWatermarks.get( feed.getKey( ) );
+                long lNextDueDate = ( lWatermark == null ) ? 0 : lWatermark + TimeUnit.HOURS.toMillis( feed.getFrequency( ) );
+
+                schedule( new ScheduledFeed( feed.getKey( ), feed.getFrequency( ) ), lNextDueDate );
+            }
+            else if ( !scheduledFeed.isQueued( ) )
+            {
+                schedule( scheduledFeed, 0 );
+            }
+        }
+    }
+
+    /**
+     * Remove from the queue the feeds which are due at the given date
+     * 
+     * @param lDate
+     *            the date
+     * @return the keys of the due feeds, by increasing due date
+     */
+    public synchronized List<Long> pollDueFeeds( long lDate )
+    {
+        List<Long> listDueFeeds = new ArrayList<>( );
+
+        while ( !_queue.isEmpty( ) && _queue.peek( ).getNextDueDate( ) <= lDate )
+        {
+            ScheduledFeed scheduledFeed = _queue.poll( );
+            scheduledFeed.setQueued( false );
+            listDueFeeds.add( scheduledFeed.getKey( ) );
+        }
+
+        return listDueFeeds;
+    }
+
+    /**
+     * Put back a polled feed in the queue
+     * 
+     * @param lKey
+     *            the feed key
+     * @param lNextDueDate
+     *            the date at which the feed will be due again
+     */
+    public synchronized void reschedule( long lKey, long lNextDueDate )
+    {
+        ScheduledFeed scheduledFeed = _mapScheduledFeeds.get( lKey );
+
+        if ( scheduledFeed != null && !scheduledFeed.isQueued( ) )
+        {
+            schedule( scheduledFeed, lNextDueDate );
+        }
+    }
+
+    /**
+     * Put back all the polled feeds in the queue, due at their next frequency period
+     * 
+     * @param collectionKeys
+     *            the feed keys
+     * @param lLastBroadcastDate
+     *            the date up to which the feeds have been broadcast
+     */
+    public synchronized void rescheduleAfterBroadcast( Collection<Long> collectionKeys, long lLastBroadcastDate )
+    {
+        for ( Long lKey : collectionKeys )
+        {
+            ScheduledFeed scheduledFeed = _mapScheduledFeeds.get( lKey );
+
+            if ( scheduledFeed != null )
+            {
+                reschedule( lKey, lLastBroadcastDate + TimeUnit.HOURS.toMillis( scheduledFeed.getFrequency( ) ) );
+            }
+        }
+    }
+
+    /**
+     * Add a feed to the queue
+     * 
+     * @param scheduledFeed
+     *            the feed
+     * @param lNextDueDate
+     *            the due date
+     */
+    private void schedule( ScheduledFeed scheduledFeed, long lNextDueDate )
+    {
+        scheduledFeed.setNextDueDate( lNextDueDate );
+        scheduledFeed.setQueued( true );
+        _mapScheduledFeeds.put( scheduledFeed.getKey( ), scheduledFeed );
+        _queue.add( scheduledFeed );
+    }
+
+    /**
+     * A feed and its next due date
+     */
+    private static final class ScheduledFeed
+    {
+        private final long _lKey;
+        private final int _nFrequency;
+        private long _lNextDueDate;
+        private boolean _bQueued;
+
+        /**
+         * Constructor
+         * 
+         * @param lKey
+         *            the feed key
+         * @param nFrequency
+         *            the feed frequency
+         */
+        ScheduledFeed( long lKey, int nFrequency )
+        {
+            _lKey = lKey;
+            _nFrequency = nFrequency;
+        }
+
+        long getKey( )
+        {
+            return _lKey;
+        }
+
+        int getFrequency( )
+        {
+            return _nFrequency;
+        }
+
+        long getNextDueDate( )
+        {
+            return _lNextDueDate;
+        }
+
+        void setNextDueDate( long lNextDueDate )
+        {
+            _lNextDueDate = lNextDueDate;
+        }
+
+        boolean isQueued( )
+        {
+            return _bQueued;
+        }
+
+        void setQueued( boolean bQueued )
+        {
+            _bQueued = bQueued;
+        }
+    }
+}
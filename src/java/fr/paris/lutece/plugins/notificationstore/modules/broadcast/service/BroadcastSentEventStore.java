@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.IBroadcastSentEventDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Store of the events already broadcast to each recipient, so that an event is not sent twice to a recipient subscribed to the same demand type at
+ * several frequencies (the same event is read by each of its feeds). The recipients are identified by the hash of their mail. The records are
+ * persisted, and an in-memory Bloom filter answers most of the lookups : only the events the filter may contain are checked against the database.
+ * The records expire after the longest frequency, the filter being rebuilt after each purge. The filter only knows the records of this node : when
+ * several nodes broadcast, the store is shared and all the lookups are done in the database.
+ */
+public final class BroadcastSentEventStore
+{
+    private static final int NB_HASH_FUNCTIONS = 4;
+    private static final String DAO_BEAN_NAME = "notificationstore-broadcast.broadcastSentEventDAO";
+
+    private final IBroadcastSentEventDAO _dao;
+    private final Plugin _plugin;
+    private final int _nBloomSize;
+    private final boolean _bShared;
+    private BitSet _bloomFilter;
+    private long _lLastPurgeDate;
+
+    /**
+     * Constructor
+     * 
+     * @param nBloomSize
+     *            the size of the Bloom filter, in bits
+     * @param bShared
+     *            true if other nodes record events in the store : the Bloom filter is not used
+     */
+    public BroadcastSentEventStore( int nBloomSize, boolean bShared )
+    {
+        this( SpringContextService.getBean( DAO_BEAN_NAME ), PluginService.getPlugin( "notificationstore-broadcast" ), nBloomSize, bShared );
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param dao
+     *            the DAO of the records
+     * @param plugin
+     *            the plugin
+     * @param nBloomSize
+     *            the size of the Bloom filter, in bits
+     * @param bShared
+     *            true if other nodes record events in the store : the Bloom filter is not used
+     */
+    BroadcastSentEventStore( IBroadcastSentEventDAO dao, Plugin plugin, int nBloomSize, boolean bShared )
+    {
+        _dao = dao;
+        _plugin = plugin;
+        _nBloomSize = nBloomSize;
+        _bShared = bShared;
+    }
+
+    /**
+     * Keep the events which have not been broadcast to a recipient yet
+     * 
+     * @param strRecipient
+     *            the mail of the recipient
+     * @param listEvent
+     *            the events
+     * @return the events not broadcast to the recipient
+     */
+    public List<NotificationEvent> filterNotSent( String strRecipient, List<NotificationEvent> listEvent )
+    {
+        if ( listEvent.isEmpty( ) )
+        {
+            return listEvent;
+        }
+
+        long lRecipientHash = getRecipientHash( strRecipient );
+
+        Set<Long> setCandidates = new LinkedHashSet<>( );
+        if ( _bShared )
+        {
+            // the records of the other nodes are only in the database
+            for ( NotificationEvent notificationEvent : listEvent )
+            {
+                setCandidates.add( getEventHash( notificationEvent ) );
+            }
+        }
+        else
+        {
+            synchronized( this )
+            {
+                BitSet bloomFilter = getBloomFilter( );
+                for ( NotificationEvent notificationEvent : listEvent )
+                {
+                    long lEventHash = getEventHash( notificationEvent );
+                    if ( mightContain( bloomFilter, lRecipientHash, lEventHash ) )
+                    {
+                        setCandidates.add( lEventHash );
+                    }
+                }
+            }
+        }
+
+        if ( setCandidates.isEmpty( ) )
+        {
+            return listEvent;
+        }
+
+        Set<Long> setSentHashes = _dao.selectSentEventHashes( lRecipientHash, setCandidates, _plugin );
+        if ( setSentHashes.isEmpty( ) )
+        {
+            return listEvent;
+        }
+
+        List<NotificationEvent> listNotSent = new ArrayList<>( );
+        for ( NotificationEvent notificationEvent : listEvent )
+        {
+            if ( !setSentHashes.contains( getEventHash( notificationEvent ) ) )
+            {
+                listNotSent.add( notificationEvent );
+            }
+        }
+
+        return listNotSent;
+    }
+
+    /**
+     * Record events as broadcast to a recipient. Called in the transaction queueing their alert.
+     * 
+     * @param strRecipient
+     *            the mail of the recipient
+     * @param collectionEventHashes
+     *            the hashes of the events, see {@link #getEventHash(NotificationEvent)}
+     * @param lSentDate
+     *            the date of the broadcast
+     */
+    public void markSent( String strRecipient, Collection<Long> collectionEventHashes, long lSentDate )
+    {
+        if ( collectionEventHashes.isEmpty( ) )
+        {
+            return;
+        }
+
+        long lRecipientHash = getRecipientHash( strRecipient );
+        _dao.insertAll( lRecipientHash, collectionEventHashes, lSentDate, _plugin );
+
+        if ( _bShared )
+        {
+            return;
+        }
+
+        // a rolled back transaction only leaves false positives in the filter, which are checked against the database
+        synchronized( this )
+        {
+            BitSet bloomFilter = getBloomFilter( );
+            for ( Long lEventHash : collectionEventHashes )
+            {
+                put( bloomFilter, lRecipientHash, lEventHash );
+            }
+        }
+    }
+
+    /**
+     * Remove the records older than the longest frequency. The purge is done at most once per purge interval.
+     * 
+     * @param lExpiryDate
+     *            the date before which the records are removed
+     * @param lNow
+     *            the current date
+     * @param lPurgeInterval
+     *            the minimum delay between two purges
+     */
+    public synchronized void purge( long lExpiryDate, long lNow, long lPurgeInterval )
+    {
+        if ( lNow - _lLastPurgeDate < lPurgeInterval )
+        {
+            return;
+        }
+
+        _dao.deleteBefore( lExpiryDate, _plugin );
+        _lLastPurgeDate = lNow;
+        // the removed records can not be removed from the filter : it is rebuilt at the next lookup
+        _bloomFilter = null;
+    }
+
+    /**
+     * Get the Bloom filter, loading it from the database if needed
+     * 
+     * @return the Bloom filter
+     */
+    private BitSet getBloomFilter( )
+    {
+        if ( _bloomFilter == null )
+        {
+            BitSet bloomFilter = new BitSet( _nBloomSize );
+            _dao.selectSentEvents( ( lRecipientHash, lEventHash ) -> put( bloomFilter, lRecipientHash, lEventHash ), _plugin );
+            _bloomFilter = bloomFilter;
+        }
+
+        return _bloomFilter;
+    }
+
+    /**
+     * Add a record to the filter
+     * 
+     * @param bloomFilter
+     *            the filter
+     * @param lRecipientHash
+     *            the hash of the recipient
+     * @param lEventHash
+     *            the hash of the event
+     */
+    private void put( BitSet bloomFilter, long lRecipientHash, long lEventHash )
+    {
+        long lHash = mix( lRecipientHash, lEventHash );
+        int nHash1 = (int) lHash;
+        int nHash2 = (int) ( lHash >>> 32 );
+
+        for ( int i = 0; i < NB_HASH_FUNCTIONS; i++ )
+        {
+            bloomFilter.set( Math.floorMod( nHash1 + i * nHash2, _nBloomSize ) );
+        }
+    }
+
+    /**
+     * Check whether the filter may contain a record
+     * 
+     * @param bloomFilter
+     *            the filter
+     * @param lRecipientHash
+     *            the hash of the recipient
+     * @param lEventHash
+     *            the hash of the event
+     * @return false if the record is not in the filter, true if it may be
+     */
+    private boolean mightContain( BitSet bloomFilter, long lRecipientHash, long lEventHash )
+    {
+        long lHash = mix( lRecipientHash, lEventHash );
+        int nHash1 = (int) lHash;
+        int nHash2 = (int) ( lHash >>> 32 );
+
+        for ( int i = 0; i < NB_HASH_FUNCTIONS; i++ )
+        {
+            if ( !bloomFilter.get( Math.floorMod( nHash1 + i * nHash2, _nBloomSize ) ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Combine the recipient hash and the event hash in a well distributed 64 bits hash
+     * 
+     * @param lRecipientHash
+     *            the hash of the recipient
+     * @param lEventHash
+     *            the hash of the event
+     * @return the combined hash
+     */
+    private static long mix( long lRecipientHash, long lEventHash )
+    {
+        long lHash = lEventHash ^ ( lRecipientHash * 0x9E3779B97F4A7C15L );
+        lHash = ( lHash ^ ( lHash >>> 33 ) ) * 0xFF51AFD7ED558CCDL;
+        lHash = ( lHash ^ ( lHash >>> 33 ) ) * 0xC4CEB9FE1A85EC53L;
+
+        return lHash ^ ( lHash >>> 33 );
+    }
+
+    /**
+     * Get the hash identifying an event. The events have no identifier : an event is identified by its demand, its dates and its type.
+     * 
+     * @param notificationEvent
+     *            the event
+     * @return the 64 bits FNV-1a hash of the event identity
+     */
+    static long getEventHash( NotificationEvent notificationEvent )
+    {
+        return hash( notificationEvent.getDemand( ).getId( ) + '|' + notificationEvent.getDemand( ).getTypeId( ) + '|'
+                + notificationEvent.getNotificationDate( ) + '|' + notificationEvent.getEvent( ).getEventDate( ) + '|'
+                + notificationEvent.getEvent( ).getType( ) );
+    }
+
+    /**
+     * Get the hash identifying a recipient
+     * 
+     * @param strRecipient
+     *            the mail of the recipient
+     * @return the 64 bits FNV-1a hash of the mail
+     */
+    static long getRecipientHash( String strRecipient )
+    {
+        return hash( strRecipient );
+    }
+
+    /**
+     * Hash a string
+     * 
+     * @param strValue
+     *            the string
+     * @return the 64 bits FNV-1a hash of the string
+     */
+    private static long hash( String strValue )
+    {
+        long lHash = 0xCBF29CE484222325L;
+        for ( int i = 0; i < strValue.length( ); i++ )
+        {
+            lHash ^= strValue.charAt( i );
+            lHash *= 0x100000001B3L;
+        }
+
+        return lHash;
+    }
+}
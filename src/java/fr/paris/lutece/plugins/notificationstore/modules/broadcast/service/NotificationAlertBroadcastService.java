@@ -35,21 +35,41 @@ package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandServiceProvider;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
-import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastFeed;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastFeedIndex;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastLeaseHome;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastMail;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastMailHome;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastWatermark;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastWatermarkHome;
 import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.SubscriptionHome;
-import fr.paris.lutece.portal.service.mail.MailService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
-import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
-import fr.paris.lutece.util.html.HtmlTemplate;
+import fr.paris.lutece.util.sql.TransactionManager;
+import java.lang.management.ManagementFactory;
 import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Map.Entry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -61,99 +81,1110 @@ public class NotificationAlertBroadcastService
     // constants
     private static String DEMAND_SERVICE_BEAN_NAME = "notificationstore.demandService";
     private static String STATUS_FAILED = "FAILED";
-    private static String KEY_NOTIFICATION_EVENT_LIST = "notification_event_list";
-    private static String KEY_START = "start";
-    private static String KEY_END = "end";
     
-    private static String PROPERTY_GRU_ALERTS_FROM_NAME ="notificationstore-broadcast.mail.from.name";
-    private static String PROPERTY_GRU_ALERTS_FROM_MAIL ="notificationstore-broadcast.mail.from.mail";
     private static String PROPERTY_GRU_ALERTS_SUBJECT   ="notificationstore-broadcast.mail.subject";
-    private static String GRU_ALERTS_FROM_NAME = AppPropertiesService.getProperty( PROPERTY_GRU_ALERTS_FROM_NAME, "GRU ESB Notification alerts Daemon" );
-    private static String GRU_ALERTS_FROM_MAIL = AppPropertiesService.getProperty( PROPERTY_GRU_ALERTS_FROM_MAIL, "no-reply@paris.fr" );
+    private static String PROPERTY_BROADCAST_THREADS = "notificationstore-broadcast.broadcast.threads";
+    private static String PROPERTY_BROADCAST_BATCH_FETCH = "notificationstore-broadcast.broadcast.batchFetch";
+    private static String PROPERTY_BROADCAST_FETCH_WINDOW = "notificationstore-broadcast.broadcast.fetchWindow";
+    private static String PROPERTY_BROADCAST_MAX_LOOKBACK = "notificationstore-broadcast.broadcast.watermark.maxLookback";
+    private static String PROPERTY_BROADCAST_SCHEDULE_TOLERANCE = "notificationstore-broadcast.broadcast.schedule.tolerance";
+    private static String PROPERTY_BROADCAST_DEMAND_TYPE_IDS = "notificationstore-broadcast.broadcast.demandTypeIds";
+    private static String PROPERTY_QUEUE_MAX_PENDING = "notificationstore-broadcast.mail.queue.maxPending";
+    private static String PROPERTY_BROADCAST_DIGEST = "notificationstore-broadcast.broadcast.digest";
+    private static String PROPERTY_BROADCAST_DEDUP = "notificationstore-broadcast.broadcast.dedup.enabled";
+    private static String PROPERTY_BROADCAST_DEDUP_BLOOM_SIZE = "notificationstore-broadcast.broadcast.dedup.bloomSize";
+    private static String PROPERTY_BROADCAST_CLUSTER = "notificationstore-broadcast.broadcast.cluster.enabled";
+    private static String PROPERTY_BROADCAST_CLUSTER_NODE_ID = "notificationstore-broadcast.broadcast.cluster.nodeId";
+    private static String PROPERTY_BROADCAST_CLUSTER_LEASE_DURATION = "notificationstore-broadcast.broadcast.cluster.leaseDuration";
+    private static String PROPERTY_MAIL_MAX_RECIPIENTS = "notificationstore-broadcast.mail.maxRecipients";
+    private static String PROPERTY_MAIL_MAX_DETAILED_EVENTS = "notificationstore-broadcast.mail.maxDetailedEvents";
+    private static String PROPERTY_MAIL_MAX_GROUPS = "notificationstore-broadcast.mail.maxGroups";
+    private static String PROPERTY_GRU_ALERTS_DIGEST_SUBJECT = "notificationstore-broadcast.mail.digest.subject";
     private static String GRU_ALERTS_SUBJECT = AppPropertiesService.getProperty( PROPERTY_GRU_ALERTS_SUBJECT, "GRU ESB notifications alerts - demand type : %s" );
+    private static String GRU_ALERTS_DIGEST_SUBJECT = AppPropertiesService.getProperty( PROPERTY_GRU_ALERTS_DIGEST_SUBJECT,
+            "GRU ESB notifications alerts - %s demand type(s)" );
+    private static int BROADCAST_THREADS = AppPropertiesService.getPropertyInt( PROPERTY_BROADCAST_THREADS, 4 );
+    private static boolean BROADCAST_BATCH_FETCH = AppPropertiesService.getPropertyBoolean( PROPERTY_BROADCAST_BATCH_FETCH, true );
+    private static int BROADCAST_FETCH_WINDOW = AppPropertiesService.getPropertyInt( PROPERTY_BROADCAST_FETCH_WINDOW, 60 );
+    private static int BROADCAST_MAX_LOOKBACK = AppPropertiesService.getPropertyInt( PROPERTY_BROADCAST_MAX_LOOKBACK, 168 );
+    private static int BROADCAST_SCHEDULE_TOLERANCE = AppPropertiesService.getPropertyInt( PROPERTY_BROADCAST_SCHEDULE_TOLERANCE, 5 );
+    private static int QUEUE_MAX_PENDING = AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_MAX_PENDING, 10000 );
+    private static boolean BROADCAST_DIGEST = AppPropertiesService.getPropertyBoolean( PROPERTY_BROADCAST_DIGEST, false );
+    private static boolean BROADCAST_DEDUP = AppPropertiesService.getPropertyBoolean( PROPERTY_BROADCAST_DEDUP, true );
+    private static boolean BROADCAST_CLUSTER = AppPropertiesService.getPropertyBoolean( PROPERTY_BROADCAST_CLUSTER, false );
+    private static String BROADCAST_CLUSTER_NODE_ID = AppPropertiesService.getProperty( PROPERTY_BROADCAST_CLUSTER_NODE_ID,
+            ManagementFactory.getRuntimeMXBean( ).getName( ) );
+    private static int BROADCAST_CLUSTER_LEASE_DURATION = AppPropertiesService.getPropertyInt( PROPERTY_BROADCAST_CLUSTER_LEASE_DURATION, 30 );
+    private static int MAIL_MAX_RECIPIENTS = AppPropertiesService.getPropertyInt( PROPERTY_MAIL_MAX_RECIPIENTS, 50 );
+    private static int MAIL_MAX_DETAILED_EVENTS = AppPropertiesService.getPropertyInt( PROPERTY_MAIL_MAX_DETAILED_EVENTS, 200 );
+    private static int MAIL_MAX_GROUPS = AppPropertiesService.getPropertyInt( PROPERTY_MAIL_MAX_GROUPS, 100 );
+    private static int COLLECT_CHUNK_SIZE = 1000;
+    private static List<Integer> BROADCAST_DEMAND_TYPE_IDS = getDemandTypeIds( AppPropertiesService.getProperty( PROPERTY_BROADCAST_DEMAND_TYPE_IDS ) );
     
     // Templates
     private static final String TEMPLATE_MAIL = "/admin/plugins/notificationstore/modules/broadcast/mail.html";
+    private static final String TEMPLATE_MAIL_DIGEST = "/admin/plugins/notificationstore/modules/broadcast/mail_digest.html";
 
+    private static final Plugin _plugin = PluginService.getPlugin( "notificationstore-broadcast" );
+    private static final BroadcastScheduler _scheduler = new BroadcastScheduler( );
+    private static final BroadcastMailRenderer _renderer = new BroadcastMailRenderer( TEMPLATE_MAIL );
+    private static final BroadcastMailRenderer _digestRenderer = new BroadcastMailRenderer( TEMPLATE_MAIL_DIGEST );
+    private static final BroadcastSentEventStore _sentEventStore = new BroadcastSentEventStore(
+            AppPropertiesService.getPropertyInt( PROPERTY_BROADCAST_DEDUP_BLOOM_SIZE, 8 * 1024 * 1024 ), BROADCAST_CLUSTER );
+
+    /**
+     * Broadcast the alerts of the due feeds, and record the metrics of the run
+     * 
+     * @param defaultLocale
+     *            the locale
+     * @return the logs of the run
+     */
     public static String broadcast( Locale defaultLocale )
     {
+        long lStart = System.nanoTime( );
+        BroadcastMetrics.RunMetrics run = new BroadcastMetrics.RunMetrics( System.currentTimeMillis( ) );
 
-        // get subscripters list
-        List<Subscription> listSub = SubscriptionHome.getSubscriptionsList( );
+        try
+        {
+            String strLogs = broadcast( defaultLocale, run );
+            run.setLogs( strLogs );
 
-        if ( listSub.isEmpty( ) )
+            return strLogs;
+        }
+        finally
+        {
+            run.setDuration( BroadcastMetrics.elapsedSince( lStart ) );
+            BroadcastMetrics.recordRun( run );
+        }
+    }
+
+    /**
+     * Broadcast the alerts of the due feeds
+     * 
+     * @param defaultLocale
+     *            the locale
+     * @param run
+     *            the metrics of the run
+     * @return the logs of the run
+     */
+    private static String broadcast( Locale defaultLocale, BroadcastMetrics.RunMetrics run )
+    {
+
+        // get subscripters, grouped by demand_type_id and frequency
+        // (only the subscriptions to the demand types handled by this instance are loaded, if they are configured)
+        BroadcastFeedIndex feedIndex = BROADCAST_DEMAND_TYPE_IDS.isEmpty( ) ? SubscriptionHome.getBroadcastFeedIndex( )
+                : SubscriptionHome.getBroadcastFeedIndex( BROADCAST_DEMAND_TYPE_IDS );
+
+        if ( feedIndex.isEmpty( ) )
         {
             return "no subscribers";
         }
 
-        // get concerned demand_type_id
-        Map<String, Subscription> mapBroadcastFeeds = new HashMap<>( );
-        Map<String, List<String>> mapBroadcastFeedRecipients = new HashMap<>( );
+        int nbSubscriptions = 0;
+        for ( BroadcastFeed broadcastFeed : feedIndex.getFeeds( ) )
+        {
+            nbSubscriptions += broadcastFeed.getRecipients( ).length;
+        }
+        run.setNbSubscriptions( nbSubscriptions );
+        run.setNbFeeds( feedIndex.getFeeds( ).size( ) );
+
+        // backpressure : do not queue more mails while the sender is late, the feeds stay due until the next run
+        int nbQueuedMail = BroadcastMailHome.countMails( BroadcastMail.STATUS_PENDING ) + BroadcastMailHome.countMails( BroadcastMail.STATUS_SENDING );
+        if ( nbQueuedMail >= QUEUE_MAX_PENDING )
+        {
+            return "mail queue full (" + nbQueuedMail + " mail(s) waiting) : broadcast postponed.";
+        }
+
+        // select last alerts by demand_type_id by frequency
+        // & queue alert list for the subscribers (sent by the BroadcastMailSenderDaemon)
+        // each demand type is processed by a bounded pool, so that the number of concurrent
+        // queries against the notificationstore database stays under control
+        IDemandServiceProvider storageService = SpringContextService.getBean( DEMAND_SERVICE_BEAN_NAME );
+        int nbMailQueued = 0;
+        int nbEvent = 0;
+        int nbFeedError = 0;
+
+        // get the date up to which each feed has already been broadcast
+        Map<Long, Long> mapWatermarks = new HashMap<>( );
+        for ( BroadcastWatermark watermark : BroadcastWatermarkHome.getWatermarksList( ) )
+        {
+            mapWatermarks.put( BroadcastFeed.getKey( watermark.getDemandTypeId( ), watermark.getFrequency( ) ), watermark.getLastBroadcastDate( ) );
+        }
+
+        // only process the feeds whose frequency period has elapsed
+        // (with a tolerance, as the daemon runs are not exactly aligned on the frequencies)
+        LocalDateTime ldtNow = LocalDateTime.now( );
+        long lNow = Timestamp.valueOf( ldtNow ).getTime( );
+
+        // the recipients subscribed to a demand type at several frequencies receive each event once, by the first of their feeds reading it
+        Map<Integer, Set<String>> mapMultiFrequencyRecipients = Collections.emptyMap( );
+        if ( BROADCAST_DEDUP )
+        {
+            mapMultiFrequencyRecipients = getMultiFrequencyRecipients( feedIndex.getFeeds( ) );
+
+            // an event can not be scanned again after the longest frequency
+            int nMaxFrequency = 0;
+            for ( BroadcastFeed broadcastFeed : feedIndex.getFeeds( ) )
+            {
+                nMaxFrequency = Math.max( nMaxFrequency, broadcastFeed.getFrequency( ) );
+            }
+            _sentEventStore.purge( lNow - TimeUnit.HOURS.toMillis( nMaxFrequency + 1L ), lNow, TimeUnit.HOURS.toMillis( 1 ) );
+        }
+
+        _scheduler.synchronize( feedIndex.getFeeds( ), mapWatermarks );
+        List<Long> listDueFeeds = _scheduler.pollDueFeeds( lNow + TimeUnit.MINUTES.toMillis( BROADCAST_SCHEDULE_TOLERANCE ) );
+
+        run.setNbDueFeeds( listDueFeeds.size( ) );
+
+        if ( listDueFeeds.isEmpty( ) )
+        {
+            return "no feed due.";
+        }
+
+        List<List<BroadcastFeed>> listTaskFeeds = new ArrayList<>( );
+        Map<Integer, List<BroadcastFeed>> mapDemandTypeFeeds = new HashMap<>( );
+
+        for ( Long lDueFeed : listDueFeeds )
+        {
+            BroadcastFeed broadcastFeed = feedIndex.getFeed( lDueFeed );
+
+            if ( broadcastFeed == null )
+            {
+                // the last subscription of the feed has just been removed
+                continue;
+            }
+
+            if ( BROADCAST_BATCH_FETCH )
+            {
+                // one query per demand type, covering the widest window of its feeds
+                mapDemandTypeFeeds.computeIfAbsent( broadcastFeed.getDemandTypeId( ), k -> new ArrayList<>( ) ).add( broadcastFeed );
+            }
+            else
+            {
+                listTaskFeeds.add( Collections.singletonList( broadcastFeed ) );
+            }
+        }
+        listTaskFeeds.addAll( mapDemandTypeFeeds.values( ) );
+
+        // feeds broadcast without error are due again after their frequency period,
+        // the other ones are due at the next run
+        List<Long> listBroadcastFeeds = new ArrayList<>( );
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, Math.min( BROADCAST_THREADS, listTaskFeeds.size( ) ) ) );
+        List<Future<BroadcastResult>> listResults = new ArrayList<>( );
+        List<FeedPeriod> listDigestPeriods = new ArrayList<>( );
+        Set<Integer> setClaimedDemandTypes = new HashSet<>( );
+        // the alerts with the same events share the rendered body during the run, whatever the period of their feed
+        BroadcastRenderCache renderCache = new BroadcastRenderCache( );
 
-        for ( Subscription sub : listSub )
+        try
         {
-            String strBroadcastFeedKey = getKey( sub );
+            for ( List<BroadcastFeed> listFeeds : listTaskFeeds )
+            {
+                listResults.add( executor.submit( new BroadcastTask( listFeeds, mapWatermarks,
+                        mapMultiFrequencyRecipients.getOrDefault( listFeeds.get( 0 ).getDemandTypeId( ), Collections.emptySet( ) ), storageService,
+                        renderCache, ldtNow, defaultLocale, BROADCAST_DIGEST ) ) );
+            }
 
-            if ( !mapBroadcastFeeds.containsKey( strBroadcastFeedKey ) )
+            for ( int i = 0; i < listResults.size( ); i++ )
             {
-                Subscription broadcastFeed = new Subscription( );
-                broadcastFeed.setDemandTypeId( sub.getDemandTypeId( ) );
-                broadcastFeed.setFrequency( sub.getFrequency( ) );
+                try
+                {
+                    BroadcastResult result = listResults.get( i ).get( );
+                    nbMailQueued += result._nbMailQueued;
+                    nbEvent += result._nbEvent;
+                    nbFeedError += result._listFeedsInError.size( );
+                    // in digest mode, the feeds are broadcast once their digests are queued
+                    listDigestPeriods.addAll( result._listFeedPeriods );
+                    setClaimedDemandTypes.addAll( result._listClaimedDemandTypes );
 
-                mapBroadcastFeeds.put( strBroadcastFeedKey, broadcastFeed );
-                mapBroadcastFeedRecipients.put( strBroadcastFeedKey, new ArrayList<String>( ) );
+                    for ( BroadcastFeed broadcastFeed : listTaskFeeds.get( i ) )
+                    {
+                        Long lNextDueDate = result._mapNextDueDates.get( broadcastFeed.getKey( ) );
+                        if ( lNextDueDate != null )
+                        {
+                            // already broadcast by another node of the cluster
+                            _scheduler.reschedule( broadcastFeed.getKey( ), lNextDueDate );
+                        }
+                        else
+                            if ( !BROADCAST_DIGEST && !result._listFeedsInError.contains( broadcastFeed.getKey( ) )
+                                    && !result._listFeedsSkipped.contains( broadcastFeed.getKey( ) ) )
+                            {
+                                listBroadcastFeeds.add( broadcastFeed.getKey( ) );
+                            }
+                    }
+                }
+                catch( ExecutionException e )
+                {
+                    // a failing demand type must not prevent the other ones from being broadcast
+                    AppLogService.error( "Unable to broadcast the alerts of the demand type " + listTaskFeeds.get( i ).get( 0 ).getDemandTypeId( ), e.getCause( ) );
+                    nbFeedError += listTaskFeeds.get( i ).size( );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    AppLogService.error( "Broadcast interrupted", e );
+                    break;
+                }
             }
 
-            mapBroadcastFeedRecipients.get( strBroadcastFeedKey ).add( sub.getMail( ) );
+            if ( BROADCAST_DIGEST )
+            {
+                BroadcastResult result = queueDigests( listDigestPeriods, defaultLocale );
+                nbMailQueued += result._nbMailQueued;
+                nbEvent += result._nbEvent;
+                nbFeedError += result._listFeedsInError.size( );
+
+                Set<Long> setDigestFeeds = new LinkedHashSet<>( );
+                for ( FeedPeriod feedPeriod : listDigestPeriods )
+                {
+                    setDigestFeeds.add( feedPeriod._feed.getKey( ) );
+                }
+                for ( Long lFeedKey : setDigestFeeds )
+                {
+                    if ( !result._listFeedsInError.contains( lFeedKey ) )
+                    {
+                        listBroadcastFeeds.add( lFeedKey );
+                    }
+                }
+            }
         }
+        finally
+        {
+            executor.shutdownNow( );
+            _scheduler.rescheduleAfterBroadcast( listBroadcastFeeds, lNow );
 
-        // select last alerts by demand_type_id by frequency
-        // & send alert list to subscribers
-        IDemandServiceProvider storageService = SpringContextService.getBean( DEMAND_SERVICE_BEAN_NAME );
-        int nbMailSent = 0;
+            for ( Integer nDemandTypeId : setClaimedDemandTypes )
+            {
+                BroadcastLeaseHome.release( nDemandTypeId, BROADCAST_CLUSTER_NODE_ID );
+            }
+        }
+
+        run.setNbEvents( nbEvent );
+        run.setNbMailsQueued( nbMailQueued );
+        run.setNbFeedErrors( nbFeedError );
+        run.setRenderCacheHits( renderCache.getHitCount( ) );
+        run.setRenderCacheMisses( renderCache.getMissCount( ) );
+
+        return nbMailQueued + " mail(s) queued, " + nbEvent + " event(s) broadcast, " + nbFeedError + " feed(s) in error, render cache : "
+                + renderCache.getHitCount( ) + " hit(s) / " + renderCache.getMissCount( ) + " miss(es).";
+    }
+
+    /**
+     * Get the start of the period of a feed : the date up to which it has already been broadcast, limited to the oldest date which can be scanned,
+     * or the frequency window for a new feed
+     * 
+     * @param lWatermark
+     *            the date up to which the feed has been broadcast, or null if it has never been
+     * @param nFrequency
+     *            the frequency of the feed, in hours
+     * @param ldtNow
+     *            the date of the run
+     * @param lLowestStartPeriod
+     *            the oldest date which can be scanned
+     * @return the start of the period (excluded)
+     */
+    static long getStartPeriod( Long lWatermark, int nFrequency, LocalDateTime ldtNow, long lLowestStartPeriod )
+    {
+        if ( lWatermark == null )
+        {
+            return Timestamp.valueOf( ldtNow.minusHours( nFrequency ) ).getTime( );
+        }
+
+        return Math.max( lWatermark, lLowestStartPeriod );
+    }
+
+    /**
+     * Check whether an event belongs to the period of a feed : the events of the start date have been broadcast by the previous period
+     * 
+     * @param lEventDate
+     *            the date of the event
+     * @param lStartPeriod
+     *            the start of the period (excluded)
+     * @param lEndPeriod
+     *            the end of the period (included)
+     * @return true if the event belongs to the period
+     */
+    static boolean isInPeriod( long lEventDate, long lStartPeriod, long lEndPeriod )
+    {
+        return lEventDate > lStartPeriod && lEventDate <= lEndPeriod;
+    }
+
+    /**
+     * Create a bounded collector of the events of an alert
+     * 
+     * @return the collector
+     */
+    static BroadcastEventCollector newEventCollector( )
+    {
+        return new BroadcastEventCollector( MAIL_MAX_DETAILED_EVENTS, MAIL_MAX_GROUPS );
+    }
+
+    /**
+     * Get the recipients subscribed to a demand type at several frequencies : an event reaches them through each of their feeds
+     * 
+     * @param collectionFeeds
+     *            the feeds
+     * @return the recipients subscribed at several frequencies, by demand type id
+     */
+    static Map<Integer, Set<String>> getMultiFrequencyRecipients( Collection<BroadcastFeed> collectionFeeds )
+    {
+        Map<Integer, Set<String>> mapRecipients = new HashMap<>( );
+        Map<Integer, Set<String>> mapMultiFrequencyRecipients = new HashMap<>( );
+
+        for ( BroadcastFeed broadcastFeed : collectionFeeds )
+        {
+            Set<String> setRecipients = mapRecipients.computeIfAbsent( broadcastFeed.getDemandTypeId( ), k -> new HashSet<>( ) );
+            for ( String strRecipient : new HashSet<>( Arrays.asList( broadcastFeed.getRecipients( ) ) ) )
+            {
+                if ( !setRecipients.add( strRecipient ) )
+                {
+                    mapMultiFrequencyRecipients.computeIfAbsent( broadcastFeed.getDemandTypeId( ), k -> new HashSet<>( ) ).add( strRecipient );
+                }
+            }
+        }
+
+        return mapMultiFrequencyRecipients;
+    }
+
+    /**
+     * Get the number of events broadcast by a feed : the largest number of events of its periods
+     * 
+     * @param listPeriods
+     *            the periods of the feed
+     * @return the number of events
+     */
+    private static int getNbEvents( List<FeedPeriod> listPeriods )
+    {
         int nbEvent = 0;
+        for ( FeedPeriod feedPeriod : listPeriods )
+        {
+            nbEvent = Math.max( nbEvent, feedPeriod._collector.getNbEvents( ) );
+        }
+
+        return nbEvent;
+    }
 
-        for ( Map.Entry<String, Subscription> entry : mapBroadcastFeeds.entrySet( ) )
+    /**
+     * Parse the list of the demand types handled by the broadcast
+     * 
+     * @param strDemandTypeIds
+     *            the comma separated demand type ids
+     * @return the demand type ids, empty to handle all the demand types
+     */
+    private static List<Integer> getDemandTypeIds( String strDemandTypeIds )
+    {
+        List<Integer> listDemandTypeIds = new ArrayList<>( );
+        if ( strDemandTypeIds == null )
+        {
+            return listDemandTypeIds;
+        }
+
+        for ( String strDemandTypeId : strDemandTypeIds.split( "," ) )
         {
-            Subscription broadcastFeed = entry.getValue( );
+            if ( !strDemandTypeId.trim( ).isEmpty( ) )
+            {
+                try
+                {
+                    listDemandTypeIds.add( Integer.parseInt( strDemandTypeId.trim( ) ) );
+                }
+                catch( NumberFormatException e )
+                {
+                    AppLogService.error( "Invalid demand type id in " + PROPERTY_BROADCAST_DEMAND_TYPE_IDS + " : " + strDemandTypeId );
+                }
+            }
+        }
 
-            LocalDateTime ldtNow = LocalDateTime.now( );
-            long endPeriod = Timestamp.valueOf( ldtNow ).getTime( );
-            long startPeriod = Timestamp.valueOf( ldtNow.minusHours( broadcastFeed.getFrequency( ) ) ).getTime( );
+        return listDemandTypeIds;
+    }
 
-            List<NotificationEvent> listEvent = storageService.findEventsByDateAndDemandTypeIdAndStatus(startPeriod, endPeriod,
-                    String.valueOf( broadcastFeed.getDemandTypeId( ) ), STATUS_FAILED );
+    /**
+     * Queue the digests of the broadcast feeds : for each frequency, the feeds are grouped by recipient, and the recipients having the same feeds
+     * with events share the same mail
+     * 
+     * @param listFeedPeriods
+     *            the events of the feeds over their period
+     * @param locale
+     *            the locale
+     * @return the counters of the digests
+     */
+    private static BroadcastResult queueDigests( List<FeedPeriod> listFeedPeriods, Locale locale )
+    {
+        BroadcastResult result = new BroadcastResult( );
+
+        Map<Integer, List<FeedPeriod>> mapFrequencyPeriods = new HashMap<>( );
+        for ( FeedPeriod feedPeriod : listFeedPeriods )
+        {
+            mapFrequencyPeriods.computeIfAbsent( feedPeriod._feed.getFrequency( ), k -> new ArrayList<>( ) ).add( feedPeriod );
+        }
 
-            if ( !listEvent.isEmpty( ) )
+        for ( List<FeedPeriod> listPeriods : mapFrequencyPeriods.values( ) )
+        {
+            listPeriods.sort( ( period1, period2 ) -> Long.compare( period1._feed.getKey( ), period2._feed.getKey( ) ) );
+
+            // invert the feed -> recipients map, keeping only the feeds with events
+            Map<String, List<FeedPeriod>> mapRecipientPeriods = new HashMap<>( );
+            for ( FeedPeriod feedPeriod : listPeriods )
             {
-                Map<String, Object> model = new HashMap<>( );
-                model.put( KEY_START, startPeriod );
-                model.put( KEY_END, endPeriod );
-                
-                model.put( KEY_NOTIFICATION_EVENT_LIST, listEvent );
+                if ( !feedPeriod._collector.isEmpty( ) )
+                {
+                    for ( String strRecipient : feedPeriod._listRecipients )
+                    {
+                        mapRecipientPeriods.computeIfAbsent( strRecipient, k -> new ArrayList<>( ) ).add( feedPeriod );
+                    }
+                }
+            }
 
-                HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_MAIL, defaultLocale, model );
-                String strToList = String.join( ",", mapBroadcastFeedRecipients.get( entry.getKey( ) ) );
+            // the recipients having the same feeds receive the same mail, rendered once
+            Map<List<FeedPeriod>, List<String>> mapDigestRecipients = new HashMap<>( );
+            for ( Map.Entry<String, List<FeedPeriod>> entry : mapRecipientPeriods.entrySet( ) )
+            {
+                mapDigestRecipients.computeIfAbsent( entry.getValue( ), k -> new ArrayList<>( ) ).add( entry.getKey( ) );
+            }
 
-                MailService.sendMailHtml( strToList, GRU_ALERTS_FROM_NAME, GRU_ALERTS_FROM_MAIL,
-                		String.format(GRU_ALERTS_SUBJECT, String.valueOf( broadcastFeed.getDemandTypeId( ) ) ), template.getHtml( ) );
+            // a feed has a period for its recipients of this only frequency, and one per recipient subscribed at several frequencies
+            Map<Long, List<FeedPeriod>> mapFeedPeriods = new LinkedHashMap<>( );
+            for ( FeedPeriod feedPeriod : listPeriods )
+            {
+                mapFeedPeriods.computeIfAbsent( feedPeriod._feed.getKey( ), k -> new ArrayList<>( ) ).add( feedPeriod );
+            }
 
-                nbMailSent++;
-                nbEvent += listEvent.size( );
+            try
+            {
+                List<BroadcastMail> listMails = new ArrayList<>( );
+                for ( Map.Entry<List<FeedPeriod>, List<String>> entry : mapDigestRecipients.entrySet( ) )
+                {
+                    listMails.addAll( buildDigestMails( entry.getKey( ), entry.getValue( ), locale ) );
+                }
+
+                // the digests are queued if and only if the watermarks of their feeds are moved
+                TransactionManager.beginTransaction( _plugin );
+                try
+                {
+                    BroadcastMailHome.createAll( listMails );
+                    for ( FeedPeriod feedPeriod : listPeriods )
+                    {
+                        if ( feedPeriod._strRecipient != null )
+                        {
+                            _sentEventStore.markSent( feedPeriod._strRecipient, feedPeriod._setEventHashes, feedPeriod._lEnd );
+                        }
+                    }
+                    for ( List<FeedPeriod> listPeriodsOfFeed : mapFeedPeriods.values( ) )
+                    {
+                        saveWatermark( listPeriodsOfFeed.get( 0 )._feed, listPeriodsOfFeed.get( 0 )._lEnd );
+                    }
+                    TransactionManager.commitTransaction( _plugin );
+                }
+                catch( RuntimeException e )
+                {
+                    TransactionManager.rollBack( _plugin, e );
+                    throw e;
+                }
+
+                result._nbMailQueued += listMails.size( );
+                for ( List<FeedPeriod> listPeriodsOfFeed : mapFeedPeriods.values( ) )
+                {
+                    result._nbEvent += getNbEvents( listPeriodsOfFeed );
+                }
             }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Unable to broadcast the digests of the frequency " + listPeriods.get( 0 )._feed.getFrequency( ), e );
+                result._listFeedsInError.addAll( mapFeedPeriods.keySet( ) );
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Render the digest mail of recipients having the same feeds
+     * 
+     * @param listPeriods
+     *            the feeds with events, and their events
+     * @param listRecipients
+     *            the recipients
+     * @param locale
+     *            the locale
+     * @return the mails, one per chunk of recipients
+     */
+    private static List<BroadcastMail> buildDigestMails( List<FeedPeriod> listPeriods, List<String> listRecipients, Locale locale )
+    {
+        List<BroadcastDigestSection> listSections = new ArrayList<>( );
+        for ( FeedPeriod feedPeriod : listPeriods )
+        {
+            listSections.add( new BroadcastDigestSection( feedPeriod._feed.getDemandTypeId( ), feedPeriod._lStart, feedPeriod._lEnd, feedPeriod._collector ) );
+        }
+
+        // a digest covers several demand types
+        return buildMails( 0, listPeriods.get( 0 )._feed.getFrequency( ), String.format( GRU_ALERTS_DIGEST_SUBJECT, String.valueOf( listSections.size( ) ) ),
+                _digestRenderer.renderDigest( listSections, locale ), listRecipients );
+    }
+
+    /**
+     * Build the mails of a rendered alert : the recipients are split in chunks, each chunk being a mail of the queue, sent and retried on its own.
+     * The chunks are consecutive in the returned list, so that their body is stored once when they are queued.
+     * 
+     * @param nDemandTypeId
+     *            the demand type id (0 for a digest)
+     * @param nFrequency
+     *            the frequency
+     * @param strSubject
+     *            the subject
+     * @param strBody
+     *            the rendered body, shared by the chunks
+     * @param listRecipients
+     *            the recipients
+     * @return the mails, one per chunk of recipients
+     */
+    static List<BroadcastMail> buildMails( int nDemandTypeId, int nFrequency, String strSubject, String strBody, List<String> listRecipients )
+    {
+        List<BroadcastMail> listMails = new ArrayList<>( );
+        int nChunkSize = ( MAIL_MAX_RECIPIENTS > 0 ) ? MAIL_MAX_RECIPIENTS : listRecipients.size( );
+        long lNow = System.currentTimeMillis( );
+
+        for ( int nFrom = 0; nFrom < listRecipients.size( ); nFrom += nChunkSize )
+        {
+            BroadcastMail mail = new BroadcastMail( );
+            mail.setDemandTypeId( nDemandTypeId );
+            mail.setFrequency( nFrequency );
+            mail.setRecipients( String.join( ",", listRecipients.subList( nFrom, Math.min( nFrom + nChunkSize, listRecipients.size( ) ) ) ) );
+            mail.setSubject( strSubject );
+            mail.setBody( strBody );
+            mail.setStatus( BroadcastMail.STATUS_PENDING );
+            mail.setCreationDate( lNow );
+            mail.setNextAttemptDate( lNow );
+            listMails.add( mail );
         }
 
-        return nbMailSent + " mail(s) sent.";
+        return listMails;
     }
 
     /**
-     * get unique key
+     * Save the date up to which a feed has been broadcast
      * 
-     * @param sub
-     * @return the key as String
+     * @param broadcastFeed
+     *            the feed
+     * @param endPeriod
+     *            the end of the broadcast period
+     */
+    private static void saveWatermark( BroadcastFeed broadcastFeed, long endPeriod )
+    {
+        BroadcastWatermark watermark = new BroadcastWatermark( );
+        watermark.setDemandTypeId( broadcastFeed.getDemandTypeId( ) );
+        watermark.setFrequency( broadcastFeed.getFrequency( ) );
+        watermark.setLastBroadcastDate( endPeriod );
+
+        BroadcastWatermarkHome.save( watermark );
+    }
+
+    /**
+     * Counters of a broadcast task
+     */
+    private static final class BroadcastResult
+    {
+        private int _nbMailQueued;
+        private int _nbEvent;
+        private final List<Long> _listFeedsInError = new ArrayList<>( );
+        private final List<FeedPeriod> _listFeedPeriods = new ArrayList<>( );
+        // cluster : the feeds held by another node, the feeds it has broadcast meanwhile, and the leases to release
+        private final List<Long> _listFeedsSkipped = new ArrayList<>( );
+        private final Map<Long, Long> _mapNextDueDates = new HashMap<>( );
+        private final List<Integer> _listClaimedDemandTypes = new ArrayList<>( );
+    }
+
+    /**
+     * Events of a feed over its broadcast period, for some of its recipients : the recipients subscribed to the demand type at this only frequency
+     * share a period, each recipient subscribed at several frequencies has its own period, without the events already sent by its other feeds
      */
-    private static String getKey( Subscription sub )
+    private static final class FeedPeriod
     {
-        return sub.getDemandTypeId( ) + "|" + sub.getFrequency( );
+        private final BroadcastFeed _feed;
+        private final long _lStart;
+        private final long _lEnd;
+        private final String _strRecipient;
+        private final List<String> _listRecipients;
+        private final BroadcastEventCollector _collector = newEventCollector( );
+        private final Set<Long> _setEventHashes = new HashSet<>( );
+
+        /**
+         * Constructor
+         * 
+         * @param feed
+         *            the feed
+         * @param lStart
+         *            the start of the period
+         * @param lEnd
+         *            the end of the period
+         * @param strRecipient
+         *            the recipient subscribed at several frequencies, or null for the recipients of this only frequency
+         * @param listRecipients
+         *            the recipients of the period
+         */
+        FeedPeriod( BroadcastFeed feed, long lStart, long lEnd, String strRecipient, List<String> listRecipients )
+        {
+            _feed = feed;
+            _lStart = lStart;
+            _lEnd = lEnd;
+            _strRecipient = strRecipient;
+            _listRecipients = listRecipients;
+        }
+    }
+
+    /**
+     * Task which broadcasts the alerts of feeds sharing the same demand type to their recipients
+     */
+    private static final class BroadcastTask implements Callable<BroadcastResult>
+    {
+        private final List<BroadcastFeed> _listFeeds;
+        private final Map<Long, Long> _mapWatermarks;
+        private final Map<Long, Long> _mapFreshWatermarks = new HashMap<>( );
+        private final Set<String> _setMultiFrequencyRecipients;
+        private final IDemandServiceProvider _storageService;
+        private final BroadcastRenderCache _renderCache;
+        private final LocalDateTime _ldtNow;
+        private final Locale _locale;
+        private final boolean _bDigest;
+
+        /**
+         * Constructor
+         * 
+         * @param listFeeds
+         *            the feeds (frequencies) of a same demand type
+         * @param mapWatermarks
+         *            the dates up to which the feeds have been broadcast, by feed key
+         * @param setMultiFrequencyRecipients
+         *            the recipients subscribed to the demand type at several frequencies
+         * @param storageService
+         *            the demand service provider
+         * @param renderCache
+         *            the cache of the bodies rendered during the run
+         * @param ldtNow
+         *            the date of the run, end of the broadcast periods
+         * @param locale
+         *            the locale
+         * @param bDigest
+         *            true to return the events of the feeds to aggregate them in digests, false to queue a mail per feed
+         */
+        BroadcastTask( List<BroadcastFeed> listFeeds, Map<Long, Long> mapWatermarks, Set<String> setMultiFrequencyRecipients,
+                IDemandServiceProvider storageService, BroadcastRenderCache renderCache, LocalDateTime ldtNow, Locale locale, boolean bDigest )
+        {
+            _listFeeds = listFeeds;
+            _mapWatermarks = mapWatermarks;
+            _setMultiFrequencyRecipients = setMultiFrequencyRecipients;
+            _storageService = storageService;
+            _renderCache = renderCache;
+            _ldtNow = ldtNow;
+            _locale = locale;
+            _bDigest = bDigest;
+        }
+
+        /**
+         * Select the last alerts of the demand type over the widest window of its feeds, then split them by feed and send them to the subscribers
+         * 
+         * @return the counters of the task
+         */
+        @Override
+        public BroadcastResult call( )
+        {
+            long lStart = System.nanoTime( );
+            BroadcastMetrics.DemandTypeMetrics metrics = BroadcastMetrics.getDemandTypeMetrics( _listFeeds.get( 0 ).getDemandTypeId( ) );
+
+            try
+            {
+                BroadcastResult result = broadcast( metrics );
+                metrics.recordMailsQueued( result._nbMailQueued );
+                for ( int i = 0; i < result._listFeedsInError.size( ); i++ )
+                {
+                    metrics.recordFailure( );
+                }
+
+                return result;
+            }
+            finally
+            {
+                metrics.recordTask( BroadcastMetrics.elapsedSince( lStart ) );
+            }
+        }
+
+        /**
+         * Broadcast the feeds of the task
+         * 
+         * @param metrics
+         *            the metrics of the demand type
+         * @return the counters of the task
+         */
+        private BroadcastResult broadcast( BroadcastMetrics.DemandTypeMetrics metrics )
+        {
+            BroadcastResult result = new BroadcastResult( );
+
+            long endPeriod = Timestamp.valueOf( _ldtNow ).getTime( );
+            long lowestStartPeriod = Timestamp.valueOf( _ldtNow.minusHours( BROADCAST_MAX_LOOKBACK ) ).getTime( );
+            int nDemandTypeId = _listFeeds.get( 0 ).getDemandTypeId( );
+            List<BroadcastFeed> listFeeds = _listFeeds;
+
+            if ( BROADCAST_CLUSTER )
+            {
+                // the feeds of a demand type are broadcast by the node holding its lease
+                if ( !BroadcastLeaseHome.claim( nDemandTypeId, BROADCAST_CLUSTER_NODE_ID, endPeriod,
+                        endPeriod + TimeUnit.MINUTES.toMillis( BROADCAST_CLUSTER_LEASE_DURATION ) ) )
+                {
+                    // the feeds stay due, to take over if the other node fails
+                    for ( BroadcastFeed broadcastFeed : _listFeeds )
+                    {
+                        result._listFeedsSkipped.add( broadcastFeed.getKey( ) );
+                    }
+                    return result;
+                }
+                result._listClaimedDemandTypes.add( nDemandTypeId );
+                listFeeds = getFeedsStillDue( result, endPeriod );
+            }
+
+            if ( listFeeds.isEmpty( ) )
+            {
+                return result;
+            }
+
+            Map<Long, Long> mapStartPeriods = new HashMap<>( );
+            long widestStartPeriod = endPeriod;
+            for ( BroadcastFeed broadcastFeed : listFeeds )
+            {
+                long startPeriod = getStartPeriod( broadcastFeed, lowestStartPeriod );
+                mapStartPeriods.put( broadcastFeed.getKey( ), startPeriod );
+                widestStartPeriod = Math.min( widestStartPeriod, startPeriod );
+            }
+
+            // the memory kept by each feed period is bounded, whatever the number of events of the demand type
+            Map<Long, List<FeedPeriod>> mapPeriods = collect( nDemandTypeId, listFeeds, mapStartPeriods, widestStartPeriod, endPeriod, metrics );
+
+            for ( BroadcastFeed broadcastFeed : listFeeds )
+            {
+                List<FeedPeriod> listPeriods = mapPeriods.get( broadcastFeed.getKey( ) );
+
+                if ( _bDigest )
+                {
+                    result._listFeedPeriods.addAll( listPeriods );
+                    continue;
+                }
+
+                try
+                {
+                    // the mails are rendered before the transaction, which only covers the queue and watermark writes
+                    List<BroadcastMail> listMails = buildAlertMails( broadcastFeed, listPeriods, metrics );
+
+                    // the alert is queued if and only if the watermark is moved
+                    TransactionManager.beginTransaction( _plugin );
+                    try
+                    {
+                        BroadcastMailHome.createAll( listMails );
+                        for ( FeedPeriod feedPeriod : listPeriods )
+                        {
+                            if ( feedPeriod._strRecipient != null )
+                            {
+                                // all the events accepted for the recipient, detailed in the alert or only counted
+                                _sentEventStore.markSent( feedPeriod._strRecipient, feedPeriod._setEventHashes, endPeriod );
+                            }
+                        }
+                        saveWatermark( broadcastFeed, endPeriod );
+                        TransactionManager.commitTransaction( _plugin );
+                    }
+                    catch( RuntimeException e )
+                    {
+                        TransactionManager.rollBack( _plugin, e );
+                        throw e;
+                    }
+
+                    if ( !listMails.isEmpty( ) )
+                    {
+                        result._nbMailQueued += listMails.size( );
+                        result._nbEvent += getNbEvents( listPeriods );
+                    }
+                }
+                catch( RuntimeException e )
+                {
+                    // a failing feed must not prevent the other feeds from being broadcast
+                    AppLogService.error( "Unable to broadcast the alerts of the demand type " + broadcastFeed.getDemandTypeId( ) + " with the frequency "
+                            + broadcastFeed.getFrequency( ), e );
+                    result._listFeedsInError.add( broadcastFeed.getKey( ) );
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Once the lease is claimed, read again the watermarks of the feeds : another node may have broadcast them since they have been loaded
+         * 
+         * @param result
+         *            the result of the task, receiving the next due dates of the feeds already broadcast
+         * @param lNow
+         *            the date of the run
+         * @return the feeds which are still due
+         */
+        private List<BroadcastFeed> getFeedsStillDue( BroadcastResult result, long lNow )
+        {
+            List<BroadcastFeed> listFeeds = new ArrayList<>( );
+            for ( BroadcastFeed broadcastFeed : _listFeeds )
+            {
+                BroadcastWatermark watermark = BroadcastWatermarkHome.findByPrimaryKey( broadcastFeed.getDemandTypeId( ), broadcastFeed.getFrequency( ) );
+                if ( watermark == null )
+                {
+                    listFeeds.add( broadcastFeed );
+                    continue;
+                }
+
+                _mapFreshWatermarks.put( broadcastFeed.getKey( ), watermark.getLastBroadcastDate( ) );
+                long lNextDueDate = watermark.getLastBroadcastDate( ) + TimeUnit.HOURS.toMillis( broadcastFeed.getFrequency( ) );
+                if ( lNextDueDate > lNow + TimeUnit.MINUTES.toMillis( BROADCAST_SCHEDULE_TOLERANCE ) )
+                {
+                    result._mapNextDueDates.put( broadcastFeed.getKey( ), lNextDueDate );
+                }
+                else
+                {
+                    listFeeds.add( broadcastFeed );
+                }
+            }
+
+            return listFeeds;
+        }
+
+        /**
+         * Get the start of the period of a feed : the date up to which it has already been broadcast, or the frequency window for a new feed
+         * 
+         * @param broadcastFeed
+         *            the feed
+         * @param lowestStartPeriod
+         *            the oldest date which can be scanned
+         * @return the start of the period
+         */
+        private long getStartPeriod( BroadcastFeed broadcastFeed, long lowestStartPeriod )
+        {
+            Long lWatermark = _mapFreshWatermarks.containsKey( broadcastFeed.getKey( ) ) ? _mapFreshWatermarks.get( broadcastFeed.getKey( ) )
+                    : _mapWatermarks.get( broadcastFeed.getKey( ) );
+
+            return NotificationAlertBroadcastService.getStartPeriod( lWatermark, broadcastFeed.getFrequency( ), _ldtNow, lowestStartPeriod );
+        }
+
+        /**
+         * Fetch the events of the widest period by sub-windows, and dispatch them to bounded collectors, one per feed period. Only the events of a
+         * sub-window are in memory at once, and the events of a feed go through the deduplication by chunks, so that no full copy of the events is
+         * made per feed.
+         * 
+         * @param nDemandTypeId
+         *            the demand type id
+         * @param listFeeds
+         *            the feeds
+         * @param mapStartPeriods
+         *            the start of the period of each feed (excluded, already broadcast), by feed key
+         * @param widestStartPeriod
+         *            the start of the widest period
+         * @param endPeriod
+         *            the end of the periods
+         * @param metrics
+         *            the metrics of the demand type, receiving the queries
+         * @return the periods, by feed key
+         */
+        private Map<Long, List<FeedPeriod>> collect( int nDemandTypeId, List<BroadcastFeed> listFeeds, Map<Long, Long> mapStartPeriods,
+                long widestStartPeriod, long endPeriod, BroadcastMetrics.DemandTypeMetrics metrics )
+        {
+            Map<Long, List<FeedPeriod>> mapPeriods = new HashMap<>( );
+            Map<String, List<FeedPeriod>> mapRecipientPeriods = new HashMap<>( );
+            Map<Long, List<NotificationEvent>> mapChunks = new HashMap<>( );
+            for ( BroadcastFeed broadcastFeed : listFeeds )
+            {
+                List<FeedPeriod> listPeriods = newFeedPeriods( broadcastFeed, mapStartPeriods.get( broadcastFeed.getKey( ) ), endPeriod );
+                for ( FeedPeriod feedPeriod : listPeriods )
+                {
+                    if ( feedPeriod._strRecipient != null )
+                    {
+                        mapRecipientPeriods.computeIfAbsent( feedPeriod._strRecipient, k -> new ArrayList<>( ) ).add( feedPeriod );
+                    }
+                }
+                mapPeriods.put( broadcastFeed.getKey( ), listPeriods );
+                mapChunks.put( broadcastFeed.getKey( ), new ArrayList<>( ) );
+            }
+
+            String strDemandTypeId = String.valueOf( nDemandTypeId );
+            long lWindow = ( BROADCAST_FETCH_WINDOW > 0 ) ? TimeUnit.MINUTES.toMillis( BROADCAST_FETCH_WINDOW ) : endPeriod - widestStartPeriod;
+            long lWindowEnd;
+
+            for ( long lWindowStart = widestStartPeriod; lWindowStart < endPeriod; lWindowStart = lWindowEnd )
+            {
+                lWindowEnd = Math.min( lWindowStart + lWindow, endPeriod );
+
+                long lQueryStart = System.nanoTime( );
+                List<NotificationEvent> listWindowEvent = _storageService.findEventsByDateAndDemandTypeIdAndStatus( lWindowStart, lWindowEnd,
+                        strDemandTypeId, STATUS_FAILED );
+                metrics.recordQuery( BroadcastMetrics.elapsedSince( lQueryStart ), listWindowEvent.size( ) );
+
+                for ( NotificationEvent notificationEvent : listWindowEvent )
+                {
+                    long lEventDate = notificationEvent.getEvent( ).getEventDate( );
+                    if ( !isInPeriod( lEventDate, lWindowStart, lWindowEnd ) )
+                    {
+                        // an event at the boundary of two sub-windows is dispatched once
+                        continue;
+                    }
+
+                    for ( BroadcastFeed broadcastFeed : listFeeds )
+                    {
+                        if ( isInPeriod( lEventDate, mapStartPeriods.get( broadcastFeed.getKey( ) ), endPeriod ) )
+                        {
+                            List<NotificationEvent> listChunk = mapChunks.get( broadcastFeed.getKey( ) );
+                            listChunk.add( notificationEvent );
+                            if ( listChunk.size( ) >= COLLECT_CHUNK_SIZE )
+                            {
+                                collectChunk( mapPeriods.get( broadcastFeed.getKey( ) ), listChunk, mapRecipientPeriods );
+                            }
+                        }
+                    }
+                }
+
+                // the events of the sub-window are released before the next query
+                for ( BroadcastFeed broadcastFeed : listFeeds )
+                {
+                    collectChunk( mapPeriods.get( broadcastFeed.getKey( ) ), mapChunks.get( broadcastFeed.getKey( ) ), mapRecipientPeriods );
+                }
+            }
+
+            return mapPeriods;
+        }
+
+        /**
+         * Create the periods of a feed : one for the recipients subscribed to the demand type at this only frequency, and one per recipient
+         * subscribed at several frequencies
+         * 
+         * @param broadcastFeed
+         *            the feed
+         * @param lStartPeriod
+         *            the start of the period
+         * @param lEndPeriod
+         *            the end of the period
+         * @return the periods of the feed
+         */
+        private List<FeedPeriod> newFeedPeriods( BroadcastFeed broadcastFeed, long lStartPeriod, long lEndPeriod )
+        {
+            List<FeedPeriod> listPeriods = new ArrayList<>( );
+            List<String> listRecipients = new ArrayList<>( );
+            for ( String strRecipient : broadcastFeed.getRecipients( ) )
+            {
+                if ( _setMultiFrequencyRecipients.contains( strRecipient ) )
+                {
+                    listPeriods.add( new FeedPeriod( broadcastFeed, lStartPeriod, lEndPeriod, strRecipient, Collections.singletonList( strRecipient ) ) );
+                }
+                else
+                {
+                    listRecipients.add( strRecipient );
+                }
+            }
+
+            if ( !listRecipients.isEmpty( ) || listPeriods.isEmpty( ) )
+            {
+                listPeriods.add( 0, new FeedPeriod( broadcastFeed, lStartPeriod, lEndPeriod, null, listRecipients ) );
+            }
+
+            return listPeriods;
+        }
+
+        /**
+         * Pass a chunk of events of a feed to the collectors of its periods. The recipients subscribed at several frequencies only collect the events
+         * not sent to them yet, by a previous run or by another feed of the task.
+         * 
+         * @param listPeriods
+         *            the periods of the feed
+         * @param listChunk
+         *            the chunk, emptied once collected
+         * @param mapRecipientPeriods
+         *            the periods of the task, by recipient subscribed at several frequencies
+         */
+        private void collectChunk( List<FeedPeriod> listPeriods, List<NotificationEvent> listChunk, Map<String, List<FeedPeriod>> mapRecipientPeriods )
+        {
+            if ( listChunk.isEmpty( ) )
+            {
+                return;
+            }
+
+            for ( FeedPeriod feedPeriod : listPeriods )
+            {
+                if ( feedPeriod._strRecipient == null )
+                {
+                    feedPeriod._collector.acceptAll( listChunk );
+                    continue;
+                }
+
+                for ( NotificationEvent notificationEvent : _sentEventStore.filterNotSent( feedPeriod._strRecipient, listChunk ) )
+                {
+                    long lEventHash = BroadcastSentEventStore.getEventHash( notificationEvent );
+                    if ( !isCollected( mapRecipientPeriods.get( feedPeriod._strRecipient ), lEventHash ) )
+                    {
+                        // every accepted event is recorded, detailed in the alert or only counted
+                        feedPeriod._setEventHashes.add( lEventHash );
+                        feedPeriod._collector.accept( notificationEvent );
+                    }
+                }
+            }
+
+            listChunk.clear( );
+        }
+
+        /**
+         * Check whether an event has already been collected by one of the periods of a recipient
+         * 
+         * @param listPeriods
+         *            the periods of the recipient
+         * @param lEventHash
+         *            the hash of the event
+         * @return true if the event has been collected
+         */
+        private boolean isCollected( List<FeedPeriod> listPeriods, long lEventHash )
+        {
+            for ( FeedPeriod feedPeriod : listPeriods )
+            {
+                if ( feedPeriod._setEventHashes.contains( lEventHash ) )
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Render the alert mails of a feed, to be queued : the recipients receiving the same events share the same mails
+         * 
+         * @param broadcastFeed
+         *            the feed
+         * @param listPeriods
+         *            the periods of the feed, and their events
+         * @param metrics
+         *            the metrics of the demand type, receiving the render time
+         * @return the mails, one per chunk of recipients
+         */
+        private List<BroadcastMail> buildAlertMails( BroadcastFeed broadcastFeed, List<FeedPeriod> listPeriods, BroadcastMetrics.DemandTypeMetrics metrics )
+        {
+            Map<String, List<String>> mapBodyRecipients = new LinkedHashMap<>( );
+            for ( FeedPeriod feedPeriod : listPeriods )
+            {
+                if ( !feedPeriod._collector.isEmpty( ) )
+                {
+                    String strBody = _renderCache.getBody( broadcastFeed.getDemandTypeId( ), _locale, feedPeriod._collector, ( ) -> {
+                        long lStart = System.nanoTime( );
+                        String strRenderedBody = _renderer.render( feedPeriod._collector, _locale );
+                        metrics.recordRender( BroadcastMetrics.elapsedSince( lStart ) );
+                        return strRenderedBody;
+                    } );
+                    mapBodyRecipients.computeIfAbsent( strBody, k -> new ArrayList<>( ) ).addAll( feedPeriod._listRecipients );
+                }
+            }
+
+            List<BroadcastMail> listMails = new ArrayList<>( );
+            for ( Map.Entry<String, List<String>> entry : mapBodyRecipients.entrySet( ) )
+            {
+                listMails.addAll( buildMails( broadcastFeed.getDemandTypeId( ), broadcastFeed.getFrequency( ),
+                        String.format( GRU_ALERTS_SUBJECT, String.valueOf( broadcastFeed.getDemandTypeId( ) ) ), entry.getKey( ), entry.getValue( ) ) );
+            }
+
+            return listMails;
+        }
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastMail;
+import fr.paris.lutece.portal.service.mail.MailItem;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.mail.MailUtil;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+/**
+ * Default sender of the broadcast mails. The mails are sent synchronously through the Lutece mail utilities, with the mail server settings of the
+ * webapp (server, port, credentials, TLS/SSL), so that a failure is reported to the sender stage, which sends the mail again later. The Lutece mail
+ * queue is not used : it accepts any mail and never reports the failures.
+ */
+public class SmtpBroadcastMailSender implements IBroadcastMailSender
+{
+    // Properties
+    private static final String PROPERTY_GRU_ALERTS_FROM_NAME = "notificationstore-broadcast.mail.from.name";
+    private static final String PROPERTY_GRU_ALERTS_FROM_MAIL = "notificationstore-broadcast.mail.from.mail";
+    private static final String PROPERTY_MAIL_SERVER = "mail.server";
+    private static final String PROPERTY_MAIL_USERNAME = "mail.username";
+    private static final String PROPERTY_MAIL_PASSWORD = "mail.password";
+    private static final String GRU_ALERTS_FROM_NAME = AppPropertiesService.getProperty( PROPERTY_GRU_ALERTS_FROM_NAME, "GRU ESB Notification alerts Daemon" );
+    private static final String GRU_ALERTS_FROM_MAIL = AppPropertiesService.getProperty( PROPERTY_GRU_ALERTS_FROM_MAIL, "no-reply@paris.fr" );
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void send( BroadcastMail mail )
+    {
+        MailItem mailItem = new MailItem( );
+        mailItem.setRecipientsTo( mail.getRecipients( ) );
+        mailItem.setSenderName( GRU_ALERTS_FROM_NAME );
+        mailItem.setSenderEmail( GRU_ALERTS_FROM_MAIL );
+        mailItem.setSubject( mail.getSubject( ) );
+        mailItem.setMessage( mail.getBody( ) );
+        mailItem.setFormat( MailItem.FORMAT_HTML );
+
+        Transport transport = null;
+        try
+        {
+            Session session = MailUtil.getMailSession( AppPropertiesService.getProperty( PROPERTY_MAIL_SERVER ),
+                    AppPropertiesService.getProperty( PROPERTY_MAIL_USERNAME ), AppPropertiesService.getProperty( PROPERTY_MAIL_PASSWORD ) );
+            transport = MailUtil.getTransport( session );
+            transport.connect( );
+
+            // blocks until the SMTP server has accepted the mail, and throws otherwise
+            MailUtil.sendMessageHtml( mailItem, transport, session );
+        }
+        catch( MessagingException e )
+        {
+            throw new AppException( "Unable to send the broadcast mail " + mail.getId( ) + " : " + e.getMessage( ), e );
+        }
+        finally
+        {
+            close( transport );
+        }
+    }
+
+    /**
+     * Close the connection to the SMTP server
+     * 
+     * @param transport
+     *            the transport, or null if it has not been created
+     */
+    private static void close( Transport transport )
+    {
+        if ( transport != null && transport.isConnected( ) )
+        {
+            try
+            {
+                transport.close( );
+            }
+            catch( MessagingException e )
+            {
+                AppLogService.error( "Unable to close the connection to the mail server", e );
+            }
+        }
+    }
+}
@@ -36,12 +36,13 @@ package fr.paris.lutece.plugins.notificationstore.modules.broadcast.web;
 
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.util.mvc.admin.MVCAdminJspBean;
-import fr.paris.lutece.portal.web.util.LocalizedPaginator;
+import fr.paris.lutece.portal.web.util.LocalizedDelegatePaginator;
 import fr.paris.lutece.util.html.AbstractPaginator;
 import fr.paris.lutece.util.url.UrlItem;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 import javax.servlet.http.HttpServletRequest;
 
 /**
@@ -67,29 +68,40 @@ public abstract class AbstractManageSubscriptionsJspBean extends MVCAdminJspBean
     private int _nItemsPerPage;
 
     /**
-     * Return a model that contains the list and paginator infos
+     * Return a model that contains a page of items loaded on demand and the paginator infos : only the items of the current page are loaded
      * 
      * @param request
      *            The HTTP request
      * @param strBookmark
      *            The bookmark
-     * @param list
-     *            The list of item
+     * @param nItemsCount
+     *            The total number of items
+     * @param pageLoader
+     *            The loader of the items of a page, from their offset and the number of items per page
      * @param strManageJsp
      *            The JSP
      * @return The model
      */
-    protected <T> Map<String, Object> getPaginatedListModel( HttpServletRequest request, String strBookmark, List<T> list, String strManageJsp )
+    protected <T> Map<String, Object> getPaginatedListModel( HttpServletRequest request, String strBookmark, int nItemsCount,
+            BiFunction<Integer, Integer, List<T>> pageLoader, String strManageJsp )
     {
         int nDefaultItemsPerPage = AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_LIST_ITEM_PER_PAGE, 50 );
         _strCurrentPageIndex = AbstractPaginator.getPageIndex( request, AbstractPaginator.PARAMETER_PAGE_INDEX, _strCurrentPageIndex );
         _nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, _nItemsPerPage, nDefaultItemsPerPage );
 
+        // the page index is kept between the views : it may be out of range once the items or the search have changed
+        int nPageCount = Math.max( 1, ( nItemsCount + _nItemsPerPage - 1 ) / _nItemsPerPage );
+        int nPageIndex = Math.min( Math.max( 1, parsePageIndex( _strCurrentPageIndex ) ), nPageCount );
+        _strCurrentPageIndex = String.valueOf( nPageIndex );
+
+        List<T> listPageItems = pageLoader.apply( ( nPageIndex - 1 ) * _nItemsPerPage, _nItemsPerPage );
+
         UrlItem url = new UrlItem( strManageJsp );
         String strUrl = url.getUrl( );
 
         // PAGINATOR
-        LocalizedPaginator<T> paginator = new LocalizedPaginator<>( list, _nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX, _strCurrentPageIndex, getLocale( ) );
+        LocalizedDelegatePaginator<T> paginator = new LocalizedDelegatePaginator<>( listPageItems, _nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX,
+                _strCurrentPageIndex, nItemsCount, getLocale( ) );
 
         Map<String, Object> model = getModel( );
 
@@ -99,4 +111,23 @@ public abstract class AbstractManageSubscriptionsJspBean extends MVCAdminJspBean
 
         return model;
     }
+
+    /**
+     * Parse a page index
+     * 
+     * @param strPageIndex
+     *            the page index
+     * @return the page index, or 1 if it is not a number
+     */
+    private static int parsePageIndex( String strPageIndex )
+    {
+        try
+        {
+            return Integer.parseInt( strPageIndex );
+        }
+        catch( NumberFormatException e )
+        {
+            return 1;
+        }
+    }
 }
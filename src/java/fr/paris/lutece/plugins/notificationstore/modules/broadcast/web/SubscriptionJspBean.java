@@ -40,12 +40,16 @@ import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
+import fr.paris.lutece.portal.web.constants.Parameters;
 import fr.paris.lutece.util.url.UrlItem;
 
-import java.util.List;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.SubscriptionFilter;
 import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.SubscriptionHome;
 
 /**
@@ -61,6 +65,9 @@ public class SubscriptionJspBean extends AbstractManageSubscriptionsJspBean
 
     // Parameters
     private static final String PARAMETER_ID_SUBSCRIPTION = "id";
+    private static final String PARAMETER_SEARCH = "search";
+    private static final String PARAMETER_SEARCH_MAIL = "search_mail";
+    private static final String PARAMETER_SEARCH_DEMAND_TYPE_ID = "search_demand_type_id";
 
     // Properties for page titles
     private static final String PROPERTY_PAGE_TITLE_MANAGE_SUBSCRIPTIONS = "module.notificationstore.broadcast.manage_subscriptions.pageTitle";
@@ -70,6 +77,8 @@ public class SubscriptionJspBean extends AbstractManageSubscriptionsJspBean
     // Markers
     private static final String MARK_SUBSCRIPTION_LIST = "subscription_list";
     private static final String MARK_SUBSCRIPTION = "subscription";
+    private static final String MARK_SEARCH_MAIL = "search_mail";
+    private static final String MARK_SEARCH_DEMAND_TYPE_ID = "search_demand_type_id";
 
     private static final String JSP_MANAGE_SUBSCRIPTIONS = "jsp/admin/plugins/notificationstore/modules/broadcast/ManageSubscriptions.jsp";
 
@@ -97,6 +106,10 @@ public class SubscriptionJspBean extends AbstractManageSubscriptionsJspBean
 
     // Session variable to store working values
     private Subscription _subscription;
+    private String _strSearchMail;
+    private String _strSearchDemandTypeId;
+    private String _strSortedAttributeName;
+    private boolean _bSortAsc = true;
 
     /**
      * Build the Manage View
@@ -109,12 +122,60 @@ public class SubscriptionJspBean extends AbstractManageSubscriptionsJspBean
     public String getManageSubscriptions( HttpServletRequest request )
     {
         _subscription = null;
-        List<Subscription> listSubscriptions = SubscriptionHome.getSubscriptionsList( );
-        Map<String, Object> model = getPaginatedListModel( request, MARK_SUBSCRIPTION_LIST, listSubscriptions, JSP_MANAGE_SUBSCRIPTIONS );
+        updateSearch( request );
+
+        // the subscriptions are counted, sorted and sliced by the database : only the current page is loaded
+        SubscriptionFilter filter = getSearchFilter( );
+        int nCount = SubscriptionHome.getSubscriptionsCount( filter );
+        Map<String, Object> model = getPaginatedListModel( request, MARK_SUBSCRIPTION_LIST, nCount,
+                ( nOffset, nLimit ) -> SubscriptionHome.getSubscriptionsList( filter, _strSortedAttributeName, _bSortAsc, nOffset, nLimit ),
+                JSP_MANAGE_SUBSCRIPTIONS );
+        model.put( MARK_SEARCH_MAIL, _strSearchMail );
+        model.put( MARK_SEARCH_DEMAND_TYPE_ID, _strSearchDemandTypeId );
 
         return getPage( PROPERTY_PAGE_TITLE_MANAGE_SUBSCRIPTIONS, TEMPLATE_MANAGE_SUBSCRIPTIONS, model );
     }
 
+    /**
+     * Keep the search criteria and the sort of the request, if any, for the next views
+     * 
+     * @param request
+     *            The HTTP request
+     */
+    private void updateSearch( HttpServletRequest request )
+    {
+        if ( request.getParameter( PARAMETER_SEARCH ) != null )
+        {
+            _strSearchMail = StringUtils.trimToNull( request.getParameter( PARAMETER_SEARCH_MAIL ) );
+            _strSearchDemandTypeId = StringUtils.trimToNull( request.getParameter( PARAMETER_SEARCH_DEMAND_TYPE_ID ) );
+        }
+
+        String strSortedAttributeName = request.getParameter( Parameters.SORTED_ATTRIBUTE_NAME );
+        if ( strSortedAttributeName != null )
+        {
+            _strSortedAttributeName = strSortedAttributeName;
+            _bSortAsc = Boolean.parseBoolean( request.getParameter( Parameters.SORTED_ASC ) );
+        }
+    }
+
+    /**
+     * Build the filter of the current search
+     * 
+     * @return the filter
+     */
+    private SubscriptionFilter getSearchFilter( )
+    {
+        SubscriptionFilter filter = new SubscriptionFilter( );
+        filter.setMailSearch( _strSearchMail );
+        if ( _strSearchDemandTypeId != null )
+        {
+            // a demand type id which is not a number matches no subscription
+            filter.setDemandTypeId( NumberUtils.toInt( _strSearchDemandTypeId, -1 ) );
+        }
+
+        return filter;
+    }
+
     /**
      * Returns the form to create a subscription
      *
@@ -0,0 +1,97 @@
+--
+-- Structure for table notificationstore_broadcast_watermark
+--
+
+DROP TABLE IF EXISTS notificationstore_broadcast_watermark;
+CREATE TABLE notificationstore_broadcast_watermark (
+demand_type_id int default '0' NOT NULL,
+frequency int default '0' NOT NULL,
+last_broadcast_date bigint default '0' NOT NULL,
+PRIMARY KEY (demand_type_id, frequency)
+);
+
+--
+-- Indexes of the subscription finders
+--
+CREATE INDEX idx_notificationstore_broadcast_subscription_type ON notificationstore_broadcast_subscription (demand_type_id, frequency);
+CREATE INDEX idx_notificationstore_broadcast_subscription_mail ON notificationstore_broadcast_subscription (mail);
+CREATE INDEX idx_notificationstore_broadcast_subscription_freq ON notificationstore_broadcast_subscription (frequency);
+
+--
+-- Structure for table notificationstore_broadcast_mail_body
+--
+
+DROP TABLE IF EXISTS notificationstore_broadcast_mail_body;
+CREATE TABLE notificationstore_broadcast_mail_body (
+id_body int AUTO_INCREMENT,
+subject varchar(255) default '' NOT NULL,
+body long varchar NOT NULL,
+PRIMARY KEY (id_body)
+);
+
+--
+-- Structure for table notificationstore_broadcast_mail
+--
+
+DROP TABLE IF EXISTS notificationstore_broadcast_mail;
+CREATE TABLE notificationstore_broadcast_mail (
+id_mail int AUTO_INCREMENT,
+demand_type_id int default '0' NOT NULL,
+frequency int default '0' NOT NULL,
+recipients long varchar NOT NULL,
+id_body int default '0' NOT NULL,
+status int default '0' NOT NULL,
+nb_attempts int default '0' NOT NULL,
+next_attempt_date bigint default '0' NOT NULL,
+creation_date bigint default '0' NOT NULL,
+last_error varchar(255) default NULL,
+PRIMARY KEY (id_mail)
+);
+
+CREATE INDEX idx_notificationstore_broadcast_mail_status ON notificationstore_broadcast_mail (status, next_attempt_date);
+CREATE INDEX idx_notificationstore_broadcast_mail_body ON notificationstore_broadcast_mail (id_body);
+
+--
+-- Structure for table notificationstore_broadcast_sent_event
+--
+
+DROP TABLE IF EXISTS notificationstore_broadcast_sent_event;
+CREATE TABLE notificationstore_broadcast_sent_event (
+recipient_hash bigint default '0' NOT NULL,
+event_hash bigint default '0' NOT NULL,
+sent_date bigint default '0' NOT NULL,
+PRIMARY KEY (recipient_hash, event_hash)
+);
+
+CREATE INDEX idx_notificationstore_broadcast_sent_event_date ON notificationstore_broadcast_sent_event (sent_date);
+
+--
+-- Structure for table notificationstore_broadcast_lease
+--
+
+DROP TABLE IF EXISTS notificationstore_broadcast_lease;
+CREATE TABLE notificationstore_broadcast_lease (
+demand_type_id int default '0' NOT NULL,
+node_id varchar(255) default '' NOT NULL,
+expiry_date bigint default '0' NOT NULL,
+PRIMARY KEY (demand_type_id)
+);
+
+--
+-- Version of the subscriptions (conditional requests of the REST API)
+--
+ALTER TABLE notificationstore_broadcast_subscription ADD COLUMN date_update bigint default '0' NOT NULL;
+
+--
+-- Structure for table notificationstore_broadcast_table_version
+--
+
+DROP TABLE IF EXISTS notificationstore_broadcast_table_version;
+CREATE TABLE notificationstore_broadcast_table_version (
+table_name varchar(64) default '' NOT NULL,
+version bigint default '0' NOT NULL,
+date_update bigint default '0' NOT NULL,
+PRIMARY KEY (table_name)
+);
+
+INSERT INTO notificationstore_broadcast_table_version ( table_name, version, date_update ) VALUES ( 'notificationstore_broadcast_subscription', 0, 0 );
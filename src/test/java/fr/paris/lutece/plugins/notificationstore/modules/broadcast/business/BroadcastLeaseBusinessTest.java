@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * This is the business class test for the object BroadcastLease
+ */
+public class BroadcastLeaseBusinessTest extends LuteceTestCase
+{
+    private static final int DEMANDTYPEID1 = 1;
+    private static final String NODEID1 = "node1";
+    private static final String NODEID2 = "node2";
+    private static final long NOW1 = 1000L;
+    private static final long NOW2 = 3000L;
+    private static final long EXPIRYDATE1 = 2000L;
+    private static final long EXPIRYDATE2 = 4000L;
+
+    /**
+     * test BroadcastLease
+     */
+    public void testBusiness( )
+    {
+        // Claim test
+        assertTrue( BroadcastLeaseHome.claim( DEMANDTYPEID1, NODEID1, NOW1, EXPIRYDATE1 ) );
+        BroadcastLease leaseStored = BroadcastLeaseHome.findByPrimaryKey( DEMANDTYPEID1 );
+        assertEquals( NODEID1, leaseStored.getNodeId( ) );
+        assertEquals( EXPIRYDATE1, leaseStored.getExpiryDate( ) );
+
+        // the lease is held by the first node until its expiry
+        assertFalse( BroadcastLeaseHome.claim( DEMANDTYPEID1, NODEID2, NOW1, EXPIRYDATE2 ) );
+        assertTrue( BroadcastLeaseHome.claim( DEMANDTYPEID1, NODEID1, NOW1, EXPIRYDATE1 ) );
+        assertTrue( BroadcastLeaseHome.claim( DEMANDTYPEID1, NODEID2, NOW2, EXPIRYDATE2 ) );
+
+        // Release test
+        BroadcastLeaseHome.release( DEMANDTYPEID1, NODEID1 );
+        assertEquals( NODEID2, BroadcastLeaseHome.findByPrimaryKey( DEMANDTYPEID1 ).getNodeId( ) );
+        BroadcastLeaseHome.release( DEMANDTYPEID1, NODEID2 );
+        assertTrue( BroadcastLeaseHome.claim( DEMANDTYPEID1, NODEID1, NOW1, EXPIRYDATE1 ) );
+
+        // List test
+        BroadcastLeaseHome.getLeasesList( );
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is the business class test for the object BroadcastMail
+ */
+public class BroadcastMailBusinessTest extends LuteceTestCase
+{
+    private static final int DEMANDTYPEID1 = 1;
+    private static final int FREQUENCY1 = 1;
+    private static final String RECIPIENTS1 = "Mail1,Mail2";
+    private static final String RECIPIENTS2 = "Mail3,Mail4";
+    private static final String SUBJECT1 = "Subject1";
+    private static final String BODY1 = "Body1";
+    private static final long CREATIONDATE1 = 1000L;
+    private static final long CLAIMDATE = 1500L;
+    private static final long NEXTATTEMPTDATE2 = 2000L;
+    private static final String LASTERROR2 = "LastError2";
+
+    /**
+     * test BroadcastMail
+     */
+    public void testBusiness( )
+    {
+        // Initialize an object
+        BroadcastMail mail = new BroadcastMail( );
+        mail.setDemandTypeId( DEMANDTYPEID1 );
+        mail.setFrequency( FREQUENCY1 );
+        mail.setRecipients( RECIPIENTS1 );
+        mail.setSubject( SUBJECT1 );
+        mail.setBody( BODY1 );
+        mail.setStatus( BroadcastMail.STATUS_PENDING );
+        mail.setCreationDate( CREATIONDATE1 );
+        mail.setNextAttemptDate( CREATIONDATE1 );
+
+        // Create test
+        BroadcastMailHome.create( mail );
+        BroadcastMail mailStored = BroadcastMailHome.findByPrimaryKey( mail.getId( ) );
+        assertEquals( mailStored.getRecipients( ), mail.getRecipients( ) );
+        assertEquals( mailStored.getSubject( ), mail.getSubject( ) );
+        assertEquals( mailStored.getBody( ), mail.getBody( ) );
+        assertEquals( mailStored.getStatus( ), mail.getStatus( ) );
+
+        // Due list test
+        assertTrue( BroadcastMailHome.getDueMailsList( CREATIONDATE1, 1000 ).stream( ).anyMatch( item -> item.getId( ) == mail.getId( ) ) );
+
+        // Claim test : the mail is claimed once only
+        BroadcastMail mailOtherNode = BroadcastMailHome.findByPrimaryKey( mail.getId( ) );
+        assertTrue( BroadcastMailHome.claim( mail, CLAIMDATE ) );
+        assertEquals( BroadcastMail.STATUS_SENDING, mail.getStatus( ) );
+        assertFalse( BroadcastMailHome.claim( mailOtherNode, CLAIMDATE ) );
+        assertEquals( BroadcastMail.STATUS_PENDING, mailOtherNode.getStatus( ) );
+        mailStored = BroadcastMailHome.findByPrimaryKey( mail.getId( ) );
+        assertEquals( BroadcastMail.STATUS_SENDING, mailStored.getStatus( ) );
+        assertEquals( CLAIMDATE, mailStored.getNextAttemptDate( ) );
+
+        // Update test
+        mail.setStatus( BroadcastMail.STATUS_PENDING );
+        mail.setNbAttempts( 1 );
+        mail.setNextAttemptDate( NEXTATTEMPTDATE2 );
+        mail.setLastError( LASTERROR2 );
+        BroadcastMailHome.update( mail );
+        mailStored = BroadcastMailHome.findByPrimaryKey( mail.getId( ) );
+        assertEquals( mailStored.getNbAttempts( ), mail.getNbAttempts( ) );
+        assertEquals( mailStored.getNextAttemptDate( ), mail.getNextAttemptDate( ) );
+        assertEquals( mailStored.getLastError( ), mail.getLastError( ) );
+        assertFalse( BroadcastMailHome.getDueMailsList( CREATIONDATE1, 1000 ).stream( ).anyMatch( item -> item.getId( ) == mail.getId( ) ) );
+
+        // Count test
+        assertTrue( BroadcastMailHome.countMails( BroadcastMail.STATUS_PENDING ) > 0 );
+
+        // Delete test
+        BroadcastMailHome.remove( mail.getId( ) );
+        mailStored = BroadcastMailHome.findByPrimaryKey( mail.getId( ) );
+        assertNull( mailStored );
+    }
+
+    /**
+     * test that the chunks of an alert share their stored body, removed with the last chunk
+     */
+    public void testSharedBody( )
+    {
+        List<BroadcastMail> listMails = new ArrayList<>( );
+        for ( String strRecipients : new String [ ] {
+                RECIPIENTS1, RECIPIENTS2
+        } )
+        {
+            BroadcastMail mail = new BroadcastMail( );
+            mail.setDemandTypeId( DEMANDTYPEID1 );
+            mail.setFrequency( FREQUENCY1 );
+            mail.setRecipients( strRecipients );
+            mail.setSubject( SUBJECT1 );
+            mail.setBody( BODY1 );
+            mail.setStatus( BroadcastMail.STATUS_PENDING );
+            mail.setCreationDate( CREATIONDATE1 );
+            mail.setNextAttemptDate( CREATIONDATE1 );
+            listMails.add( mail );
+        }
+
+        BroadcastMailHome.createAll( listMails );
+        assertTrue( listMails.get( 0 ).getIdBody( ) > 0 );
+        assertEquals( listMails.get( 0 ).getIdBody( ), listMails.get( 1 ).getIdBody( ) );
+
+        // the body is kept while a chunk references it
+        BroadcastMailHome.remove( listMails.get( 0 ).getId( ) );
+        BroadcastMail mailStored = BroadcastMailHome.findByPrimaryKey( listMails.get( 1 ).getId( ) );
+        assertEquals( RECIPIENTS2, mailStored.getRecipients( ) );
+        assertEquals( SUBJECT1, mailStored.getSubject( ) );
+        assertEquals( BODY1, mailStored.getBody( ) );
+
+        BroadcastMailHome.remove( listMails.get( 1 ).getId( ) );
+        assertNull( BroadcastMailHome.findByPrimaryKey( listMails.get( 1 ).getId( ) ) );
+    }
+
+    /**
+     * test that the sent mails are no longer due, and are removed with their body
+     */
+    public void testRemoveSentMails( )
+    {
+        BroadcastMail mail = new BroadcastMail( );
+        mail.setDemandTypeId( DEMANDTYPEID1 );
+        mail.setFrequency( FREQUENCY1 );
+        mail.setRecipients( RECIPIENTS1 );
+        mail.setSubject( SUBJECT1 );
+        mail.setBody( BODY1 );
+        mail.setStatus( BroadcastMail.STATUS_PENDING );
+        mail.setCreationDate( CREATIONDATE1 );
+        mail.setNextAttemptDate( CREATIONDATE1 );
+        BroadcastMailHome.create( mail );
+
+        mail.setStatus( BroadcastMail.STATUS_SENT );
+        BroadcastMailHome.update( mail );
+        assertFalse( BroadcastMailHome.getDueMailsList( CREATIONDATE1, 1000 ).stream( ).anyMatch( item -> item.getId( ) == mail.getId( ) ) );
+
+        BroadcastMailHome.removeSentMails( );
+        assertNull( BroadcastMailHome.findByPrimaryKey( mail.getId( ) ) );
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * This is the business class test for the sent events store
+ */
+public class BroadcastSentEventBusinessTest extends LuteceTestCase
+{
+    private static final long RECIPIENTHASH1 = -3750763034362895579L;
+    private static final long EVENTHASH1 = 123456789L;
+    private static final long EVENTHASH2 = -987654321L;
+    private static final long EVENTHASH3 = 42L;
+    private static final long SENTDATE1 = 1000L;
+
+    /**
+     * test BroadcastSentEvent
+     */
+    public void testBusiness( )
+    {
+        // Create test
+        BroadcastSentEventHome.createAll( RECIPIENTHASH1, Arrays.asList( EVENTHASH1, EVENTHASH2 ), SENTDATE1 );
+        Set<Long> setSent = BroadcastSentEventHome.findSentEventHashes( RECIPIENTHASH1, Arrays.asList( EVENTHASH1, EVENTHASH2, EVENTHASH3 ) );
+        assertTrue( setSent.contains( EVENTHASH1 ) );
+        assertTrue( setSent.contains( EVENTHASH2 ) );
+        assertFalse( setSent.contains( EVENTHASH3 ) );
+
+        // List test
+        BroadcastSentEventHome.processSentEvents( ( lRecipientHash, lEventHash ) -> {
+        } );
+
+        // Delete test
+        BroadcastSentEventHome.removeBefore( SENTDATE1 + 1 );
+        setSent = BroadcastSentEventHome.findSentEventHashes( RECIPIENTHASH1, Arrays.asList( EVENTHASH1, EVENTHASH2 ) );
+        assertTrue( setSent.isEmpty( ) );
+    }
+}
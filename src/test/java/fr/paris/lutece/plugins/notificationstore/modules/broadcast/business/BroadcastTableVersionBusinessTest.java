@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * This is the business class test for the object BroadcastTableVersion
+ */
+public class BroadcastTableVersionBusinessTest extends LuteceTestCase
+{
+    private static final String TABLENAME1 = "test_table_version";
+    private static final long DATEUPDATE1 = 1000L;
+    private static final long DATEUPDATE2 = 2000L;
+
+    /**
+     * test BroadcastTableVersion
+     */
+    public void testBusiness( )
+    {
+        // Find test : a table never written has the version 0
+        long lVersion = BroadcastTableVersionHome.findByPrimaryKey( TABLENAME1 ).getVersion( );
+
+        // Increment test
+        BroadcastTableVersionHome.increment( TABLENAME1, DATEUPDATE1 );
+        BroadcastTableVersion tableVersionStored = BroadcastTableVersionHome.findByPrimaryKey( TABLENAME1 );
+        assertEquals( lVersion + 1, tableVersionStored.getVersion( ) );
+        assertEquals( DATEUPDATE1, tableVersionStored.getDateUpdate( ) );
+
+        BroadcastTableVersionHome.increment( TABLENAME1, DATEUPDATE2 );
+        tableVersionStored = BroadcastTableVersionHome.findByPrimaryKey( TABLENAME1 );
+        assertEquals( lVersion + 2, tableVersionStored.getVersion( ) );
+        assertEquals( DATEUPDATE2, tableVersionStored.getDateUpdate( ) );
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * This is the business class test for the object BroadcastWatermark
+ */
+public class BroadcastWatermarkBusinessTest extends LuteceTestCase
+{
+    private static final int DEMANDTYPEID1 = 1;
+    private static final int FREQUENCY1 = 1;
+    private static final long LASTBROADCASTDATE1 = 1000L;
+    private static final long LASTBROADCASTDATE2 = 2000L;
+
+    /**
+     * test BroadcastWatermark
+     */
+    public void testBusiness( )
+    {
+        // Initialize an object
+        BroadcastWatermark watermark = new BroadcastWatermark( );
+        watermark.setDemandTypeId( DEMANDTYPEID1 );
+        watermark.setFrequency( FREQUENCY1 );
+        watermark.setLastBroadcastDate( LASTBROADCASTDATE1 );
+
+        // Create test
+        BroadcastWatermarkHome.save( watermark );
+        BroadcastWatermark watermarkStored = BroadcastWatermarkHome.findByPrimaryKey( DEMANDTYPEID1, FREQUENCY1 );
+        assertEquals( watermarkStored.getLastBroadcastDate( ), watermark.getLastBroadcastDate( ) );
+
+        // Update test
+        watermark.setLastBroadcastDate( LASTBROADCASTDATE2 );
+        BroadcastWatermarkHome.save( watermark );
+        watermarkStored = BroadcastWatermarkHome.findByPrimaryKey( DEMANDTYPEID1, FREQUENCY1 );
+        assertEquals( watermarkStored.getLastBroadcastDate( ), watermark.getLastBroadcastDate( ) );
+
+        // List test
+        BroadcastWatermarkHome.getWatermarksList( );
+
+        // Delete test
+        BroadcastWatermarkHome.remove( DEMANDTYPEID1, FREQUENCY1 );
+        watermarkStored = BroadcastWatermarkHome.findByPrimaryKey( DEMANDTYPEID1, FREQUENCY1 );
+        assertNull( watermarkStored );
+    }
+}
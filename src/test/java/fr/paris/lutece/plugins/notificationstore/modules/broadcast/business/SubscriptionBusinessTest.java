@@ -37,6 +37,8 @@ import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subs
 import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
 import fr.paris.lutece.test.LuteceTestCase;
 
+import java.util.Arrays;
+
 /**
  * This is the business class test for the object Subscription
  */
@@ -61,11 +63,14 @@ public class SubscriptionBusinessTest extends LuteceTestCase
         subscription.setFrequency( FREQUENCY1 );
 
         // Create test
+        long lTableVersion = SubscriptionHome.getTableVersion( ).getVersion( );
         SubscriptionHome.create( subscription );
+        assertTrue( SubscriptionHome.getTableVersion( ).getVersion( ) > lTableVersion );
         Subscription subscriptionStored = SubscriptionHome.findByPrimaryKey( subscription.getId( ) );
         assertEquals( subscriptionStored.getDemandTypeId( ), subscription.getDemandTypeId( ) );
         assertEquals( subscriptionStored.getMail( ), subscription.getMail( ) );
         assertEquals( subscriptionStored.getFrequency( ), subscription.getFrequency( ) );
+        assertEquals( subscriptionStored.getDateUpdate( ), subscription.getDateUpdate( ) );
 
         // Update test
         subscription.setDemandTypeId( DEMANDTYPEID2 );
@@ -80,6 +85,25 @@ public class SubscriptionBusinessTest extends LuteceTestCase
         // List test
         SubscriptionHome.getSubscriptionsList( );
 
+        // Finders test
+        assertTrue( SubscriptionHome.getSubscriptionsListByDemandTypeId( DEMANDTYPEID2 ).stream( ).anyMatch( item -> item.getId( ) == subscription.getId( ) ) );
+        assertTrue( SubscriptionHome.getSubscriptionsListByMail( MAIL2 ).stream( ).anyMatch( item -> item.getId( ) == subscription.getId( ) ) );
+        assertTrue( SubscriptionHome.getSubscriptionsListByFrequency( FREQUENCY2 ).stream( ).anyMatch( item -> item.getId( ) == subscription.getId( ) ) );
+        assertTrue( SubscriptionHome.getSubscriptionsListByDemandTypeIds( Arrays.asList( DEMANDTYPEID1, DEMANDTYPEID2 ) ).stream( )
+                .anyMatch( item -> item.getId( ) == subscription.getId( ) ) );
+        assertFalse( SubscriptionHome.getSubscriptionsListByDemandTypeId( DEMANDTYPEID1 ).stream( ).anyMatch( item -> item.getId( ) == subscription.getId( ) ) );
+
+        // Page test
+        SubscriptionFilter filter = new SubscriptionFilter( );
+        filter.setDemandTypeId( DEMANDTYPEID2 );
+        filter.setMailSearch( MAIL2.toUpperCase( ) );
+        assertTrue( SubscriptionHome.getSubscriptionsCount( filter ) >= 1 );
+        assertTrue( SubscriptionHome.getSubscriptionsList( filter, "mail", true, 0, 10 ).stream( ).anyMatch( item -> item.getId( ) == subscription.getId( ) ) );
+        assertTrue( SubscriptionHome.getSubscriptionsList( filter, null, false, 0, 1 ).size( ) <= 1 );
+        filter.setMailSearch( "%" );
+        assertFalse( SubscriptionHome.getSubscriptionsList( filter, "mail", true, 0, 10 ).stream( ).anyMatch( item -> item.getId( ) == subscription.getId( ) ) );
+        assertEquals( 0, SubscriptionHome.getSubscriptionsCount( filter ) );
+
         // Delete test
         SubscriptionHome.remove( subscription.getId( ) );
         subscriptionStored = SubscriptionHome.findByPrimaryKey( subscription.getId( ) );
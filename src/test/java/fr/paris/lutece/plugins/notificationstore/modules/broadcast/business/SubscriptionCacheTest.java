@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is the test class of the in memory copy of the subscription table. The table is read through a DAO proxy counting the loads, so no database
+ * is needed.
+ */
+public class SubscriptionCacheTest extends LuteceTestCase
+{
+    private static final int TIME_TO_LIVE = 300;
+    private static final int DEMANDTYPEID1 = 1;
+    private static final int DEMANDTYPEID2 = 2;
+    private static final int FREQUENCY1 = 24;
+    private static final String MAIL1 = "mail1@paris.fr";
+    private static final String MAIL2 = "mail2@paris.fr";
+
+    private final List<Subscription> _listTable = new ArrayList<>( );
+    private int _nbLoads;
+    private Runnable _onLoad;
+    private SubscriptionCache _cache;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+        _listTable.clear( );
+        _listTable.add( newSubscription( 1, DEMANDTYPEID1, MAIL1 ) );
+        _nbLoads = 0;
+        _onLoad = null;
+        _cache = new SubscriptionCache( newDAO( ), null, TIME_TO_LIVE );
+    }
+
+    /**
+     * test that the table is loaded once, then served by the cache
+     */
+    public void testLoadOnce( )
+    {
+        SubscriptionCache.Snapshot snapshot = _cache.getSnapshot( );
+
+        assertSame( snapshot, _cache.getSnapshot( ) );
+        assertEquals( 1, _nbLoads );
+        assertEquals( 1, _cache.getMissCount( ) );
+        assertEquals( 1, _cache.getHitCount( ) );
+        assertEquals( MAIL1, snapshot.getSubscription( 1 ).getMail( ) );
+    }
+
+    /**
+     * test that each write invalidates the table copy
+     */
+    public void testInvalidation( )
+    {
+        _cache.getSnapshot( );
+
+        Subscription subscription = newSubscription( 2, DEMANDTYPEID1, MAIL2 );
+        _listTable.add( subscription );
+        _cache.onCreate( subscription );
+        assertNotNull( _cache.getSnapshot( ).getSubscription( 2 ) );
+        assertEquals( 2, _nbLoads );
+
+        _cache.onUpdate( subscription );
+        _cache.getSnapshot( );
+        assertEquals( 3, _nbLoads );
+
+        _listTable.remove( subscription );
+        _cache.onRemove( 2 );
+        assertNull( _cache.getSnapshot( ).getSubscription( 2 ) );
+        assertEquals( 4, _nbLoads );
+
+        _cache.onExternalWrite( );
+        _cache.getSnapshot( );
+        assertEquals( 5, _nbLoads );
+        // a miss is counted by each load of the table only
+        assertEquals( 5, _cache.getMissCount( ) );
+    }
+
+    /**
+     * test that a write occurring while the table is loaded prevents the loaded copy from being kept
+     */
+    public void testWriteDuringLoad( )
+    {
+        _onLoad = ( ) -> {
+            _onLoad = null;
+            _cache.onExternalWrite( );
+        };
+
+        _cache.getSnapshot( );
+        _cache.getSnapshot( );
+        assertEquals( 2, _nbLoads );
+
+        _cache.getSnapshot( );
+        assertEquals( 2, _nbLoads );
+    }
+
+    /**
+     * test that the feed index is updated by the writes without reloading the table
+     */
+    public void testFeedIndexIncrementalUpdate( )
+    {
+        BroadcastFeedIndex feedIndex = _cache.getFeedIndex( );
+        assertEquals( 1, feedIndex.getFeeds( ).size( ) );
+
+        Subscription subscription = newSubscription( 2, DEMANDTYPEID2, MAIL2 );
+        _cache.onCreate( subscription );
+        assertSame( feedIndex, _cache.getFeedIndex( ) );
+        assertNotNull( feedIndex.getFeed( BroadcastFeed.getKey( DEMANDTYPEID2, FREQUENCY1 ) ) );
+
+        _cache.onRemove( 2 );
+        assertNull( feedIndex.getFeed( BroadcastFeed.getKey( DEMANDTYPEID2, FREQUENCY1 ) ) );
+        assertEquals( 1, _nbLoads );
+    }
+
+    /**
+     * test that the feed index is updated by the bulk writes, the subscriptions being moved and removed by feed
+     */
+    public void testFeedIndexBulkUpdate( )
+    {
+        BroadcastFeedIndex feedIndex = _cache.getFeedIndex( );
+
+        List<Subscription> listSubscriptions = new ArrayList<>( );
+        listSubscriptions.add( newSubscription( 2, DEMANDTYPEID1, MAIL2 ) );
+        listSubscriptions.add( newSubscription( 3, DEMANDTYPEID2, MAIL1 ) );
+        listSubscriptions.add( newSubscription( 4, DEMANDTYPEID2, MAIL2 ) );
+        _cache.onWriteAll( listSubscriptions );
+
+        String [ ] arrayRecipients = feedIndex.getFeed( BroadcastFeed.getKey( DEMANDTYPEID1, FREQUENCY1 ) ).getRecipients( );
+        assertEquals( 2, arrayRecipients.length );
+        assertEquals( MAIL2, arrayRecipients [1] );
+        assertEquals( 2, feedIndex.getFeed( BroadcastFeed.getKey( DEMANDTYPEID2, FREQUENCY1 ) ).getRecipients( ).length );
+
+        // the updated subscriptions leave their former feed
+        List<Subscription> listUpdated = new ArrayList<>( );
+        listUpdated.add( newSubscription( 1, DEMANDTYPEID2, MAIL1 ) );
+        listUpdated.add( newSubscription( 2, DEMANDTYPEID2, MAIL2 ) );
+        _cache.onWriteAll( listUpdated );
+        assertNull( feedIndex.getFeed( BroadcastFeed.getKey( DEMANDTYPEID1, FREQUENCY1 ) ) );
+        assertEquals( 4, feedIndex.getFeed( BroadcastFeed.getKey( DEMANDTYPEID2, FREQUENCY1 ) ).getRecipients( ).length );
+
+        List<Integer> listIds = new ArrayList<>( );
+        listIds.add( 1 );
+        listIds.add( 3 );
+        listIds.add( 5 );
+        _cache.onRemoveAll( listIds );
+        arrayRecipients = feedIndex.getFeed( BroadcastFeed.getKey( DEMANDTYPEID2, FREQUENCY1 ) ).getRecipients( );
+        assertEquals( 2, arrayRecipients.length );
+        assertEquals( MAIL2, arrayRecipients [0] );
+        assertEquals( MAIL2, arrayRecipients [1] );
+        assertEquals( 1, _nbLoads );
+    }
+
+    /**
+     * test that a write of another node rebuilds the feed index from the table
+     */
+    public void testFeedIndexExternalWrite( )
+    {
+        BroadcastFeedIndex feedIndex = _cache.getFeedIndex( );
+
+        _listTable.add( newSubscription( 2, DEMANDTYPEID2, MAIL2 ) );
+        _cache.onExternalWrite( );
+
+        BroadcastFeedIndex feedIndexReloaded = _cache.getFeedIndex( );
+        assertNotSame( feedIndex, feedIndexReloaded );
+        assertNotNull( feedIndexReloaded.getFeed( BroadcastFeed.getKey( DEMANDTYPEID2, FREQUENCY1 ) ) );
+        assertEquals( 2, _nbLoads );
+    }
+
+    /**
+     * test that the cached subscriptions are copies of the written ones
+     */
+    public void testCopy( )
+    {
+        Subscription subscription = newSubscription( 2, DEMANDTYPEID1, MAIL2 );
+        subscription.setDateUpdate( 1000L );
+        Subscription copy = SubscriptionCache.copy( subscription );
+        subscription.setMail( MAIL1 );
+
+        assertNotSame( subscription, copy );
+        assertEquals( MAIL2, copy.getMail( ) );
+        assertEquals( 1000L, copy.getDateUpdate( ) );
+    }
+
+    /**
+     * Build a DAO reading the subscription table from the test list
+     * 
+     * @return the DAO
+     */
+    private ISubscriptionDAO newDAO( )
+    {
+        return (ISubscriptionDAO) Proxy.newProxyInstance( ISubscriptionDAO.class.getClassLoader( ), new Class<?> [ ] {
+                ISubscriptionDAO.class
+        }, ( proxy, method, args ) -> {
+            if ( !"selectSubscriptionsList".equals( method.getName( ) ) || args.length != 1 )
+            {
+                throw new UnsupportedOperationException( method.getName( ) );
+            }
+
+            _nbLoads++;
+            List<Subscription> listSubscriptions = new ArrayList<>( );
+            for ( Subscription subscription : _listTable )
+            {
+                listSubscriptions.add( SubscriptionCache.copy( subscription ) );
+            }
+            if ( _onLoad != null )
+            {
+                _onLoad.run( );
+            }
+
+            return listSubscriptions;
+        } );
+    }
+
+    /**
+     * Build a subscription
+     * 
+     * @param nId
+     *            the id
+     * @param nDemandTypeId
+     *            the demand type id
+     * @param strMail
+     *            the mail
+     * @return the subscription
+     */
+    private static Subscription newSubscription( int nId, int nDemandTypeId, String strMail )
+    {
+        Subscription subscription = new Subscription( );
+        subscription.setId( nId );
+        subscription.setDemandTypeId( nDemandTypeId );
+        subscription.setMail( strMail );
+        subscription.setFrequency( FREQUENCY1 );
+
+        return subscription;
+    }
+}
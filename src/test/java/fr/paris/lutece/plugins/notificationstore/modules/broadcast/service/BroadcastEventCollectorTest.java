@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Event;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.List;
+
+/**
+ * This is the test class of the bounded collector of the events of an alert
+ */
+public class BroadcastEventCollectorTest extends LuteceTestCase
+{
+    private static final String TYPE1 = "MAIL";
+    private static final String TYPE2 = "SMS";
+    private static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * test a collector without limit : every event is detailed and grouped
+     */
+    public void testUnbounded( )
+    {
+        BroadcastEventCollector collector = new BroadcastEventCollector( 0, 0 );
+        assertTrue( collector.isEmpty( ) );
+
+        for ( int i = 1; i <= 50; i++ )
+        {
+            collector.accept( newEvent( String.valueOf( i ), TYPE1, "Message " + i, i ) );
+        }
+
+        assertFalse( collector.isEmpty( ) );
+        assertEquals( 50, collector.getNbEvents( ) );
+        assertEquals( 50, collector.getEvents( ).size( ) );
+        assertEquals( 1, collector.getGroupList( ).size( ) );
+        assertEquals( 50, collector.getGroupList( ).get( 0 ).getCount( ) );
+        assertEquals( 0, collector.getNbOverflowEvents( ) );
+        assertEquals( 1L, collector.getFirstEventDate( ) );
+        assertEquals( 50L, collector.getLastEventDate( ) );
+    }
+
+    /**
+     * test the cap of the detailed events : the first events are kept, all the events are counted
+     */
+    public void testDetailedEventsCap( )
+    {
+        BroadcastEventCollector collector = new BroadcastEventCollector( 10, 0 );
+
+        for ( int i = 1; i <= 25; i++ )
+        {
+            collector.accept( newEvent( String.valueOf( i ), TYPE1, "Timeout", i ) );
+        }
+
+        List<NotificationEvent> listEvents = collector.getEvents( );
+        assertEquals( 10, listEvents.size( ) );
+        assertEquals( "1", listEvents.get( 0 ).getDemand( ).getId( ) );
+        assertEquals( "10", listEvents.get( 9 ).getDemand( ).getId( ) );
+        assertEquals( 25, collector.getNbEvents( ) );
+        assertEquals( 25, collector.getGroupList( ).get( 0 ).getCount( ) );
+        assertEquals( 25L, collector.getLastEventDate( ) );
+    }
+
+    /**
+     * test the cap of the groups : the events of the new groups are counted by type and status
+     */
+    public void testGroupsCapAndOverflow( )
+    {
+        BroadcastEventCollector collector = new BroadcastEventCollector( 0, 2 );
+
+        collector.accept( newEvent( "1", TYPE1, "Connection refused", 1 ) );
+        collector.accept( newEvent( "2", TYPE1, "Invalid address", 2 ) );
+        // new groups : overflow
+        collector.accept( newEvent( "3", TYPE1, "Quota exceeded", 3 ) );
+        collector.accept( newEvent( "4", TYPE2, "Unknown number", 4 ) );
+        collector.accept( newEvent( "5", TYPE2, "Gateway error", 5 ) );
+        // existing group
+        collector.accept( newEvent( "6", TYPE1, "Connection refused", 6 ) );
+
+        assertEquals( 6, collector.getNbEvents( ) );
+        assertEquals( 2, collector.getGroupList( ).size( ) );
+        assertEquals( 2, collector.getGroupList( ).get( 0 ).getCount( ) );
+        assertEquals( 3, collector.getNbOverflowEvents( ) );
+
+        List<BroadcastEventCollector.EventCounter> listOverflow = collector.getOverflowList( );
+        assertEquals( 2, listOverflow.size( ) );
+        assertEquals( TYPE1, listOverflow.get( 0 ).getType( ) );
+        assertEquals( STATUS_FAILED, listOverflow.get( 0 ).getStatus( ) );
+        assertEquals( 1, listOverflow.get( 0 ).getCount( ) );
+        assertEquals( TYPE2, listOverflow.get( 1 ).getType( ) );
+        assertEquals( 2, listOverflow.get( 1 ).getCount( ) );
+    }
+
+    /**
+     * test that the summary key changes with the counters, so that two different alerts are not rendered the same
+     */
+    public void testSummaryKey( )
+    {
+        BroadcastEventCollector collector1 = new BroadcastEventCollector( 1, 1 );
+        BroadcastEventCollector collector2 = new BroadcastEventCollector( 1, 1 );
+        NotificationEvent notificationEvent = newEvent( "1", TYPE1, "Timeout", 1 );
+        collector1.accept( notificationEvent );
+        collector2.accept( notificationEvent );
+        assertEquals( collector1.getSummaryKey( ), collector2.getSummaryKey( ) );
+
+        // same detailed events, but not the same counters
+        collector2.accept( newEvent( "2", TYPE2, "Gateway error", 2 ) );
+        assertEquals( collector1.getEvents( ), collector2.getEvents( ) );
+        assertFalse( collector1.getSummaryKey( ).equals( collector2.getSummaryKey( ) ) );
+    }
+
+    /**
+     * Build a failed event
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strType
+     *            the event type
+     * @param strMessage
+     *            the event message
+     * @param lEventDate
+     *            the event date
+     * @return the event
+     */
+    static NotificationEvent newEvent( String strDemandId, String strType, String strMessage, long lEventDate )
+    {
+        Demand demand = new Demand( );
+        demand.setId( strDemandId );
+        demand.setTypeId( "1" );
+
+        Event event = new Event( );
+        event.setType( strType );
+        event.setStatus( STATUS_FAILED );
+        event.setMessage( strMessage );
+        event.setEventDate( lEventDate );
+
+        NotificationEvent notificationEvent = new NotificationEvent( );
+        notificationEvent.setDemand( demand );
+        notificationEvent.setEvent( event );
+        notificationEvent.setNotificationDate( lEventDate );
+
+        return notificationEvent;
+    }
+}
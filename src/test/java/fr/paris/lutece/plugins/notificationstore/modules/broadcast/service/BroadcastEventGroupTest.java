@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.Arrays;
+
+/**
+ * This is the test class of the grouping of the events of an alert by normalized message
+ */
+public class BroadcastEventGroupTest extends LuteceTestCase
+{
+    private static final String TYPE1 = "MAIL";
+    private static final String TYPE2 = "SMS";
+
+    /**
+     * test the normalization of the messages
+     */
+    public void testNormalizeMessage( )
+    {
+        assertEquals( "", BroadcastEventGroup.normalizeMessage( null ) );
+        assertEquals( "Connection refused", BroadcastEventGroup.normalizeMessage( "  Connection \t refused \n" ) );
+        assertEquals( "Demand # not found", BroadcastEventGroup.normalizeMessage( "Demand 123456 not found" ) );
+        assertEquals( "Request # failed with status #",
+                BroadcastEventGroup.normalizeMessage( "Request 3f2a9c1e-7b4d-4e8f-9a0b-1c2d3e4f5a6b failed with status 503" ) );
+        assertEquals( "Token # expired", BroadcastEventGroup.normalizeMessage( "Token 0123abcdef987654 expired" ) );
+        // short words made of hexadecimal letters are kept
+        assertEquals( "Bad face", BroadcastEventGroup.normalizeMessage( "Bad face" ) );
+    }
+
+    /**
+     * test the truncation of the long messages
+     */
+    public void testNormalizeLongMessage( )
+    {
+        char [ ] arrayMessage = new char [ 2000 ];
+        Arrays.fill( arrayMessage, 'x' );
+
+        String strNormalized = BroadcastEventGroup.normalizeMessage( new String( arrayMessage ) );
+        assertTrue( strNormalized.length( ) < 1000 );
+        assertTrue( strNormalized.endsWith( "..." ) );
+    }
+
+    /**
+     * test that the occurrences of a failure concerning different demands share a group, distinct from the other types and messages
+     */
+    public void testGrouping( )
+    {
+        BroadcastEventCollector collector = new BroadcastEventCollector( 0, 0 );
+        collector.accept( BroadcastEventCollectorTest.newEvent( "101", TYPE1, "Demand 101 : mailbox user101@paris.fr full", 10 ) );
+        collector.accept( BroadcastEventCollectorTest.newEvent( "202", TYPE1, "Demand 202 : mailbox user202@paris.fr full", 30 ) );
+        collector.accept( BroadcastEventCollectorTest.newEvent( "303", TYPE1, "Demand 303 : mailbox user303@paris.fr full", 20 ) );
+        collector.accept( BroadcastEventCollectorTest.newEvent( "404", TYPE2, "Demand 404 : mailbox user404@paris.fr full", 40 ) );
+        collector.accept( BroadcastEventCollectorTest.newEvent( "505", TYPE1, "Demand 505 : unknown recipient", 50 ) );
+
+        assertEquals( 3, collector.getGroupList( ).size( ) );
+
+        BroadcastEventGroup group = collector.getGroupList( ).get( 0 );
+        assertEquals( TYPE1, group.getType( ) );
+        assertEquals( 3, group.getCount( ) );
+        assertEquals( "Demand # : mailbox user#@paris.fr full", group.getNormalizedMessage( ) );
+        // the message of the first event is shown as an example
+        assertEquals( "Demand 101 : mailbox user101@paris.fr full", group.getMessage( ) );
+        assertEquals( 10L, group.getFirstEventDate( ) );
+        assertEquals( 30L, group.getLastEventDate( ) );
+        assertEquals( Arrays.asList( "101", "202", "303" ), group.getSampleDemandIds( ) );
+
+        assertEquals( TYPE2, collector.getGroupList( ).get( 1 ).getType( ) );
+        assertEquals( "Demand # : unknown recipient", collector.getGroupList( ).get( 2 ).getNormalizedMessage( ) );
+    }
+
+    /**
+     * test that the sample of the demand ids of a group is bounded and without duplicate
+     */
+    public void testSampleDemandIds( )
+    {
+        BroadcastEventCollector collector = new BroadcastEventCollector( 0, 0 );
+        collector.accept( BroadcastEventCollectorTest.newEvent( "1", TYPE1, "Timeout", 1 ) );
+        for ( int i = 1; i <= 20; i++ )
+        {
+            collector.accept( BroadcastEventCollectorTest.newEvent( String.valueOf( i ), TYPE1, "Timeout", i ) );
+        }
+
+        BroadcastEventGroup group = collector.getGroupList( ).get( 0 );
+        assertEquals( 21, group.getCount( ) );
+        assertEquals( Arrays.asList( "1", "2", "3", "4", "5" ), group.getSampleDemandIds( ) );
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.Locale;
+
+/**
+ * This is the test class of the cache of the rendered alert bodies
+ */
+public class BroadcastRenderCacheTest extends LuteceTestCase
+{
+    private static final int DEMAND_TYPE_ID = 1;
+    private static final String TYPE = "MAIL";
+
+    private int _nbRenders;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+        _nbRenders = 0;
+    }
+
+    /**
+     * test that the alerts with the same events share their body, whatever the feed they come from
+     */
+    public void testSameEvents( )
+    {
+        BroadcastRenderCache cache = new BroadcastRenderCache( );
+
+        // the events are read again for each feed : equal events, not the same instances
+        String strBody1 = cache.getBody( DEMAND_TYPE_ID, Locale.FRENCH, newCollector( 1, 10 ), this::render );
+        String strBody2 = cache.getBody( DEMAND_TYPE_ID, Locale.FRENCH, newCollector( 1, 10 ), this::render );
+
+        assertSame( strBody1, strBody2 );
+        assertEquals( 1, _nbRenders );
+        assertEquals( 1L, cache.getHitCount( ) );
+        assertEquals( 1L, cache.getMissCount( ) );
+    }
+
+    /**
+     * test that the alerts with other events, another locale or another demand type are rendered
+     */
+    public void testDifferentContent( )
+    {
+        BroadcastRenderCache cache = new BroadcastRenderCache( );
+
+        cache.getBody( DEMAND_TYPE_ID, Locale.FRENCH, newCollector( 1, 10 ), this::render );
+        cache.getBody( DEMAND_TYPE_ID, Locale.FRENCH, newCollector( 1, 11 ), this::render );
+        cache.getBody( DEMAND_TYPE_ID, Locale.FRENCH, newCollector( 2, 10 ), this::render );
+        cache.getBody( DEMAND_TYPE_ID, Locale.ENGLISH, newCollector( 1, 10 ), this::render );
+        cache.getBody( DEMAND_TYPE_ID + 1, Locale.FRENCH, newCollector( 1, 10 ), this::render );
+
+        assertEquals( 5, _nbRenders );
+        assertEquals( 0L, cache.getHitCount( ) );
+    }
+
+    /**
+     * Build a collector of failed events
+     * 
+     * @param nFrom
+     *            the id and date of the first event
+     * @param nTo
+     *            the id and date of the last event
+     * @return the collector
+     */
+    private static BroadcastEventCollector newCollector( int nFrom, int nTo )
+    {
+        BroadcastEventCollector collector = new BroadcastEventCollector( 0, 0 );
+        for ( int i = nFrom; i <= nTo; i++ )
+        {
+            collector.accept( BroadcastEventCollectorTest.newEvent( String.valueOf( i ), TYPE, "Timeout", i ) );
+        }
+
+        return collector;
+    }
+
+    /**
+     * Render a body
+     * 
+     * @return the body
+     */
+    private String render( )
+    {
+        _nbRenders++;
+
+        return "body " + _nbRenders;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastFeed;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastFeedIndex;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the test class of the scheduling of the broadcast feeds
+ */
+public class BroadcastSchedulerTest extends LuteceTestCase
+{
+    private static final long NOW = 1_600_000_000_000L;
+    private static final int DEMANDTYPEID1 = 1;
+    private static final int DEMANDTYPEID2 = 2;
+    private static final int DEMANDTYPEID3 = 3;
+    private static final int FREQUENCY_HOUR = 1;
+    private static final int FREQUENCY_DAY = 24;
+    private static final long KEY1 = BroadcastFeed.getKey( DEMANDTYPEID1, FREQUENCY_HOUR );
+    private static final long KEY2 = BroadcastFeed.getKey( DEMANDTYPEID2, FREQUENCY_DAY );
+    private static final long KEY3 = BroadcastFeed.getKey( DEMANDTYPEID3, FREQUENCY_HOUR );
+
+    /**
+     * test the first due dates : immediately without watermark, one frequency after the watermark otherwise
+     */
+    public void testFirstDueDates( )
+    {
+        BroadcastScheduler scheduler = new BroadcastScheduler( );
+        Map<Long, Long> mapWatermarks = new HashMap<>( );
+        mapWatermarks.put( KEY1, NOW - TimeUnit.MINUTES.toMillis( 30 ) );
+        mapWatermarks.put( KEY2, NOW - TimeUnit.HOURS.toMillis( 30 ) );
+        scheduler.synchronize( getFeeds( ), mapWatermarks );
+
+        // the feed without watermark first, then the overdue daily feed
+        assertEquals( Arrays.asList( KEY3, KEY2 ), scheduler.pollDueFeeds( NOW ) );
+        assertTrue( scheduler.pollDueFeeds( NOW ).isEmpty( ) );
+        assertEquals( Collections.singletonList( KEY1 ), scheduler.pollDueFeeds( NOW + TimeUnit.MINUTES.toMillis( 30 ) ) );
+    }
+
+    /**
+     * test that the feeds are polled by increasing due date
+     */
+    public void testPollOrder( )
+    {
+        BroadcastScheduler scheduler = new BroadcastScheduler( );
+        Map<Long, Long> mapWatermarks = new HashMap<>( );
+        mapWatermarks.put( KEY1, NOW - TimeUnit.MINUTES.toMillis( 90 ) );
+        mapWatermarks.put( KEY2, NOW - TimeUnit.HOURS.toMillis( 48 ) );
+        mapWatermarks.put( KEY3, NOW - TimeUnit.MINUTES.toMillis( 70 ) );
+        scheduler.synchronize( getFeeds( ), mapWatermarks );
+
+        assertEquals( Arrays.asList( KEY2, KEY1, KEY3 ), scheduler.pollDueFeeds( NOW ) );
+    }
+
+    /**
+     * test that the broadcast feeds are due again one frequency after the broadcast
+     */
+    public void testRescheduleAfterBroadcast( )
+    {
+        BroadcastScheduler scheduler = new BroadcastScheduler( );
+        scheduler.synchronize( getFeeds( ), Collections.emptyMap( ) );
+        List<Long> listDueFeeds = scheduler.pollDueFeeds( NOW );
+        assertEquals( 3, listDueFeeds.size( ) );
+
+        scheduler.rescheduleAfterBroadcast( listDueFeeds, NOW );
+
+        assertTrue( scheduler.pollDueFeeds( NOW + TimeUnit.MINUTES.toMillis( 59 ) ).isEmpty( ) );
+        List<Long> listHourlyFeeds = scheduler.pollDueFeeds( NOW + TimeUnit.HOURS.toMillis( 1 ) );
+        assertEquals( 2, listHourlyFeeds.size( ) );
+        assertTrue( listHourlyFeeds.containsAll( Arrays.asList( KEY1, KEY3 ) ) );
+        assertEquals( Collections.singletonList( KEY2 ), scheduler.pollDueFeeds( NOW + TimeUnit.HOURS.toMillis( 24 ) ) );
+    }
+
+    /**
+     * test that only the polled feeds can be rescheduled : a queued feed keeps its due date
+     */
+    public void testRescheduleQueuedFeed( )
+    {
+        BroadcastScheduler scheduler = new BroadcastScheduler( );
+        scheduler.synchronize( getFeeds( ), Collections.emptyMap( ) );
+
+        scheduler.reschedule( KEY1, NOW + TimeUnit.HOURS.toMillis( 5 ) );
+
+        assertTrue( scheduler.pollDueFeeds( NOW ).contains( KEY1 ) );
+    }
+
+    /**
+     * test the synchronization with the current feeds : removed feeds are discarded, polled feeds not rescheduled are due immediately
+     */
+    public void testSynchronize( )
+    {
+        BroadcastScheduler scheduler = new BroadcastScheduler( );
+        scheduler.synchronize( getFeeds( ), Collections.emptyMap( ) );
+        List<Long> listDueFeeds = scheduler.pollDueFeeds( NOW );
+        // the broadcast of KEY1 failed : it is not rescheduled
+        scheduler.rescheduleAfterBroadcast( Arrays.asList( KEY2, KEY3 ), NOW );
+        assertEquals( 3, listDueFeeds.size( ) );
+
+        // the subscriptions of the demand type 3 have been removed
+        Collection<BroadcastFeed> collectionFeeds = new ArrayList<>( );
+        for ( BroadcastFeed feed : getFeeds( ) )
+        {
+            if ( feed.getKey( ) != KEY3 )
+            {
+                collectionFeeds.add( feed );
+            }
+        }
+        scheduler.synchronize( collectionFeeds, Collections.emptyMap( ) );
+
+        assertEquals( Collections.singletonList( KEY1 ), scheduler.pollDueFeeds( NOW ) );
+        assertEquals( Collections.singletonList( KEY2 ), scheduler.pollDueFeeds( NOW + TimeUnit.HOURS.toMillis( 24 ) ) );
+    }
+
+    /**
+     * Build the feeds of the test : an hourly feed for the demand types 1 and 3, a daily feed for the demand type 2
+     * 
+     * @return the feeds
+     */
+    private static Collection<BroadcastFeed> getFeeds( )
+    {
+        List<Subscription> listSubscriptions = new ArrayList<>( );
+        listSubscriptions.add( newSubscription( 1, DEMANDTYPEID1, FREQUENCY_HOUR ) );
+        listSubscriptions.add( newSubscription( 2, DEMANDTYPEID2, FREQUENCY_DAY ) );
+        listSubscriptions.add( newSubscription( 3, DEMANDTYPEID3, FREQUENCY_HOUR ) );
+
+        return new BroadcastFeedIndex( listSubscriptions ).getFeeds( );
+    }
+
+    /**
+     * Build a subscription
+     * 
+     * @param nId
+     *            the id
+     * @param nDemandTypeId
+     *            the demand type id
+     * @param nFrequency
+     *            the frequency
+     * @return the subscription
+     */
+    private static Subscription newSubscription( int nId, int nDemandTypeId, int nFrequency )
+    {
+        Subscription subscription = new Subscription( );
+        subscription.setId( nId );
+        subscription.setDemandTypeId( nDemandTypeId );
+        subscription.setMail( "mail" + nId + "@paris.fr" );
+        subscription.setFrequency( nFrequency );
+
+        return subscription;
+    }
+}
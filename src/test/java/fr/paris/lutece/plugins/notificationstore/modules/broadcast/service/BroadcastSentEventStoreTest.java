@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.IBroadcastSentEventDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * This is the test class of the store of the events already broadcast. The records are kept by an in memory DAO counting the lookups, so no
+ * database is needed.
+ */
+public class BroadcastSentEventStoreTest extends LuteceTestCase
+{
+    private static final int BLOOM_SIZE = 1 << 16;
+    private static final String RECIPIENT1 = "recipient1@paris.fr";
+    private static final String RECIPIENT2 = "recipient2@paris.fr";
+    private static final long SENTDATE1 = 1000L;
+    private static final long SENTDATE2 = 2000L;
+    private static final String TYPE = "MAIL";
+
+    private MemorySentEventDAO _dao;
+    private List<NotificationEvent> _listEvents;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+        _dao = new MemorySentEventDAO( );
+        _listEvents = new ArrayList<>( );
+        for ( int i = 1; i <= 100; i++ )
+        {
+            _listEvents.add( BroadcastEventCollectorTest.newEvent( String.valueOf( i ), TYPE, "Timeout", i ) );
+        }
+    }
+
+    /**
+     * test that the events unknown to the Bloom filter are not looked up in the database
+     */
+    public void testBloomFilterMiss( )
+    {
+        BroadcastSentEventStore store = new BroadcastSentEventStore( _dao, null, BLOOM_SIZE, false );
+
+        assertEquals( _listEvents, store.filterNotSent( RECIPIENT1, _listEvents ) );
+        assertEquals( 0, _dao._nbLookups );
+    }
+
+    /**
+     * test that the events recorded as sent are filtered, the database confirming the filter hits
+     */
+    public void testFilterSentEvents( )
+    {
+        BroadcastSentEventStore store = new BroadcastSentEventStore( _dao, null, BLOOM_SIZE, false );
+        store.markSent( RECIPIENT1, getEventHashes( _listEvents.subList( 0, 10 ) ), SENTDATE1 );
+
+        List<NotificationEvent> listNotSent = store.filterNotSent( RECIPIENT1, _listEvents );
+        assertEquals( _listEvents.subList( 10, 100 ), listNotSent );
+        assertEquals( 1, _dao._nbLookups );
+        // only the candidates of the filter are looked up : the sent events and a few false positives
+        assertTrue( _dao._nbLookedUpHashes >= 10 && _dao._nbLookedUpHashes < 20 );
+
+        // the records are by recipient
+        assertEquals( _listEvents, store.filterNotSent( RECIPIENT2, _listEvents ) );
+    }
+
+    /**
+     * test that the filter is loaded from the records of the previous runs
+     */
+    public void testLoadFromDatabase( )
+    {
+        _dao.insertAll( BroadcastSentEventStore.getRecipientHash( RECIPIENT1 ), Arrays.asList( BroadcastSentEventStore.getEventHash( _listEvents.get( 0 ) ),
+                BroadcastSentEventStore.getEventHash( _listEvents.get( 1 ) ) ), SENTDATE1, null );
+
+        BroadcastSentEventStore store = new BroadcastSentEventStore( _dao, null, BLOOM_SIZE, false );
+        assertEquals( _listEvents.subList( 2, 100 ), store.filterNotSent( RECIPIENT1, _listEvents ) );
+        assertEquals( 1, _dao._nbLoads );
+
+        // the filter is loaded once
+        store.filterNotSent( RECIPIENT1, _listEvents );
+        assertEquals( 1, _dao._nbLoads );
+    }
+
+    /**
+     * test that the filter is rebuilt after a purge, forgetting the removed records
+     */
+    public void testPurge( )
+    {
+        BroadcastSentEventStore store = new BroadcastSentEventStore( _dao, null, BLOOM_SIZE, false );
+        store.markSent( RECIPIENT1, getEventHashes( _listEvents.subList( 0, 10 ) ), SENTDATE1 );
+        store.markSent( RECIPIENT1, getEventHashes( _listEvents.subList( 10, 20 ) ), SENTDATE2 );
+
+        store.purge( SENTDATE2, SENTDATE2, 0 );
+        assertEquals( 1, _dao._nbLoads );
+        assertEquals( _listEvents.subList( 0, 10 ), store.filterNotSent( RECIPIENT1, _listEvents.subList( 0, 20 ) ) );
+        assertEquals( 2, _dao._nbLoads );
+
+        // the purge is done at most once per interval
+        store.purge( SENTDATE2 + 1, SENTDATE2 + 1, SENTDATE2 );
+        assertEquals( 10, _dao._mapRecords.get( BroadcastSentEventStore.getRecipientHash( RECIPIENT1 ) ).size( ) );
+    }
+
+    /**
+     * test that a shared store sees the records of the other nodes, which its filter does not know
+     */
+    public void testSharedStore( )
+    {
+        BroadcastSentEventStore store = new BroadcastSentEventStore( _dao, null, BLOOM_SIZE, true );
+        BroadcastSentEventStore storeOtherNode = new BroadcastSentEventStore( _dao, null, BLOOM_SIZE, true );
+        assertEquals( _listEvents, store.filterNotSent( RECIPIENT1, _listEvents ) );
+
+        storeOtherNode.markSent( RECIPIENT1, getEventHashes( _listEvents.subList( 0, 10 ) ), SENTDATE1 );
+
+        assertEquals( _listEvents.subList( 10, 100 ), store.filterNotSent( RECIPIENT1, _listEvents ) );
+        assertEquals( 0, _dao._nbLoads );
+    }
+
+    /**
+     * Get the hashes of events
+     * 
+     * @param listEvent
+     *            the events
+     * @return the hashes of the events
+     */
+    private static List<Long> getEventHashes( List<NotificationEvent> listEvent )
+    {
+        List<Long> listEventHashes = new ArrayList<>( );
+        for ( NotificationEvent notificationEvent : listEvent )
+        {
+            listEventHashes.add( BroadcastSentEventStore.getEventHash( notificationEvent ) );
+        }
+
+        return listEventHashes;
+    }
+
+    /**
+     * In memory records of the sent events
+     */
+    private static final class MemorySentEventDAO implements IBroadcastSentEventDAO
+    {
+        private final Map<Long, Map<Long, Long>> _mapRecords = new HashMap<>( );
+        private int _nbLookups;
+        private int _nbLookedUpHashes;
+        private int _nbLoads;
+
+        @Override
+        public void insertAll( long lRecipientHash, Collection<Long> collectionEventHashes, long lSentDate, Plugin plugin )
+        {
+            Map<Long, Long> mapRecipientRecords = _mapRecords.computeIfAbsent( lRecipientHash, k -> new HashMap<>( ) );
+            for ( Long lEventHash : collectionEventHashes )
+            {
+                mapRecipientRecords.put( lEventHash, lSentDate );
+            }
+        }
+
+        @Override
+        public void deleteBefore( long lDate, Plugin plugin )
+        {
+            for ( Map<Long, Long> mapRecipientRecords : _mapRecords.values( ) )
+            {
+                mapRecipientRecords.values( ).removeIf( lSentDate -> lSentDate < lDate );
+            }
+        }
+
+        @Override
+        public Set<Long> selectSentEventHashes( long lRecipientHash, Collection<Long> collectionEventHashes, Plugin plugin )
+        {
+            _nbLookups++;
+            _nbLookedUpHashes += collectionEventHashes.size( );
+
+            Set<Long> setSentHashes = new HashSet<>( collectionEventHashes );
+            setSentHashes.retainAll( _mapRecords.getOrDefault( lRecipientHash, Collections.emptyMap( ) ).keySet( ) );
+
+            return setSentHashes;
+        }
+
+        @Override
+        public void selectSentEvents( BiConsumer<Long, Long> consumer, Plugin plugin )
+        {
+            _nbLoads++;
+            for ( Map.Entry<Long, Map<Long, Long>> entry : _mapRecords.entrySet( ) )
+            {
+                for ( Long lEventHash : entry.getValue( ).keySet( ) )
+                {
+                    consumer.accept( entry.getKey( ), lEventHash );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2002-2021, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.modules.broadcast.service;
+
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.BroadcastFeedIndex;
+import fr.paris.lutece.plugins.notificationstore.modules.broadcast.business.Subscription;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the test class of the watermark windowing and of the deduplication scope of the broadcast
+ */
+public class NotificationAlertBroadcastServiceTest extends LuteceTestCase
+{
+    private static final LocalDateTime NOW = LocalDateTime.of( 2021, 3, 15, 12, 0 );
+    private static final long END_PERIOD = Timestamp.valueOf( NOW ).getTime( );
+    private static final long LOWEST_START_PERIOD = Timestamp.valueOf( NOW.minusHours( 48 ) ).getTime( );
+    private static final int FREQUENCY = 24;
+
+    /**
+     * test the start of the period of a feed never broadcast
+     */
+    public void testStartPeriodOfNewFeed( )
+    {
+        long lStartPeriod = NotificationAlertBroadcastService.getStartPeriod( null, FREQUENCY, NOW, LOWEST_START_PERIOD );
+
+        assertEquals( Timestamp.valueOf( NOW.minusHours( FREQUENCY ) ).getTime( ), lStartPeriod );
+    }
+
+    /**
+     * test the start of the period of a feed already broadcast
+     */
+    public void testStartPeriodFromWatermark( )
+    {
+        long lWatermark = END_PERIOD - TimeUnit.HOURS.toMillis( 30 );
+
+        // the period starts at the watermark, whatever the frequency, so that an unaligned run neither skips nor resends events
+        assertEquals( lWatermark, NotificationAlertBroadcastService.getStartPeriod( lWatermark, FREQUENCY, NOW, LOWEST_START_PERIOD ) );
+        assertEquals( lWatermark, NotificationAlertBroadcastService.getStartPeriod( lWatermark, 1, NOW, LOWEST_START_PERIOD ) );
+    }
+
+    /**
+     * test the start of the period of a feed whose watermark is older than the maximum lookback
+     */
+    public void testStartPeriodLimitedByLookback( )
+    {
+        long lWatermark = END_PERIOD - TimeUnit.DAYS.toMillis( 30 );
+
+        assertEquals( LOWEST_START_PERIOD, NotificationAlertBroadcastService.getStartPeriod( lWatermark, FREQUENCY, NOW, LOWEST_START_PERIOD ) );
+    }
+
+    /**
+     * test the bounds of a period : the start is excluded, the end is included
+     */
+    public void testPeriodBounds( )
+    {
+        long lStartPeriod = END_PERIOD - TimeUnit.HOURS.toMillis( FREQUENCY );
+
+        assertFalse( NotificationAlertBroadcastService.isInPeriod( lStartPeriod - 1, lStartPeriod, END_PERIOD ) );
+        assertFalse( NotificationAlertBroadcastService.isInPeriod( lStartPeriod, lStartPeriod, END_PERIOD ) );
+        assertTrue( NotificationAlertBroadcastService.isInPeriod( lStartPeriod + 1, lStartPeriod, END_PERIOD ) );
+        assertTrue( NotificationAlertBroadcastService.isInPeriod( END_PERIOD, lStartPeriod, END_PERIOD ) );
+        assertFalse( NotificationAlertBroadcastService.isInPeriod( END_PERIOD + 1, lStartPeriod, END_PERIOD ) );
+    }
+
+    /**
+     * test that consecutive periods of a feed neither overlap nor leave a gap
+     */
+    public void testConsecutivePeriods( )
+    {
+        long lFirstEnd = END_PERIOD - TimeUnit.HOURS.toMillis( 7 );
+        long lFirstStart = NotificationAlertBroadcastService.getStartPeriod( null, FREQUENCY, NOW.minusHours( 7 ), LOWEST_START_PERIOD );
+
+        // the watermark of the first period is its end
+        long lSecondStart = NotificationAlertBroadcastService.getStartPeriod( lFirstEnd, FREQUENCY, NOW, LOWEST_START_PERIOD );
+        assertEquals( lFirstEnd, lSecondStart );
+
+        for ( long lEventDate : new long [ ] {
+                lFirstStart + 1, lFirstEnd - 1, lFirstEnd, lFirstEnd + 1, END_PERIOD
+        } )
+        {
+            boolean bInFirst = NotificationAlertBroadcastService.isInPeriod( lEventDate, lFirstStart, lFirstEnd );
+            boolean bInSecond = NotificationAlertBroadcastService.isInPeriod( lEventDate, lSecondStart, END_PERIOD );
+            assertTrue( bInFirst != bInSecond );
+        }
+    }
+
+    /**
+     * test that only the recipients subscribed to a demand type at several frequencies are deduplicated
+     */
+    public void testMultiFrequencyRecipients( )
+    {
+        List<Subscription> listSubscriptions = new ArrayList<>( );
+        listSubscriptions.add( newSubscription( 1, 1, 1, "mail1@paris.fr" ) );
+        listSubscriptions.add( newSubscription( 2, 1, FREQUENCY, "mail1@paris.fr" ) );
+        listSubscriptions.add( newSubscription( 3, 1, FREQUENCY, "mail2@paris.fr" ) );
+        // the same recipient on another demand type, at a single frequency
+        listSubscriptions.add( newSubscription( 4, 2, FREQUENCY, "mail1@paris.fr" ) );
+
+        Map<Integer, Set<String>> mapRecipients = NotificationAlertBroadcastService
+                .getMultiFrequencyRecipients( new BroadcastFeedIndex( listSubscriptions ).getFeeds( ) );
+
+        assertEquals( Collections.singletonMap( 1, Collections.singleton( "mail1@paris.fr" ) ), mapRecipients );
+    }
+
+    /**
+     * Build a subscription
+     * 
+     * @param nId
+     *            the id
+     * @param nDemandTypeId
+     *            the demand type id
+     * @param nFrequency
+     *            the frequency
+     * @param strMail
+     *            the mail
+     * @return the subscription
+     */
+    private static Subscription newSubscription( int nId, int nDemandTypeId, int nFrequency, String strMail )
+    {
+        Subscription subscription = new Subscription( );
+        subscription.setId( nId );
+        subscription.setDemandTypeId( nDemandTypeId );
+        subscription.setMail( strMail );
+        subscription.setFrequency( nFrequency );
+
+        return subscription;
+    }
+}